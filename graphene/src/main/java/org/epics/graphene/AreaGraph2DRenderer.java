@@ -51,23 +51,17 @@ public class AreaGraph2DRenderer extends Graph2DRenderer<AreaGraph2DRendererUpda
         this.g = graphics;
         this.referenceLineColor = this.backgroundColor;
         calculateRanges(dataset.getXRange(), dataset.getXRange(), dataset.getStatistics(), dataset.getDisplayRange());
-        calculateLabels();
-        calculateGraphArea();
-        drawBackground();
-        drawGraphArea();
+        calculateAndDrawGraphArea();
 
         // Compute bin limits
         int[] binLimitsPx = new int[dataset.getXCount() + 1];
         int[] binHeightsPx = new int[dataset.getXCount()];
         
-        focusValueIndex = null;
         for (int i = 0; i < dataset.getXCount(); i++) {
             binLimitsPx[i] = (int) scaledX(dataset.getXBoundaries().getDouble(i));
             binHeightsPx[i] = (int) scaledY(dataset.getValue(i));
-            if (focusPixelX != null && binLimitsPx[i] < focusPixelX) {
-                focusValueIndex = i;
-            }
         }
+        focusValueIndex = focusPixelX != null ? findValueIndex(dataset, focusPixelX) : null;
         binLimitsPx[dataset.getXCount()] = (int) scaledX(dataset.getXBoundaries().getDouble(dataset.getXCount()));
         
         // Draw histogram area
@@ -102,6 +96,30 @@ public class AreaGraph2DRenderer extends Graph2DRenderer<AreaGraph2DRendererUpda
         
     }
 
+    /**
+     * Finds the index of the bin under the given pixel, using the ranges
+     * of the last draw. The bin boundaries are sorted, so the lookup
+     * is a binary search and does not require to redraw the graph.
+     * 
+     * @param dataset the data that was last drawn
+     * @param pixelX the x position in the graph (pixel)
+     * @return the index of the last bin that starts before the pixel; null if none
+     */
+    public Integer findValueIndex(Cell1DDataset dataset, int pixelX) {
+        // Find the first bin that starts at or after the pixel
+        int low = 0;
+        int high = dataset.getXCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((int) scaledX(dataset.getXBoundaries().getDouble(mid)) < pixelX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == 0 ? null : low - 1;
+    }
+
     public Integer getFocusPixelX() {
         return focusPixelX;
     }
@@ -32,4 +32,16 @@ public class AreaGraph2DRendererUpdate extends Graph2DRendererUpdate<AreaGraph2D
     public Boolean getHighlightFocusValue() {
         return highlightFocusValue;
     }
+
+    @Override
+    void merge(AreaGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.focusPixelX != null) {
+            focusPixelX = update.focusPixelX;
+        }
+        if (update.highlightFocusValue != null) {
+            highlightFocusValue = update.highlightFocusValue;
+        }
+    }
+
 }
@@ -78,4 +78,19 @@ public class BubbleGraph2DRendererUpdate extends Graph2DRendererUpdate<BubbleGra
     public Boolean getHighlightFocusValue() {
         return highlightFocusValue;
     }
+
+    @Override
+    void merge(BubbleGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.focusPixelX != null) {
+            focusPixelX = update.focusPixelX;
+        }
+        if (update.focusPixelY != null) {
+            focusPixelY = update.focusPixelY;
+        }
+        if (update.highlightFocusValue != null) {
+            highlightFocusValue = update.highlightFocusValue;
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Allows to stop a draw that is no longer needed, for example because
+ * a newer frame was requested. The renderer checks the token while it goes
+ * through the data, and stops with a {@link CancellationException} once
+ * the token is cancelled. The image of a cancelled draw is incomplete
+ * and should be discarded.
+ * <p>
+ * A token can be cancelled from any thread, and stays cancelled: a new
+ * token is needed for each draw.
+ *
+ * @author carcassi
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests the draw to stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether the draw was requested to stop.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the draw if it was cancelled.
+     *
+     * @throws CancellationException if the token was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Draw was cancelled");
+        }
+    }
+
+}
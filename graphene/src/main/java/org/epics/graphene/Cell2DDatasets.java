@@ -4,6 +4,9 @@
  */
 package org.epics.graphene;
 
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import org.epics.util.stats.StatisticsUtil;
 import org.epics.util.stats.Statistics;
 import org.epics.util.stats.Range;
@@ -23,6 +26,39 @@ public class Cell2DDatasets {
 
     }
 
+    /**
+     * Copies the values of the cells from xFrom (inclusive) to xTo (exclusive)
+     * at the given y in the first elements of the destination array.
+     * The whole row is copied at once if the dataset is
+     * a {@link Cell2DRowDataset}, otherwise it is read one cell at a time.
+     *
+     * @param dataset the dataset to read
+     * @param y the y coordinate
+     * @param xFrom the first x coordinate
+     * @param xTo the x coordinate after the last one
+     * @param dest the array where to copy the values
+     */
+    public static void getRow(Cell2DDataset dataset, int y, int xFrom, int xTo, double[] dest) {
+        if (dataset instanceof Cell2DRowDataset) {
+            ((Cell2DRowDataset) dataset).getRow(y, xFrom, xTo, dest);
+        } else {
+            for (int x = xFrom; x < xTo; x++) {
+                dest[x - xFrom] = dataset.getValue(x, y);
+            }
+        }
+    }
+
+    private static void copyValues(ListNumber values, int offset, int length, double[] dest) {
+        double[] array = CollectionNumbers.wrappedDoubleArray(values);
+        if (array != null) {
+            System.arraycopy(array, offset, dest, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[i] = values.getDouble(offset + i);
+            }
+        }
+    }
+
     /**
      * returns a Cell2DDataset, which is a 1D list of values that is treated
      * like a 2D matrix.
@@ -47,12 +83,22 @@ public class Cell2DDatasets {
         final ListNumber yBoundaries = ListNumbers.linearListFromRange(yRange.getMinimum().doubleValue(), yRange.getMaximum().doubleValue(), yCount + 1);
 
         final Statistics stats = StatisticsUtil.statisticsOf(data);
-        return new Cell2DDataset() {
+        return new ConcurrentCell2DDataset() {
             @Override
             public double getValue(int x, int y) {
                 return data.getDouble(y * xCount + x);
             }
 
+            @Override
+            public void getRow(int y, int xFrom, int xTo, double[] dest) {
+                copyValues(data, y * xCount + xFrom, xTo - xFrom, dest);
+            }
+
+            @Override
+            public boolean isRowCopyCheap() {
+                return true;
+            }
+
             @Override
             public Statistics getStatistics() {
                 return stats;
@@ -207,13 +253,23 @@ public class Cell2DDatasets {
         if (values.size() != xCount * yCount) {
             throw new IllegalArgumentException("Number of boundaries do not match number of cells (" + xCount + " * " + yCount + " !+ " + values.size() + ")");
         }
-        return new Cell2DDataset() {
+        return new ConcurrentCell2DDataset() {
 
             @Override
             public double getValue(int x, int y) {
                 return values.getDouble(y * xCount + x);
             }
 
+            @Override
+            public void getRow(int y, int xFrom, int xTo, double[] dest) {
+                copyValues(values, y * xCount + xFrom, xTo - xFrom, dest);
+            }
+
+            @Override
+            public boolean isRowCopyCheap() {
+                return true;
+            }
+
             @Override
             public Statistics getStatistics() {
                 return statistics;
@@ -255,4 +311,330 @@ public class Cell2DDatasets {
             }
         };
     }
+    
+    /**
+     * A dataset backed by an array of unsigned bytes, such as an 8-bit
+     * camera image. The values go from 0 to 255 and are arranged by rows,
+     * like {@link #datasetFrom(org.epics.util.array.ListNumber, org.epics.util.array.ListNumber, org.epics.util.array.ListNumber) }.
+     * The array is not copied, and should not be modified afterwards.
+     * 
+     * @param values the values of the cells, one row after the other
+     * @param xBoundaries the boundaries of the cells along x
+     * @param yBoundaries the boundaries of the cells along y
+     * @return a new dataset
+     */
+    public static Cell2DDataset datasetFromUnsignedBytes(final byte[] values, final ListNumber xBoundaries, final ListNumber yBoundaries) {
+        ListNumber unsignedValues = new ListInt() {
+
+            @Override
+            public int getInt(int index) {
+                return values[index] & 0xFF;
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+        return new IntegerDataset(unsignedValues, 256, xBoundaries, yBoundaries) {
+
+            @Override
+            public double getValue(int x, int y) {
+                return values[y * xCount + x] & 0xFF;
+            }
+
+            @Override
+            public void getRow(int y, int xFrom, int xTo, double[] dest) {
+                int offset = y * xCount;
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = values[offset + x] & 0xFF;
+                }
+            }
+
+            @Override
+            public void getIntRow(int y, int xFrom, int xTo, int[] dest) {
+                int offset = y * xCount;
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = values[offset + x] & 0xFF;
+                }
+            }
+        };
+    }
+
+    /**
+     * A dataset backed by an array of unsigned shorts, such as a 16-bit
+     * camera or detector image. The values go from 0 to 65535 and are arranged by rows,
+     * like {@link #datasetFrom(org.epics.util.array.ListNumber, org.epics.util.array.ListNumber, org.epics.util.array.ListNumber) }.
+     * The array is not copied, and should not be modified afterwards.
+     * 
+     * @param values the values of the cells, one row after the other
+     * @param xBoundaries the boundaries of the cells along x
+     * @param yBoundaries the boundaries of the cells along y
+     * @return a new dataset
+     */
+    public static Cell2DDataset datasetFromUnsignedShorts(final short[] values, final ListNumber xBoundaries, final ListNumber yBoundaries) {
+        ListNumber unsignedValues = new ListInt() {
+
+            @Override
+            public int getInt(int index) {
+                return values[index] & 0xFFFF;
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+        return new IntegerDataset(unsignedValues, 65536, xBoundaries, yBoundaries) {
+
+            @Override
+            public double getValue(int x, int y) {
+                return values[y * xCount + x] & 0xFFFF;
+            }
+
+            @Override
+            public void getRow(int y, int xFrom, int xTo, double[] dest) {
+                int offset = y * xCount;
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = values[offset + x] & 0xFFFF;
+                }
+            }
+
+            @Override
+            public void getIntRow(int y, int xFrom, int xTo, int[] dest) {
+                int offset = y * xCount;
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = values[offset + x] & 0xFFFF;
+                }
+            }
+        };
+    }
+
+    /**
+     * A dataset backed by an array of floats, arranged by rows
+     * like {@link #datasetFrom(org.epics.util.array.ListNumber, org.epics.util.array.ListNumber, org.epics.util.array.ListNumber) }.
+     * The array is not copied, and should not be modified afterwards.
+     * 
+     * @param values the values of the cells, one row after the other
+     * @param xBoundaries the boundaries of the cells along x
+     * @param yBoundaries the boundaries of the cells along y
+     * @return a new dataset
+     */
+    public static Cell2DDataset datasetFromFloats(final float[] values, final ListNumber xBoundaries, final ListNumber yBoundaries) {
+        return datasetFrom(new ArrayFloat(values), xBoundaries, yBoundaries);
+    }
+
+    /**
+     * The type of the elements stored in a file.
+     */
+    public static enum ElementType {
+        BYTE(1), UNSIGNED_BYTE(1), SHORT(2), UNSIGNED_SHORT(2), INT(4), FLOAT(4), DOUBLE(8);
+
+        final int size;
+
+        private ElementType(int size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * A dataset read from a memory mapped file, for images that are too
+     * large to be loaded on the heap. The rows are stored one after the other,
+     * each starting rowStride bytes after the previous one. Only the parts
+     * of the file that are displayed are read, except for the statistics,
+     * which are calculated in parallel on the whole file when first requested.
+     * The file is not closed by the dataset, and should not be modified while
+     * the dataset is in use.
+     * 
+     * @param channel the file to map
+     * @param position the position of the first cell in the file
+     * @param rowStride the number of bytes from the start of a row to the start of the next
+     * @param elementType the type of each cell
+     * @param byteOrder the byte order of the file
+     * @param xBoundaries the boundaries of the cells along x
+     * @param yBoundaries the boundaries of the cells along y
+     * @return a new dataset
+     * @throws IOException if the file can't be mapped
+     */
+    public static Cell2DDataset datasetFromFile(FileChannel channel, long position, long rowStride, ElementType elementType, ByteOrder byteOrder,
+            ListNumber xBoundaries, ListNumber yBoundaries) throws IOException {
+        return datasetFromFile(channel, position, rowStride, elementType, byteOrder, xBoundaries, yBoundaries, Integer.MAX_VALUE);
+    }
+
+    static Cell2DDataset datasetFromFile(FileChannel channel, long position, long rowStride, ElementType elementType, ByteOrder byteOrder,
+            ListNumber xBoundaries, ListNumber yBoundaries, long maxChunkSize) throws IOException {
+        if (elementType == ElementType.UNSIGNED_BYTE || elementType == ElementType.UNSIGNED_SHORT) {
+            return new MappedCell2DDataset.Unsigned(channel, position, rowStride, elementType, byteOrder, xBoundaries, yBoundaries, maxChunkSize);
+        }
+        return new MappedCell2DDataset(channel, position, rowStride, elementType, byteOrder, xBoundaries, yBoundaries, maxChunkSize);
+    }
+
+    /**
+     * The common part of the datasets with integer values.
+     */
+    private static abstract class IntegerDataset implements Cell2DIntegerDataset, ConcurrentCell2DDataset {
+
+        private final int levels;
+        private final Statistics statistics;
+        private final ListNumber xBoundaries;
+        private final ListNumber yBoundaries;
+        private final Range xRange;
+        private final Range yRange;
+        final int xCount;
+        private final int yCount;
+
+        IntegerDataset(ListNumber values, int levels, ListNumber xBoundaries, ListNumber yBoundaries) {
+            xCount = xBoundaries.size() - 1;
+            yCount = yBoundaries.size() - 1;
+            if (values.size() != xCount * yCount) {
+                throw new IllegalArgumentException("Number of boundaries do not match number of cells (" + xCount + " * " + yCount + " !+ " + values.size() + ")");
+            }
+            this.levels = levels;
+            this.statistics = StatisticsUtil.statisticsOf(values);
+            this.xBoundaries = xBoundaries;
+            this.yBoundaries = yBoundaries;
+            this.xRange = Ranges.range(xBoundaries.getDouble(0), xBoundaries.getDouble(xBoundaries.size() - 1));
+            this.yRange = Ranges.range(yBoundaries.getDouble(0), yBoundaries.getDouble(yBoundaries.size() - 1));
+        }
+
+        @Override
+        public int getLevels() {
+            return levels;
+        }
+
+        @Override
+        public boolean isRowCopyCheap() {
+            return true;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public Range getDisplayRange() {
+            return statistics;
+        }
+
+        @Override
+        public ListNumber getXBoundaries() {
+            return xBoundaries;
+        }
+
+        @Override
+        public Range getXRange() {
+            return xRange;
+        }
+
+        @Override
+        public int getXCount() {
+            return xCount;
+        }
+
+        @Override
+        public ListNumber getYBoundaries() {
+            return yBoundaries;
+        }
+
+        @Override
+        public Range getYRange() {
+            return yRange;
+        }
+
+        @Override
+        public int getYCount() {
+            return yCount;
+        }
+    }
+    
+    /**
+     * A view of the dataset that keeps one cell every few in each direction,
+     * so that there are at most the given number of cells. Each cell of the
+     * view takes the value of its first cell and extends to cover the ones
+     * that are skipped. The statistics and the display range are the ones
+     * of the full dataset, so that a graph of the view has the same
+     * color scale.
+     * 
+     * @param dataset the dataset to decimate
+     * @param maxXCount the maximum number of cells along x
+     * @param maxYCount the maximum number of cells along y
+     * @return the dataset itself, if it's already small enough, or the view
+     */
+    static Cell2DDataset decimated(final Cell2DDataset dataset, int maxXCount, int maxYCount) {
+        if (dataset.getXCount() <= maxXCount && dataset.getYCount() <= maxYCount) {
+            return dataset;
+        }
+        final int xStride = (dataset.getXCount() + maxXCount - 1) / maxXCount;
+        final int yStride = (dataset.getYCount() + maxYCount - 1) / maxYCount;
+        final int xCount = (dataset.getXCount() + xStride - 1) / xStride;
+        final int yCount = (dataset.getYCount() + yStride - 1) / yStride;
+        final ListNumber xBoundaries = decimatedBoundaries(dataset.getXBoundaries(), xStride, xCount);
+        final ListNumber yBoundaries = decimatedBoundaries(dataset.getYBoundaries(), yStride, yCount);
+        
+        return new Cell2DDataset() {
+
+            @Override
+            public double getValue(int x, int y) {
+                return dataset.getValue(x * xStride, y * yStride);
+            }
+
+            @Override
+            public Statistics getStatistics() {
+                return dataset.getStatistics();
+            }
+
+            @Override
+            public Range getDisplayRange() {
+                return dataset.getDisplayRange();
+            }
+
+            @Override
+            public ListNumber getXBoundaries() {
+                return xBoundaries;
+            }
+
+            @Override
+            public Range getXRange() {
+                return dataset.getXRange();
+            }
+
+            @Override
+            public int getXCount() {
+                return xCount;
+            }
+
+            @Override
+            public ListNumber getYBoundaries() {
+                return yBoundaries;
+            }
+
+            @Override
+            public Range getYRange() {
+                return dataset.getYRange();
+            }
+
+            @Override
+            public int getYCount() {
+                return yCount;
+            }
+        };
+    }
+    
+    private static ListNumber decimatedBoundaries(final ListNumber boundaries, final int stride, final int count) {
+        // The last boundary is always the last of the full dataset
+        final int lastIndex = boundaries.size() - 1;
+        return new ListDouble() {
+
+            @Override
+            public double getDouble(int index) {
+                return boundaries.getDouble(Math.min(index * stride, lastIndex));
+            }
+
+            @Override
+            public int size() {
+                return count + 1;
+            }
+        };
+    }
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * A dataset whose values are integers from 0 to a small maximum, like the
+ * pixels of a camera image. The color of each value can be calculated once
+ * in a lookup table, which is then indexed directly by the values of the cells.
+ *
+ * @author carcassi
+ */
+interface Cell2DIntegerDataset extends Cell2DRowDataset {
+
+    /**
+     * The number of values a cell can take: each value is
+     * from 0 to levels - 1.
+     *
+     * @return the number of possible values
+     */
+    public int getLevels();
+
+    /**
+     * Copies the values of the cells from xFrom (inclusive) to xTo (exclusive)
+     * at the given y in the first elements of the destination array.
+     *
+     * @param y the y coordinate
+     * @param xFrom the first x coordinate
+     * @param xTo the x coordinate after the last one
+     * @param dest the array where to copy the values
+     */
+    public void getIntRow(int y, int xFrom, int xTo, int[] dest);
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * A {@link Cell2DDataset} that can copy a whole row of values at once.
+ * <p>
+ * Datasets backed by an array should implement this interface, so that
+ * the renderers can read each row with a single copy instead of calling
+ * {@link #getValue(int, int) } for every cell. The renderers copy a row only
+ * when it has a few cells for each pixel: when most of the cells are
+ * skipped, they read the cells displayed one at a time. Use
+ * {@link Cell2DDatasets#getRow(Cell2DDataset, int, int, int, double[]) }
+ * to read the rows of any dataset.
+ *
+ * @author carcassi
+ */
+public interface Cell2DRowDataset extends Cell2DDataset {
+
+    /**
+     * Copies the values of the cells from xFrom (inclusive) to xTo (exclusive)
+     * at the given y in the first elements of the destination array.
+     *
+     * @throws ArrayIndexOutOfBoundsException if any coordinate is &lt; 0 or &gt;= its count,
+     * or if the destination is too small
+     * @param y the y coordinate
+     * @param xFrom the first x coordinate
+     * @param xTo the x coordinate after the last one
+     * @param dest the array where to copy the values
+     */
+    public void getRow(int y, int xFrom, int xTo, double[] dest);
+
+}
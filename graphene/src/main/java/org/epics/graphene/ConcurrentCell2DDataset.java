@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * A dataset whose values can be read by many threads at the same time,
+ * like the ones backed by an array or by a mapped file. The renderers
+ * color the images of these datasets in parallel stripes.
+ *
+ * @author carcassi
+ */
+interface ConcurrentCell2DDataset extends Cell2DRowDataset {
+
+    /**
+     * Whether copying a row costs less for each cell than reading the cells
+     * one at a time, like for an array. When it does not, as for a mapped file
+     * that decodes each cell, a row is copied only if few of its cells
+     * are skipped.
+     *
+     * @return true if rows are copied in bulk
+     */
+    public boolean isRowCopyCheap();
+
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.image.BufferedImage;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The configuration of a graph, which can be shared and rendered
+ * by many threads at the same time.
+ * <p>
+ * A renderer keeps the state of the frame it is drawing, so it can only
+ * be used by one thread at a time. The configuration, instead, is immutable:
+ * {@link #update(Graph2DRendererUpdate) } returns a new configuration, with
+ * the parameters of the update merged into a copy of the current ones.
+ * Each call to {@link #draw(java.lang.Object, int, int) } takes a renderer
+ * from a pool, so that the same graph can be drawn concurrently,
+ * at different sizes, for different clients, while each renderer keeps
+ * its layout and graph area caches from one frame to the next.
+ * <p>
+ * The axis ranges are started over at each draw, so the same data is
+ * always drawn with the same ranges, whichever renderer of the pool
+ * draws it: the axis ranges that depend on the previous frames
+ * (e.g. {@link AxisRanges#display() } when the data has no display range)
+ * only see the data of the frame being drawn.
+ *
+ * @param <U> the type of update for the renderer
+ * @param <D> the type of data
+ * @author carcassi
+ */
+public final class Graph2DConfiguration<U extends Graph2DRendererUpdate<U>, D> {
+
+    /**
+     * Creates the renderers of a type of graph, and draws the data on them.
+     */
+    static abstract class GraphType<U extends Graph2DRendererUpdate<U>, D> {
+
+        abstract Graph2DRenderer<U> createRenderer(int imageWidth, int imageHeight);
+
+        abstract void draw(Graph2DRenderer<U> renderer, GraphBuffer graphBuffer, D data);
+    }
+
+    private final GraphType<U, D> type;
+    private final Graph2DRenderer<U> updateFactory;
+    // The parameters of all the updates, merged: never modified
+    private final U update;
+    // The renderers configured with the update, ready to draw
+    private final Queue<Graph2DRenderer<U>> renderers = new ConcurrentLinkedQueue<>();
+
+    private Graph2DConfiguration(GraphType<U, D> type, Graph2DRenderer<U> updateFactory, U update) {
+        this.type = type;
+        this.updateFactory = updateFactory;
+        this.update = update;
+    }
+
+    private Graph2DConfiguration(GraphType<U, D> type, Graph2DRenderer<U> updateFactory) {
+        this(type, updateFactory, updateFactory.newUpdate());
+    }
+
+    private Graph2DConfiguration(GraphType<U, D> type) {
+        this(type, type.createRenderer(1, 1));
+    }
+
+    /**
+     * Creates a new update for the graph.
+     *
+     * @return a new update object
+     */
+    public U newUpdate() {
+        return updateFactory.newUpdate();
+    }
+
+    /**
+     * A new configuration with the given update applied on top of this one.
+     * The parameters of the update are copied, so the update can be
+     * modified afterwards.
+     *
+     * @param update the update to apply
+     * @return a new configuration
+     */
+    public Graph2DConfiguration<U, D> update(U update) {
+        U newUpdate = getUpdate();
+        newUpdate.merge(update);
+        return new Graph2DConfiguration<>(type, updateFactory, newUpdate);
+    }
+
+    /**
+     * A copy of the parameters of this configuration: applying it to a new
+     * renderer has the same effect as applying all the updates in order.
+     *
+     * @return a new update
+     */
+    public U getUpdate() {
+        U copy = newUpdate();
+        copy.merge(update);
+        return copy;
+    }
+
+    /**
+     * Draws the data with this configuration. The image size given here
+     * takes precedence over the one in the configuration. This method can be
+     * called by many threads at the same time.
+     *
+     * @param data the data to draw
+     * @param imageWidth the width of the image
+     * @param imageHeight the height of the image
+     * @return a new image with the graph
+     */
+    public BufferedImage draw(D data, int imageWidth, int imageHeight) {
+        Graph2DRenderer<U> renderer = renderers.poll();
+        if (renderer == null) {
+            renderer = type.createRenderer(imageWidth, imageHeight);
+            renderer.update(update);
+        } else {
+            renderer.resetAxisRanges();
+        }
+        renderer.update(renderer.newUpdate().imageWidth(imageWidth).imageHeight(imageHeight));
+        GraphBuffer graphBuffer = new GraphBuffer(renderer);
+        type.draw(renderer, graphBuffer, data);
+        // Returned only after a successful draw, so that the pool never
+        // holds a renderer left in the middle of a frame
+        renderers.offer(renderer);
+        return graphBuffer.getImage();
+    }
+
+    /**
+     * The number of renderers ready to draw, visible for testing.
+     *
+     * @return the size of the pool
+     */
+    int pooledRenderers() {
+        return renderers.size();
+    }
+
+    /**
+     * The renderer that the next draw will use, visible for testing.
+     *
+     * @return a renderer of the pool; null if the pool is empty
+     */
+    Graph2DRenderer<U> nextRenderer() {
+        return renderers.peek();
+    }
+
+    /**
+     * The configuration of a line graph, with the default settings.
+     *
+     * @return a new configuration
+     */
+    public static Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> lineGraph() {
+        return new Graph2DConfiguration<>(new GraphType<LineGraph2DRendererUpdate, Point2DDataset>() {
+
+            @Override
+            Graph2DRenderer<LineGraph2DRendererUpdate> createRenderer(int imageWidth, int imageHeight) {
+                return new LineGraph2DRenderer(imageWidth, imageHeight);
+            }
+
+            @Override
+            void draw(Graph2DRenderer<LineGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data) {
+                ((LineGraph2DRenderer) renderer).draw(graphBuffer, data);
+            }
+        });
+    }
+
+    /**
+     * The configuration of a scatter graph, with the default settings.
+     *
+     * @return a new configuration
+     */
+    public static Graph2DConfiguration<ScatterGraph2DRendererUpdate, Point2DDataset> scatterGraph() {
+        return new Graph2DConfiguration<>(new GraphType<ScatterGraph2DRendererUpdate, Point2DDataset>() {
+
+            @Override
+            Graph2DRenderer<ScatterGraph2DRendererUpdate> createRenderer(int imageWidth, int imageHeight) {
+                return new ScatterGraph2DRenderer(imageWidth, imageHeight);
+            }
+
+            @Override
+            void draw(Graph2DRenderer<ScatterGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data) {
+                ((ScatterGraph2DRenderer) renderer).draw(graphBuffer.getGraphicsContext(), data);
+            }
+        });
+    }
+
+    /**
+     * The configuration of an intensity graph, with the default settings.
+     *
+     * @return a new configuration
+     */
+    public static Graph2DConfiguration<IntensityGraph2DRendererUpdate, Cell2DDataset> intensityGraph() {
+        return new Graph2DConfiguration<>(new GraphType<IntensityGraph2DRendererUpdate, Cell2DDataset>() {
+
+            @Override
+            Graph2DRenderer<IntensityGraph2DRendererUpdate> createRenderer(int imageWidth, int imageHeight) {
+                return new IntensityGraph2DRenderer(imageWidth, imageHeight);
+            }
+
+            @Override
+            void draw(Graph2DRenderer<IntensityGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Cell2DDataset data) {
+                ((IntensityGraph2DRenderer) renderer).draw(graphBuffer, data);
+            }
+        });
+    }
+
+}
@@ -5,6 +5,8 @@
 package org.epics.graphene;
 
 import org.epics.util.stats.Range;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
@@ -13,18 +15,22 @@ import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 import static org.epics.graphene.InterpolationScheme.CUBIC;
 import static org.epics.graphene.InterpolationScheme.LINEAR;
 import static org.epics.graphene.InterpolationScheme.NEAREST_NEIGHBOR;
 import static org.epics.graphene.ReductionScheme.FIRST_MAX_MIN_LAST;
+import static org.epics.graphene.ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS;
 import static org.epics.graphene.ReductionScheme.NONE;
 import org.epics.util.array.ArrayDouble;
 import org.epics.util.array.ListDouble;
 import org.epics.util.array.ListMath;
 import org.epics.util.array.ListNumber;
+import org.epics.util.array.SortedListView;
 import org.epics.util.stats.Ranges;
 
 /**
@@ -100,6 +106,20 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
     
     protected Graphics2D g;
     
+    /**
+     * The buffer behind the graphics context, if drawing on a {@link GraphBuffer}.
+     * When set, lines that are 1 pixel wide and not antialiased are written
+     * directly in the buffer instead of being stroked by Java2D.
+     */
+    protected GraphBuffer graphBuffer;
+    
+    /**
+     * The token of the current draw, if it can be cancelled. Sub-classes set
+     * it for the duration of the draw, and the loops that go through the data
+     * call {@link #checkCancelled() }.
+     */
+    protected CancellationToken cancellationToken;
+    
     // Renderer external parameter //
     
     // Size of the image
@@ -132,6 +152,9 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
     // Margin for starting drawing from center of pixel
     protected double xPointMargin = 0.5;  //Set as point (not area) by default
     protected double yPointMargin = 0.5;
+    // Time for each frame; zero for no budget
+    private long renderBudgetNanos = 0;
+    private final RenderQualityControl qualityControl = new RenderQualityControl();
     
     // Computed parameters, visible to outside //
     
@@ -204,6 +227,17 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
     public Range getYPlotRange() {
         return yPlotRange;
     }
+
+    /**
+     * The quality the next frame will be rendered with. It is lowered when
+     * the frames take more than the render budget, and raised when they
+     * take less than half.
+     * 
+     * @return the render quality
+     */
+    public RenderQuality getRenderQuality() {
+        return qualityControl.getQuality();
+    }
     
     /**
      * Applies the update to the renderer.
@@ -274,6 +308,10 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         if (update.getYLabelMargin() != null){
             yLabelMargin = update.getYLabelMargin();
         }
+        if (update.getRenderBudget() != null){
+            renderBudgetNanos = update.getRenderBudget().toNanosLong();
+            qualityControl.reset();
+        }
     }
     
     static Range aggregateRange(Range dataRange, Range aggregatedRange) {
@@ -291,6 +329,76 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      */
     public abstract T newUpdate();
     
+    /**
+     * Records the time taken to render a frame, so that the quality of the
+     * next frames can be adapted to the render budget. Renderers that support
+     * the budget call this at the end of each draw.
+     * 
+     * @param frameNanos the time taken by the frame
+     */
+    protected final void frameRendered(long frameNanos) {
+        qualityControl.frameRendered(frameNanos, renderBudgetNanos);
+    }
+    
+    /**
+     * Stops the draw if its token was cancelled. Loops that go through
+     * the data call this at regular intervals (e.g. once per chunk or row).
+     * 
+     * @throws java.util.concurrent.CancellationException if the draw was cancelled
+     */
+    protected final void checkCancelled() {
+        if (cancellationToken != null) {
+            cancellationToken.checkCancelled();
+        }
+    }
+    
+    /**
+     * The antialiasing hint for lines and shapes at the current quality.
+     * 
+     * @return {@link RenderingHints#VALUE_ANTIALIAS_ON} unless the quality is reduced
+     */
+    protected Object antialiasingHint() {
+        if (getRenderQuality().compareTo(RenderQuality.NO_ANTIALIASING) >= 0) {
+            return RenderingHints.VALUE_ANTIALIAS_OFF;
+        }
+        return RenderingHints.VALUE_ANTIALIAS_ON;
+    }
+    
+    /**
+     * The interpolation actually used at the current quality.
+     * 
+     * @param interpolation the interpolation configured
+     * @return the interpolation to draw with
+     */
+    protected InterpolationScheme renderedInterpolation(InterpolationScheme interpolation) {
+        if (interpolation == CUBIC && getRenderQuality().compareTo(RenderQuality.LINEAR_INTERPOLATION) >= 0) {
+            return LINEAR;
+        }
+        return interpolation;
+    }
+    
+    /**
+     * The reduction actually used at the current quality.
+     * 
+     * @param reduction the reduction configured
+     * @return the reduction to draw with
+     */
+    protected ReductionScheme renderedReduction(ReductionScheme reduction) {
+        if (getRenderQuality().compareTo(RenderQuality.COARSE_REDUCTION) >= 0) {
+            return FIRST_MAX_MIN_LAST;
+        }
+        return reduction;
+    }
+    
+    /**
+     * Whether reference lines and legends are drawn at the current quality.
+     * 
+     * @return true if the decorations are drawn
+     */
+    protected boolean isDrawingDecorations() {
+        return getRenderQuality() != RenderQuality.ESSENTIAL;
+    }
+    
     /**
      * Given the new data ranges, calculates the new aggregated and plot
      * ranges.
@@ -305,6 +413,15 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         yPlotRange = yAxisRange.axisRange(yDataRange, yDisplayRange);
     }
     
+    /**
+     * Starts the axis ranges over, so that the next frame is drawn with
+     * the range a new renderer would use, regardless of the previous frames.
+     */
+    void resetAxisRanges() {
+        xAxisRange = xAxisRange.getAxisRange().createInstance();
+        yAxisRange = yAxisRange.getAxisRange().createInstance();
+    }
+    
     /**
      * Draws the horizontal reference lines based on the calculated
      * graph area.
@@ -340,6 +457,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      * </ul>
      */
     protected void calculateLabels() {
+        layoutKey = null;
         // Calculate horizontal axis references. If range is zero, use special logic
         if (!xPlotRange.getMinimum().equals(xPlotRange.getMaximum())) {
             ValueAxis xAxis = xValueScale.references(xPlotRange, 2, Math.max(2, getImageWidth() / 60));
@@ -371,7 +489,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         int[] yLabelWidths = new int[yReferenceLabels.size()];
         yLabelMaxWidth = 0;
         for (int i = 0; i < yLabelWidths.length; i++) {
-            yLabelWidths[i] = labelFontMetrics.stringWidth(yReferenceLabels.get(i));
+            yLabelWidths[i] = TextCache.stringWidth(labelFontMetrics, yReferenceLabels.get(i));
             yLabelMaxWidth = Math.max(yLabelMaxWidth, yLabelWidths[i]);
         }
     }
@@ -390,6 +508,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      * prior to calling calculateGraphAreaNoLabels().
      */    
     protected void calculateGraphArea() {
+        layoutKey = null;
         int areaFromBottom = bottomMargin + xLabelMaxHeight + xLabelMargin;
         int areaFromLeft = leftMargin + yLabelMaxWidth + yLabelMargin;
 
@@ -450,44 +569,118 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      * lines and the labels.
      */
     protected void drawGraphArea() {
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasingHint());
         // When drawing the reference line, align them to the pixel
-        drawVerticalReferenceLines();
-        drawHorizontalReferenceLines();
+        if (isDrawingDecorations()) {
+            drawVerticalReferenceLines();
+            drawHorizontalReferenceLines();
+        }
         
         drawYLabels();
         drawXLabels();
     }
 
-    private ScaledData scaleNoReduction(ListNumber xValues, ListNumber yValues) {
-        return scaleNoReduction(xValues, yValues, 0);
+    // Layout of the last labels and graph area calculation
+    private List<Object> layoutKey;
+    // Graph area of the last frame drawn on a GraphBuffer
+    private List<Object> graphAreaKey;
+    private Object graphAreaLayer;
+    private RenderingHints graphAreaHints;
+    
+    /**
+     * The properties the labels and the graph area are calculated from:
+     * the size, the plot ranges, the scales, the font and the margins.
+     * Changing the colors only requires to draw the graph area again, while
+     * the other properties (e.g. the focus) only affect the data.
+     * 
+     * @return the layout properties
+     */
+    List<Object> layoutProperties() {
+        return Arrays.<Object>asList(getImageWidth(), getImageHeight(),
+                xPlotRange.getMinimum().doubleValue(), xPlotRange.getMaximum().doubleValue(),
+                yPlotRange.getMinimum().doubleValue(), yPlotRange.getMaximum().doubleValue(),
+                xValueScale, yValueScale, labelFont, g.getFontRenderContext(),
+                bottomMargin, topMargin, leftMargin, rightMargin,
+                bottomAreaMargin, topAreaMargin, leftAreaMargin, rightAreaMargin,
+                xLabelMargin, yLabelMargin, xPointMargin, yPointMargin);
+    }
+    
+    /**
+     * Calculates the labels and the graph area, then draws the background
+     * and the graph area. Each step is run only if needed:
+     * <ul>
+     *    <li>if the size, the ranges, the scales, the font and the margins
+     *    are the same as the previous frame, the labels and the graph area
+     *    are not calculated again;</li>
+     *    <li>when drawing on a {@link GraphBuffer}, if the colors are also
+     *    the same, the background layer of the previous frame is copied
+     *    in the buffer instead of being drawn.</li>
+     * </ul>
+     * Updates that only change the data, or how the data is drawn, never
+     * cause the layout to be calculated again.
+     * <p>
+     * Sub-classes can use this instead of calling each step only if
+     * the graph area does not depend on their own parameters. The line,
+     * area and scatter graphs use it; the intensity graph keeps its own
+     * layer, as the graph area also depends on the legend; the multi axis
+     * graph calculates the labels of each axis on every frame.
+     */
+    protected void calculateAndDrawGraphArea() {
+        List<Object> layout = layoutProperties();
+        boolean layoutValid = layout.equals(layoutKey);
+        
+        List<Object> key = null;
+        if (graphBuffer != null) {
+            key = Arrays.<Object>asList(layout, graphBuffer.getImage().getType(),
+                    graphBuffer.getImage().getWidth(), graphBuffer.getImage().getHeight(),
+                    backgroundColor, labelColor, referenceLineColor, getRenderQuality());
+            if (layoutValid && key.equals(graphAreaKey)) {
+                graphBuffer.restorePixels(graphAreaLayer);
+                g.setRenderingHints(graphAreaHints);
+                return;
+            }
+        }
+        
+        if (!layoutValid) {
+            calculateLabels();
+            calculateGraphArea();
+            layoutKey = layout;
+        }
+        g.setClip(null);
+        drawBackground();
+        drawGraphArea();
+        
+        if (key != null) {
+            graphAreaLayer = graphBuffer.copyPixels(graphAreaLayer);
+            graphAreaHints = g.getRenderingHints();
+            graphAreaKey = key;
+        }
     }
 
-    private ScaledData scaleNoReduction(ListNumber xValues, ListNumber yValues, int dataStart) {
-        ScaledData scaledData = new ScaledData();
+    private ScaledData scaleNoReduction(ScaledData scaledData, ListNumber xValues, ListNumber yValues, int dataStart) {
         int dataCount = xValues.size();
-        scaledData.scaledX = new double[dataCount];
-        scaledData.scaledY = new double[dataCount];
-        for (int i = 0; i < scaledData.scaledY.length; i++) {
-            scaledData.scaledX[i] = scaledX(xValues.getDouble(i));
-            scaledData.scaledY[i] = scaledY(yValues.getDouble(i));
+        scaledData.prepare(dataCount);
+        scaledX(xValues, 0, dataCount, scaledData.scaledX);
+        scaledY(yValues, 0, dataCount, scaledData.scaledY);
+        for (int i = 0; i < dataCount; i++) {
+            if (i % ScaledData.SCALING_CHUNK == 0) {
+                checkCancelled();
+            }
             processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), scaledData.scaledX[i], scaledData.scaledY[i]);
         }
         scaledData.end = dataCount;
         return scaledData;
     }
 
-    private ScaledData scaleFirstMaxMinLastReduction(ListNumber xValues, ListNumber yValues, int dataStart) {
+    private ScaledData scaleFirstMaxMinLastReduction(ScaledData scaledData, ListNumber xValues, ListNumber yValues, int dataStart) {
         // The number of points generated by this is about 4 times the 
         // number of points on the x axis. If the number of points is less
         // than that, it's not worth it. Don't do the data reduction.
         if (xValues.size() < xPlotCoordWidth * 4) {
-            return scaleNoReduction(xValues, yValues, dataStart);
+            return scaleNoReduction(scaledData, xValues, yValues, dataStart);
         }
 
-        ScaledData scaledData = new ScaledData();
-        scaledData.scaledX = new double[((int) xPlotCoordWidth + 1)*4 ];
-        scaledData.scaledY = new double[((int) xPlotCoordWidth + 1)*4];
+        scaledData.prepare(((int) xPlotCoordWidth + 1)*4);
         int cursor = 0;
         int previousPixel = (int) scaledX(xValues.getDouble(0));
         double last = scaledY(yValues.getDouble(0));
@@ -497,31 +690,41 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         scaledData.scaledY[0] = min;
         processScaledValue(dataStart, xValues.getDouble(0), yValues.getDouble(0), scaledX(xValues.getDouble(0)), last);
         cursor++;
-        for (int i = 1; i < xValues.size(); i++) {
-            double currentScaledX = scaledX(xValues.getDouble(i));
-            int currentPixel = (int) currentScaledX;
-            if (currentPixel == previousPixel) {
-                last = scaledY(yValues.getDouble(i));
-                min = MathIgnoreNaN.min(min, last);
-                max = MathIgnoreNaN.max(max, last);
-                processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), currentScaledX, last);
-            } else {
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = max;
-                cursor++;
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = min;
-                cursor++;
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = last;
-                cursor++;
-                previousPixel = currentPixel;
-                last = scaledY(yValues.getDouble(i));
-                min = last;
-                max = last;
-                scaledData.scaledX[cursor] = currentPixel;
-                scaledData.scaledY[cursor] = last;
-                cursor++;
+        double[] chunkX = scaledData.chunkX;
+        double[] chunkY = scaledData.chunkY;
+        for (int chunkStart = 1; chunkStart < xValues.size(); chunkStart += ScaledData.SCALING_CHUNK) {
+            checkCancelled();
+            int chunkEnd = Math.min(chunkStart + ScaledData.SCALING_CHUNK, xValues.size());
+            scaledX(xValues, chunkStart, chunkEnd, chunkX);
+            scaledY(yValues, chunkStart, chunkEnd, chunkY);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                double currentScaledX = chunkX[i - chunkStart];
+                int currentPixel = (int) currentScaledX;
+                if (currentPixel == previousPixel) {
+                    last = chunkY[i - chunkStart];
+                    min = MathIgnoreNaN.min(min, last);
+                    max = MathIgnoreNaN.max(max, last);
+                    processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), currentScaledX, last);
+                } else {
+                    // Unsorted data may come back to a pixel column already seen
+                    scaledData.ensureCapacity(cursor + 6);
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = max;
+                    cursor++;
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = min;
+                    cursor++;
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = last;
+                    cursor++;
+                    previousPixel = currentPixel;
+                    last = chunkY[i - chunkStart];
+                    min = last;
+                    max = last;
+                    scaledData.scaledX[cursor] = currentPixel;
+                    scaledData.scaledY[cursor] = last;
+                    cursor++;
+                }
             }
         }
         scaledData.scaledX[cursor] = previousPixel;
@@ -534,9 +737,213 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         return scaledData;
     }
     
+    private ScaledData scaleFirstMaxMinLastReduction(ScaledData scaledData, IndexedPoint2DDataset data, int dataStart, int dataEnd) {
+        ListNumber xValues = data.getXValues();
+        ListNumber yValues = data.getYValues();
+        // Same as above: if the number of points is less than 4 times the
+        // number of points on the x axis, don't do the data reduction.
+        if (dataEnd - dataStart < xPlotCoordWidth * 4) {
+            return scaleNoReduction(scaledData, ListMath.limit(xValues, dataStart, dataEnd),
+                    ListMath.limit(yValues, dataStart, dataEnd), dataStart);
+        }
+
+        // Instead of going through each point, find the points that
+        // fall on each pixel column and query the index for min and max
+        scaledData.prepare(((int) xPlotCoordWidth + 3) * 4);
+        int cursor = 0;
+        int i = dataStart;
+        while (i < dataEnd) {
+            int pixel = (int) scaledX(xValues.getDouble(i));
+            int next = nextPixelIndex(xValues, pixel, i, dataEnd);
+            double scaledMin = scaledY(data.getYMinimum(i, next));
+            double scaledMax = scaledY(data.getYMaximum(i, next));
+            scaledData.scaledX[cursor] = pixel;
+            scaledData.scaledY[cursor] = scaledY(yValues.getDouble(i));
+            cursor++;
+            scaledData.scaledX[cursor] = pixel;
+            scaledData.scaledY[cursor] = MathIgnoreNaN.max(scaledMin, scaledMax);
+            cursor++;
+            scaledData.scaledX[cursor] = pixel;
+            scaledData.scaledY[cursor] = MathIgnoreNaN.min(scaledMin, scaledMax);
+            cursor++;
+            scaledData.scaledX[cursor] = pixel;
+            scaledData.scaledY[cursor] = scaledY(yValues.getDouble(next - 1));
+            cursor++;
+            i = next;
+        }
+        scaledData.end = cursor;
+        return scaledData;
+    }
+
+    /**
+     * Finds the first index after the given one that falls on a different
+     * pixel column. Since the values are sorted, the pixel columns are
+     * monotonic and the search can gallop and bisect.
+     */
+    private int nextPixelIndex(ListNumber xValues, int pixel, int index, int dataEnd) {
+        // Gallop to find an index on a different pixel
+        int low = index;
+        int step = 1;
+        while (index + step < dataEnd && (int) scaledX(xValues.getDouble(index + step)) == pixel) {
+            low = index + step;
+            step *= 2;
+        }
+        int high = Math.min(index + step, dataEnd);
+        
+        // Bisect: low is on the pixel, high is not (or is the end)
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if ((int) scaledX(xValues.getDouble(mid)) == pixel) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    private ScaledData scaleLargestTriangleThreeBucketsReduction(ScaledData scaledData, ListNumber xValues, ListNumber yValues, int dataStart) {
+        // The number of points generated by this is about the number of
+        // points on the x axis. If the number of points is less than
+        // twice that, it's not worth it. Don't do the data reduction.
+        int dataCount = xValues.size();
+        if (dataCount < 3 || dataCount < xPlotCoordWidth * 2) {
+            return scaleNoReduction(scaledData, xValues, yValues, dataStart);
+        }
+
+        // First pass: each pixel column is a bucket. Find where each
+        // bucket starts and the average of its points.
+        scaledData.prepareBuckets((int) xPlotCoordWidth + 4);
+        int nBuckets = 0;
+        int previousPixel = 0;
+        double sumX = 0;
+        double sumY = 0;
+        int count = 0;
+        double[] chunkX = scaledData.chunkX;
+        double[] chunkY = scaledData.chunkY;
+        for (int chunkStart = 0; chunkStart < dataCount; chunkStart += ScaledData.SCALING_CHUNK) {
+            checkCancelled();
+            int chunkEnd = Math.min(chunkStart + ScaledData.SCALING_CHUNK, dataCount);
+            scaledX(xValues, chunkStart, chunkEnd, chunkX);
+            scaledY(yValues, chunkStart, chunkEnd, chunkY);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                double currentScaledX = chunkX[i - chunkStart];
+                double currentScaledY = chunkY[i - chunkStart];
+                processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), currentScaledX, currentScaledY);
+                int currentPixel = (int) currentScaledX;
+                if (i == 0 || currentPixel != previousPixel) {
+                    if (nBuckets != 0) {
+                        scaledData.bucketAvgX[nBuckets - 1] = count != 0 ? sumX / count : previousPixel;
+                        scaledData.bucketAvgY[nBuckets - 1] = count != 0 ? sumY / count : Double.NaN;
+                    }
+                    if (nBuckets == scaledData.bucketAvgX.length) {
+                        scaledData.bucketStart = Arrays.copyOf(scaledData.bucketStart, 2 * nBuckets + 1);
+                        scaledData.bucketAvgX = Arrays.copyOf(scaledData.bucketAvgX, 2 * nBuckets);
+                        scaledData.bucketAvgY = Arrays.copyOf(scaledData.bucketAvgY, 2 * nBuckets);
+                    }
+                    scaledData.bucketStart[nBuckets] = i;
+                    nBuckets++;
+                    previousPixel = currentPixel;
+                    sumX = 0;
+                    sumY = 0;
+                    count = 0;
+                }
+                if (!Double.isNaN(currentScaledY)) {
+                    sumX += currentScaledX;
+                    sumY += currentScaledY;
+                    count++;
+                }
+            }
+        }
+        scaledData.bucketAvgX[nBuckets - 1] = count != 0 ? sumX / count : previousPixel;
+        scaledData.bucketAvgY[nBuckets - 1] = count != 0 ? sumY / count : Double.NaN;
+        scaledData.bucketStart[nBuckets] = dataCount;
+
+        // Second pass: in each bucket, keep the point that forms the largest
+        // triangle with the point previously kept and the average of the
+        // next bucket. The first and last points are always kept.
+        scaledData.prepare(nBuckets + 2);
+        double ax = scaledX(xValues.getDouble(0));
+        double ay = scaledY(yValues.getDouble(0));
+        scaledData.scaledX[0] = ax;
+        scaledData.scaledY[0] = ay;
+        int cursor = 1;
+        for (int b = 0; b < nBuckets; b++) {
+            int from = Math.max(scaledData.bucketStart[b], 1);
+            int to = Math.min(scaledData.bucketStart[b + 1], dataCount - 1);
+            if (from >= to) {
+                continue;
+            }
+            if (Double.isNaN(scaledData.bucketAvgY[b])) {
+                // Only NaNs in the bucket: keep the gap in the line
+                ax = scaledData.bucketAvgX[b];
+                ay = Double.NaN;
+                scaledData.scaledX[cursor] = ax;
+                scaledData.scaledY[cursor] = ay;
+                cursor++;
+                continue;
+            }
+            double cx;
+            double cy;
+            if (b == nBuckets - 1) {
+                cx = scaledX(xValues.getDouble(dataCount - 1));
+                cy = scaledY(yValues.getDouble(dataCount - 1));
+            } else {
+                cx = scaledData.bucketAvgX[b + 1];
+                cy = scaledData.bucketAvgY[b + 1];
+            }
+            if (Double.isNaN(cy)) {
+                cx = scaledData.bucketAvgX[b];
+                cy = scaledData.bucketAvgY[b];
+            }
+            double maxArea = -1;
+            double selectedX = Double.NaN;
+            double selectedY = Double.NaN;
+            boolean restart = false;
+            for (int chunkStart = from; chunkStart < to && !restart; chunkStart += ScaledData.SCALING_CHUNK) {
+                checkCancelled();
+                int chunkEnd = Math.min(chunkStart + ScaledData.SCALING_CHUNK, to);
+                scaledX(xValues, chunkStart, chunkEnd, chunkX);
+                scaledY(yValues, chunkStart, chunkEnd, chunkY);
+                for (int i = 0; i < chunkEnd - chunkStart; i++) {
+                    double bx = chunkX[i];
+                    double by = chunkY[i];
+                    if (Double.isNaN(by)) {
+                        continue;
+                    }
+                    if (Double.isNaN(ay)) {
+                        // After a gap, restart the line from the first value
+                        selectedX = bx;
+                        selectedY = by;
+                        restart = true;
+                        break;
+                    }
+                    double area = Math.abs((ax - cx) * (by - ay) - (ax - bx) * (cy - ay));
+                    if (area > maxArea) {
+                        maxArea = area;
+                        selectedX = bx;
+                        selectedY = by;
+                    }
+                }
+            }
+            ax = selectedX;
+            ay = selectedY;
+            scaledData.scaledX[cursor] = ax;
+            scaledData.scaledY[cursor] = ay;
+            cursor++;
+        }
+        scaledData.scaledX[cursor] = scaledX(xValues.getDouble(dataCount - 1));
+        scaledData.scaledY[cursor] = scaledY(yValues.getDouble(dataCount - 1));
+        cursor++;
+        scaledData.end = cursor;
+        return scaledData;
+    }
+    
     /**
      *Empty function, designed to be implemented in sub-classes.
      * <p>Used on every value in a dataset.</p>
+     * <p>Always called on the drawing thread: if a subclass overrides it,
+     * the lines are not prepared in parallel.</p>
      * @param index
      * @param valueX
      * @param valueY
@@ -546,12 +953,12 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
     protected void processScaledValue(int index, double valueX, double valueY, double scaledX, double scaledY) {
     }
     
-    private static class ScaledData {
-        private double[] scaledX;
-        private double[] scaledY;
-        private int start;
-        private int end;
-    }
+    // Buffers reused from frame to frame
+    private final ScaledData reusedScaledData = new ScaledData();
+    // The path of the last line drawn alone, visible for testing
+    final Path2D.Double reusedPath = new Path2D.Double();
+    // Buffers for each line, when more lines are prepared in parallel
+    private final ScaledData.Lines lineBuffers = new ScaledData.Lines();
     
     /**
      * Draws an implicit line given the interpolation scheme and the x,y values.
@@ -562,38 +969,46 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      * @param interpolation the interpolation scheme
      */
     protected void drawValueLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation) {
-        ReductionScheme reductionScheme = ReductionScheme.NONE;
+        drawValueLine(xValues, yValues, interpolation, ReductionScheme.NONE);
+    }
+    
+    /**
+     * Draws an implicit line given the interpolation and reduction schemes
+     * and the x,y values. The function will scale the values.
+     * <p>
+     * The points are not sorted: the reduction combines consecutive
+     * points that fall on the same pixel column.
+     * 
+     * @param xValues the x values
+     * @param yValues the y values
+     * @param interpolation the interpolation scheme
+     * @param reduction the reduction scheme
+     */
+    protected void drawValueLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction) {
+        interpolation = renderedInterpolation(interpolation);
+        reduction = renderedReduction(reduction);
         
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 
         ScaledData scaledData;
         
-        switch (reductionScheme) {
+        switch (reduction) {
             default:
-                throw new IllegalArgumentException("Reduction scheme " + reductionScheme + " not supported");
+                throw new IllegalArgumentException("Reduction scheme " + reduction + " not supported");
             case NONE:
-                scaledData = scaleNoReduction(xValues, yValues);
+                scaledData = scaleNoReduction(reusedScaledData, xValues, yValues, 0);
                 break;
-        }
-        
-        // create path
-        Path2D path;
-        switch (interpolation) {
-            default:
-            case NEAREST_NEIGHBOR:
-                path = nearestNeighbour(scaledData);
-                break;
-            case LINEAR:
-                path = linearInterpolation(scaledData);
+            case FIRST_MAX_MIN_LAST:
+                scaledData = scaleFirstMaxMinLastReduction(reusedScaledData, xValues, yValues, 0);
                 break;
-            case CUBIC:
-                path = cubicInterpolation(scaledData);
+            case LARGEST_TRIANGLE_THREE_BUCKETS:
+                scaledData = scaleLargestTriangleThreeBucketsReduction(reusedScaledData, xValues, yValues, 0);
                 break;
         }
-
+        
         // Draw the line
-        g.draw(path);
+        drawPath(createPath(scaledData, interpolation, reusedPath), interpolation);
     }
     
     /**
@@ -606,11 +1021,145 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
      * @param reduction the reduction
      */
     protected void drawValueExplicitLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction) {
-        ScaledData scaledData;
+        interpolation = renderedInterpolation(interpolation);
+        reduction = renderedReduction(reduction);
         
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
         
+        // Draw the line
+        drawPath(createExplicitLine(xValues, yValues, interpolation, reduction, reusedScaledData, reusedPath), interpolation);
+    }
+    
+    /**
+     * Draws an explicit line for an indexed dataset give the interpolation
+     * and reduction schemes. The function will scale the values.
+     * <p>
+     * For FIRST_MAX_MIN_LAST, the reduction uses the index of the dataset
+     * and does not go through each point: {@link #processScaledValue(int, double, double, double, double) }
+     * is not called for the points that are reduced.
+     * 
+     * @param data the indexed data
+     * @param interpolation the interpolation
+     * @param reduction the reduction
+     */
+    protected void drawValueExplicitLine(IndexedPoint2DDataset data, InterpolationScheme interpolation, ReductionScheme reduction) {
+        interpolation = renderedInterpolation(interpolation);
+        reduction = renderedReduction(reduction);
+        
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        
+        // Draw the line
+        drawPath(createExplicitLine(data, interpolation, reduction, reusedScaledData, reusedPath), interpolation);
+    }
+    
+    /**
+     * Draws an explicit line for each dataset, each in its color, given
+     * the interpolation and reduction schemes. The lines are drawn in order.
+     * <p>
+     * Sorting, scaling and reducing the data is done for all the datasets
+     * in parallel, and only the drawing on the graphics context is serialized.
+     * If a subclass overrides {@link #processScaledValue(int, double, double, double, double) },
+     * the datasets are prepared one after the other on the drawing thread instead.
+     * 
+     * @param data the datasets
+     * @param colors the color for each dataset
+     * @param interpolation the interpolation
+     * @param reduction the reduction
+     */
+    protected void drawValueExplicitLines(final List<Point2DDataset> data, List<Color> colors, InterpolationScheme interpolation, ReductionScheme reduction) {
+        final InterpolationScheme lineInterpolation = renderedInterpolation(interpolation);
+        final ReductionScheme lineReduction = renderedReduction(reduction);
+        
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        
+        lineBuffers.prepare(data.size());
+        
+        List<Callable<Path2D>> tasks = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            final int datasetIndex = i;
+            tasks.add(new Callable<Path2D>() {
+
+                @Override
+                public Path2D call() {
+                    return createExplicitLine(data.get(datasetIndex), lineInterpolation, lineReduction,
+                            lineBuffers.scaledData(datasetIndex), lineBuffers.path(datasetIndex));
+                }
+            });
+        }
+        try {
+            List<Path2D> lines = prepareLines(tasks);
+
+            // Draw the lines
+            for (int i = 0; i < lines.size(); i++) {
+                g.setColor(colors.get(i));
+                drawPath(lines.get(i), lineInterpolation);
+            }
+        } finally {
+            lineBuffers.release(data.size());
+        }
+    }
+    
+    /**
+     * The number of points held by the buffers of the lines between frames.
+     */
+    int retainedLinePoints() {
+        return lineBuffers.retainedPoints();
+    }
+    
+    // Whether the class of the renderer overrides processScaledValue
+    private final boolean processesScaledValues = overridesProcessScaledValue(getClass());
+    
+    /**
+     * Whether a subclass overrides {@link #processScaledValue(int, double, double, double, double) },
+     * which is then only called on the drawing thread.
+     */
+    static boolean overridesProcessScaledValue(Class<?> type) {
+        for (Class<?> current = type; current != Graph2DRenderer.class; current = current.getSuperclass()) {
+            try {
+                current.getDeclaredMethod("processScaledValue", int.class, double.class, double.class, double.class, double.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // Not in this class, keep looking
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Prepares the lines in parallel, unless the renderer overrides
+     * {@link #processScaledValue(int, double, double, double, double) },
+     * in which case they are prepared one after the other on the drawing thread.
+     * 
+     * @param tasks the tasks that prepare the lines
+     * @return the lines, in order
+     */
+    <T> List<T> prepareLines(List<? extends Callable<T>> tasks) {
+        if (processesScaledValues) {
+            return Parallel.callAll(tasks);
+        }
+        return Parallel.invokeAll(tasks);
+    }
+    
+    private Path2D createExplicitLine(Point2DDataset data, InterpolationScheme interpolation, ReductionScheme reduction,
+            ScaledData lineData, Path2D.Double line) {
+        if (data instanceof IndexedPoint2DDataset) {
+            return createExplicitLine((IndexedPoint2DDataset) data, interpolation, reduction, lineData, line);
+        }
+        if (Point2DDatasets.isXSorted(data)) {
+            return createExplicitLine(data.getXValues(), data.getYValues(), interpolation, reduction, lineData, line);
+        }
+        SortedListView xValues = org.epics.util.array.ListNumbers.sortedView(data.getXValues());
+        ListNumber yValues = org.epics.util.array.ListNumbers.sortedView(data.getYValues(), xValues.getIndexes());
+        return createExplicitLine(xValues, yValues, interpolation, reduction, lineData, line);
+    }
+    
+    private Path2D createExplicitLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction,
+            ScaledData lineData, Path2D.Double line) {
+        ScaledData scaledData;
+        
         // Narrow the data
         int start = org.epics.util.array.ListNumbers.binarySearchValueOrLower(xValues, xPlotValueStart);
         int end = org.epics.util.array.ListNumbers.binarySearchValueOrHigher(xValues, xPlotValueEnd);
@@ -622,38 +1171,80 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             default:
                 throw new IllegalArgumentException("Reduction scheme " + reduction + " not supported");
             case NONE:
-                scaledData = scaleNoReduction(xValues, yValues, start);
+                scaledData = scaleNoReduction(lineData, xValues, yValues, start);
                 break;
             case FIRST_MAX_MIN_LAST:
-                scaledData = scaleFirstMaxMinLastReduction(xValues, yValues, start);
+                scaledData = scaleFirstMaxMinLastReduction(lineData, xValues, yValues, start);
+                break;
+            case LARGEST_TRIANGLE_THREE_BUCKETS:
+                scaledData = scaleLargestTriangleThreeBucketsReduction(lineData, xValues, yValues, start);
                 break;
         }
         
-        // create path
-        Path2D path;
+        return createPath(scaledData, interpolation, line);
+    }
+    
+    private Path2D createExplicitLine(IndexedPoint2DDataset data, InterpolationScheme interpolation, ReductionScheme reduction,
+            ScaledData lineData, Path2D.Double line) {
+        if (reduction != FIRST_MAX_MIN_LAST) {
+            return createExplicitLine(data.getXValues(), data.getYValues(), interpolation, reduction, lineData, line);
+        }
+        
+        // Narrow the data
+        int start = org.epics.util.array.ListNumbers.binarySearchValueOrLower(data.getXValues(), xPlotValueStart);
+        int end = org.epics.util.array.ListNumbers.binarySearchValueOrHigher(data.getXValues(), xPlotValueEnd);
+        
+        return createPath(scaleFirstMaxMinLastReduction(lineData, data, start, end + 1), interpolation, line);
+    }
+    
+    private void drawPath(Path2D line, InterpolationScheme interpolation) {
+        checkCancelled();
+        if (graphBuffer != null && interpolation != CUBIC && isPlainStroke(g)) {
+            graphBuffer.drawPolyline(line, g.getColor().getRGB(), g.getClipBounds());
+        } else {
+            g.draw(line);
+        }
+    }
+    
+    private static final BasicStroke PLAIN_STROKE = new BasicStroke();
+    
+    /**
+     * Whether the graphics context draws lines as plain opaque 1 pixel
+     * lines, so that they can be written directly on the buffer.
+     * 
+     * @param g the graphics context
+     * @return true if the line can be drawn on the buffer
+     */
+    static boolean isPlainStroke(Graphics2D g) {
+        return g.getColor().getAlpha() == 255 &&
+                g.getTransform().isIdentity() &&
+                PLAIN_STROKE.equals(g.getStroke()) &&
+                AlphaComposite.SrcOver.equals(g.getComposite()) &&
+                !RenderingHints.VALUE_ANTIALIAS_ON.equals(g.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+    }
+    
+    private static Path2D createPath(ScaledData scaledData, InterpolationScheme interpolation, Path2D.Double path) {
+        path.reset();
         switch (interpolation) {
             default:
             case NEAREST_NEIGHBOR:
-                path = nearestNeighbour(scaledData);
+                nearestNeighbour(scaledData, path);
                 break;
             case LINEAR:
-                path = linearInterpolation(scaledData);
+                linearInterpolation(scaledData, path);
                 break;
             case CUBIC:
-                path = cubicInterpolation(scaledData);
+                cubicInterpolation(scaledData, path);
                 break;
         }
-
-        // Draw the line
-        g.draw(path);
+        return path;
     }
 
-    private static Path2D.Double nearestNeighbour(ScaledData scaledData) {
+    private static void nearestNeighbour(ScaledData scaledData, Path2D.Double line) {
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double line = new Path2D.Double();
         line.moveTo(scaledX[start], scaledY[start]);
         for (int i = 1; i < end; i++) {
             double halfX = scaledX[i - 1] + (scaledX[i] - scaledX[i - 1]) / 2;
@@ -666,15 +1257,13 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             }
         }
         line.lineTo(scaledX[end - 1], scaledY[end - 1]);
-        return line;
     }
    
-    private static Path2D.Double linearInterpolation(ScaledData scaledData){
+    private static void linearInterpolation(ScaledData scaledData, Path2D.Double line){
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double line = new Path2D.Double();
         
         for (int i = start; i < end; i++) {
             // Do I have a current value?
@@ -697,15 +1286,13 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
                 }
             } 
         }
-        return line;
     }
     
-    private static Path2D.Double cubicInterpolation(ScaledData scaledData){
+    private static void cubicInterpolation(ScaledData scaledData, Path2D.Double path){
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double path = new Path2D.Double();
         for (int i = start; i < end; i++) {
             
             double y1;
@@ -818,13 +1405,12 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
                // Do nothing
              }
         }
-        return path;
     }
     
     private static final int MIN = 0;
     private static final int MAX = 1;
     
-    private static void drawHorizontalReferencesLabel(Graphics2D graphics, FontMetrics metrics, String text, int yCenter, int[] drawRange, int xRight, boolean updateMin, boolean centeredOnly) {
+    private static void drawHorizontalReferencesLabel(Graphics2D graphics, GraphBuffer graphBuffer, FontMetrics metrics, String text, int yCenter, int[] drawRange, int xRight, boolean updateMin, boolean centeredOnly) {
         // If the center is not in the range, don't draw anything
         if (drawRange[MAX] < yCenter || drawRange[MIN] > yCenter)
             return;
@@ -850,7 +1436,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             targetY = drawRange[MAX];
         }
 
-        Java2DStringUtilities.drawString(graphics, alignment, xRight, targetY, text);
+        Java2DStringUtilities.drawString(graphics, graphBuffer, alignment, xRight, targetY, text);
         
         if (updateMin) {
             drawRange[MAX] = targetY - metrics.getHeight();
@@ -859,7 +1445,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         }
     }
     
-    private static void drawVerticalReferenceLabel(Graphics2D graphics, FontMetrics metrics, String text, int xCenter, int[] drawRange, int yTop, boolean updateMin, boolean centeredOnly) {
+    private static void drawVerticalReferenceLabel(Graphics2D graphics, GraphBuffer graphBuffer, FontMetrics metrics, String text, int xCenter, int[] drawRange, int yTop, boolean updateMin, boolean centeredOnly) {
         // If the center is not in the range, don't draw anything
         if (drawRange[MAX] < xCenter || drawRange[MIN] > xCenter)
             return;
@@ -870,7 +1456,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         
         Java2DStringUtilities.Alignment alignment = Java2DStringUtilities.Alignment.TOP;
         int targetX = xCenter;
-        int halfWidth = metrics.stringWidth(text) / 2;
+        int halfWidth = TextCache.stringWidth(metrics, text) / 2;
         if (xCenter < drawRange[MIN] + halfWidth) {
             // Can't be drawn in the center
             if (centeredOnly)
@@ -885,7 +1471,7 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             targetX = drawRange[MAX];
         }
 
-        Java2DStringUtilities.drawString(graphics, alignment, targetX, yTop, text);
+        Java2DStringUtilities.drawString(graphics, graphBuffer, alignment, targetX, yTop, text);
         
         if (updateMin) {
             drawRange[MIN] = targetX + metrics.getHeight();
@@ -914,6 +1500,67 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
         return yValueScale.scaleValue(value, yPlotValueStart, yPlotValueEnd, yPlotCoordEnd, yPlotCoordStart);
     }
     
+    /**
+     * Finds the index of the x value whose position in the graph area
+     * is closest to the given pixel. Since the values are sorted,
+     * this is a binary search.
+     * 
+     * @param xValues the sorted x values
+     * @param pixelX the x position in the graph area
+     * @return the index of the closest value; -1 if there are no values
+     */
+    protected final int nearestXIndex(ListNumber xValues, double pixelX) {
+        if (xValues.size() == 0) {
+            return -1;
+        }
+        
+        // Find the first value at or after the pixel
+        int low = 0;
+        int high = xValues.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (scaledX(xValues.getDouble(mid)) < pixelX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        if (low == 0) {
+            return 0;
+        }
+        if (low == xValues.size()) {
+            return low - 1;
+        }
+        double diffBefore = pixelX - scaledX(xValues.getDouble(low - 1));
+        double diffAfter = scaledX(xValues.getDouble(low)) - pixelX;
+        return diffBefore <= diffAfter ? low - 1 : low;
+    }
+    
+    /**
+     * Scales a range of x values to the graph area.
+     * 
+     * @param values the x values
+     * @param from index of the first value to scale (inclusive)
+     * @param to index of the last value to scale (exclusive)
+     * @param scaledValues where the x positions are stored, starting from 0
+     */
+    protected final void scaledX(ListNumber values, int from, int to, double[] scaledValues) {
+        ValueScales.scaleValues(xValueScale, values, from, to, scaledValues, xPlotValueStart, xPlotValueEnd, xPlotCoordStart, xPlotCoordEnd);
+    }
+
+    /**
+     * Scales a range of y values to the graph area.
+     * 
+     * @param values the y values
+     * @param from index of the first value to scale (inclusive)
+     * @param to index of the last value to scale (exclusive)
+     * @param scaledValues where the y positions are stored, starting from 0
+     */
+    protected final void scaledY(ListNumber values, int from, int to, double[] scaledValues) {
+        ValueScales.scaleValues(yValueScale, values, from, to, scaledValues, yPlotValueStart, yPlotValueEnd, yPlotCoordEnd, yPlotCoordStart);
+    }
+    
     /**
      * Sets the clip area to the actual graph area
      * 
@@ -938,13 +1585,13 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             // Draw first and last label
             int[] drawRange = new int[] {yAreaCoordStart, yAreaCoordEnd - 1};
             int xRightLabel = (int) (xAreaCoordStart - yLabelMargin - 1);
-            drawHorizontalReferencesLabel(g, metrics, yReferenceLabels.get(0), (int) Math.floor(yTicks.getDouble(0)),
+            drawHorizontalReferencesLabel(g, graphBuffer, metrics, yReferenceLabels.get(0), (int) Math.floor(yTicks.getDouble(0)),
                 drawRange, xRightLabel, true, false);
-            drawHorizontalReferencesLabel(g, metrics, yReferenceLabels.get(yReferenceLabels.size() - 1), (int) Math.floor(yTicks.getDouble(yReferenceLabels.size() - 1)),
+            drawHorizontalReferencesLabel(g, graphBuffer, metrics, yReferenceLabels.get(yReferenceLabels.size() - 1), (int) Math.floor(yTicks.getDouble(yReferenceLabels.size() - 1)),
                 drawRange, xRightLabel, false, false);
             
             for (int i = 1; i < yReferenceLabels.size() - 1; i++) {
-                drawHorizontalReferencesLabel(g, metrics, yReferenceLabels.get(i), (int) Math.floor(yTicks.getDouble(i)),
+                drawHorizontalReferencesLabel(g, graphBuffer, metrics, yReferenceLabels.get(i), (int) Math.floor(yTicks.getDouble(i)),
                     drawRange, xRightLabel, true, false);
             }
         }
@@ -965,13 +1612,13 @@ public abstract class Graph2DRenderer<T extends Graph2DRendererUpdate> {
             // Draw first and last label
             int[] drawRange = new int[] {xAreaCoordStart, xAreaCoordEnd - 1};
             int yTop = (int) (yAreaCoordEnd + xLabelMargin);
-            drawVerticalReferenceLabel(g, metrics, xReferenceLabels.get(0), (int) Math.floor(xTicks.getDouble(0)),
+            drawVerticalReferenceLabel(g, graphBuffer, metrics, xReferenceLabels.get(0), (int) Math.floor(xTicks.getDouble(0)),
                 drawRange, yTop, true, false);
-            drawVerticalReferenceLabel(g, metrics, xReferenceLabels.get(xReferenceLabels.size() - 1), (int) Math.floor(xTicks.getDouble(xReferenceLabels.size() - 1)),
+            drawVerticalReferenceLabel(g, graphBuffer, metrics, xReferenceLabels.get(xReferenceLabels.size() - 1), (int) Math.floor(xTicks.getDouble(xReferenceLabels.size() - 1)),
                 drawRange, yTop, false, false);
             
             for (int i = 1; i < xReferenceLabels.size() - 1; i++) {
-                drawVerticalReferenceLabel(g, metrics, xReferenceLabels.get(i), (int) Math.floor(xTicks.getDouble(i)),
+                drawVerticalReferenceLabel(g, graphBuffer, metrics, xReferenceLabels.get(i), (int) Math.floor(xTicks.getDouble(i)),
                     drawRange, yTop, true, false);
             }
         }
@@ -6,6 +6,7 @@ package org.epics.graphene;
 
 import java.awt.Color;
 import java.awt.Font;
+import org.epics.util.time.TimeDuration;
 
 /**
  *
@@ -38,6 +39,8 @@ public class Graph2DRendererUpdate<T extends Graph2DRendererUpdate<T>> {
     private Integer xLabelMargin;
     private Integer yLabelMargin;
     
+    private TimeDuration renderBudget;
+    
     /**
      * Gets the update. Casts this appropriately.
      * For all subclasses, casts the objects as the subclass object (not Graph2DRendererUpdate).
@@ -376,6 +379,23 @@ public class Graph2DRendererUpdate<T extends Graph2DRendererUpdate<T>> {
         return self();
     }
     
+    /**
+     * Updates the time each frame should take to render. When the recent
+     * frames take longer, the renderer lowers the {@link RenderQuality},
+     * and it raises it back when there is enough headroom.
+     * A zero budget keeps the full quality.
+     * @param renderBudget the time for each frame
+     * @return this
+     */
+    public T renderBudget(TimeDuration renderBudget){
+        if (renderBudget.isNegative()){
+            throw new IllegalArgumentException("The render budget must be non-negative.");
+        }
+        
+        this.renderBudget = renderBudget;
+        return self();
+    }
+    
     /**
      * Gets height of image.
      * Ensured as a positive non-zero integer.
@@ -541,4 +561,86 @@ public class Graph2DRendererUpdate<T extends Graph2DRendererUpdate<T>> {
     public Integer getYLabelMargin(){
         return this.yLabelMargin;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Gets the time each frame should take to render.
+     * @return the render budget
+     */
+    public TimeDuration getRenderBudget(){
+        return this.renderBudget;
+    }
+
+    /**
+     * Copies the parameters set in the given update onto this one, so that
+     * applying this update has the same effect as applying the two in order.
+     *
+     * @param update the update to merge
+     */
+    void merge(T update) {
+        Graph2DRendererUpdate<T> other = update;
+        if (other.imageHeight != null) {
+            imageHeight = other.imageHeight;
+        }
+        if (other.imageWidth != null) {
+            imageWidth = other.imageWidth;
+        }
+        if (other.xAxisRange != null) {
+            xAxisRange = other.xAxisRange;
+        }
+        if (other.yAxisRange != null) {
+            yAxisRange = other.yAxisRange;
+        }
+        if (other.xValueScale != null) {
+            xValueScale = other.xValueScale;
+        }
+        if (other.yValueScale != null) {
+            yValueScale = other.yValueScale;
+        }
+        if (other.backgroundColor != null) {
+            backgroundColor = other.backgroundColor;
+        }
+        if (other.labelColor != null) {
+            labelColor = other.labelColor;
+        }
+        if (other.referenceLineColor != null) {
+            referenceLineColor = other.referenceLineColor;
+        }
+        if (other.labelFont != null) {
+            labelFont = other.labelFont;
+        }
+        if (other.bottomMargin != null) {
+            bottomMargin = other.bottomMargin;
+        }
+        if (other.topMargin != null) {
+            topMargin = other.topMargin;
+        }
+        if (other.leftMargin != null) {
+            leftMargin = other.leftMargin;
+        }
+        if (other.rightMargin != null) {
+            rightMargin = other.rightMargin;
+        }
+        if (other.bottomAreaMargin != null) {
+            bottomAreaMargin = other.bottomAreaMargin;
+        }
+        if (other.topAreaMargin != null) {
+            topAreaMargin = other.topAreaMargin;
+        }
+        if (other.leftAreaMargin != null) {
+            leftAreaMargin = other.leftAreaMargin;
+        }
+        if (other.rightAreaMargin != null) {
+            rightAreaMargin = other.rightAreaMargin;
+        }
+        if (other.xLabelMargin != null) {
+            xLabelMargin = other.xLabelMargin;
+        }
+        if (other.yLabelMargin != null) {
+            yLabelMargin = other.yLabelMargin;
+        }
+        if (other.renderBudget != null) {
+            renderBudget = other.renderBudget;
+        }
+    }
+
+}
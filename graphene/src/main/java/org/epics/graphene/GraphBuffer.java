@@ -8,12 +8,18 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.epics.util.array.ArrayInt;
 import org.epics.util.array.ListInt;
 import org.epics.util.array.ListNumber;
@@ -25,7 +31,9 @@ public class GraphBuffer {
     
     private final BufferedImage image;
     private final Graphics2D g;
+    // Only one of the two is set, depending on the type of the image
     private final byte[] pixels;
+    private final int[] intPixels;
     private final boolean hasAlphaChannel;
     private final int width, height;
     
@@ -33,30 +41,70 @@ public class GraphBuffer {
         this.image = image;
         width = image.getWidth();
         height = image.getHeight();
-        pixels = ((DataBufferByte)this.image.getRaster().getDataBuffer()).getData();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                pixels = ((DataBufferByte)this.image.getRaster().getDataBuffer()).getData();
+                intPixels = null;
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                pixels = null;
+                intPixels = ((DataBufferInt)this.image.getRaster().getDataBuffer()).getData();
+                break;
+            default:
+                throw new IllegalArgumentException("Image type " + image.getType() + " not supported");
+        }
         hasAlphaChannel = image.getAlphaRaster() != null;
         g = image.createGraphics();
     }
     
     public GraphBuffer(int width, int height) {
-        this(new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR));
+        this(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    }
+    
+    /**
+     * Creates a buffer with an image of the given type. The supported types
+     * are {@link BufferedImage#TYPE_3BYTE_BGR}, {@link BufferedImage#TYPE_4BYTE_ABGR},
+     * {@link BufferedImage#TYPE_INT_RGB} and {@link BufferedImage#TYPE_INT_ARGB}.
+     * With the int types each pixel is written with a single store, and Java2D
+     * uses its int raster loops.
+     * 
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param imageType the type of the image
+     */
+    public GraphBuffer(int width, int height, int imageType) {
+        this(new BufferedImage(width, height, imageType));
     }
     
     public GraphBuffer(Graph2DRenderer<?> renderer) {
         this(renderer.getImageWidth(), renderer.getImageHeight());
     }
     
+    /**
+     * Writes the color of the given pixel. The alpha of the color is used
+     * only if the image has an alpha channel.
+     * 
+     * @param x the pixel column
+     * @param y the pixel row
+     * @param color the color as ARGB
+     */
     public void setPixel(int x, int y, int color){
-        if(hasAlphaChannel){
-            pixels[y*image.getWidth()*4 + x*4 + 3] = (byte)(color >> 24 & 0xFF);
-            pixels[y*image.getWidth()*4 + x*4 + 0] = (byte)(color >> 0 & 0xFF);
-            pixels[y*image.getWidth()*4 + x*4 + 1] = (byte)(color >> 8 & 0xFF);
-            pixels[y*image.getWidth()*4 + x*4 + 2] = (byte)(color >> 16 & 0xFF);
+        if (intPixels != null) {
+            intPixels[y*width + x] = color;
+        } else if(hasAlphaChannel){
+            int offset = (y*width + x)*4;
+            pixels[offset + 0] = (byte)(color >> 24 & 0xFF);
+            pixels[offset + 1] = (byte)(color >> 0 & 0xFF);
+            pixels[offset + 2] = (byte)(color >> 8 & 0xFF);
+            pixels[offset + 3] = (byte)(color >> 16 & 0xFF);
         }
         else{
-            pixels[y*image.getWidth()*4 + x*4 + 0] = (byte)(color >> 0 & 0xFF);
-            pixels[y*image.getWidth()*4 + x*4 + 1] = (byte)(color >> 8 & 0xFF);
-            pixels[y*image.getWidth()*4 + x*4 + 2] = (byte)(color >> 16 & 0xFF);
+            int offset = (y*width + x)*3;
+            pixels[offset + 0] = (byte)(color >> 0 & 0xFF);
+            pixels[offset + 1] = (byte)(color >> 8 & 0xFF);
+            pixels[offset + 2] = (byte)(color >> 16 & 0xFF);
         }
     }
     
@@ -71,26 +119,213 @@ public class GraphBuffer {
     public void drawDataImage(int xStartPoint, int yStartPoint,
             int[] xPointToDataMap, int[] yPointToDataMap,
             Cell2DDataset data, NumberColorMapInstance colorMap) {
+        drawDataImage(xStartPoint, yStartPoint, xPointToDataMap, yPointToDataMap, data, colorMap, null);
+    }
+    
+    /**
+     * Draws the data image, checking the token before each row that
+     * needs to be colored.
+     * <p>
+     * Large images are split in horizontal stripes which are colored in
+     * parallel, if the dataset and the color map can be read by more than
+     * one thread at the same time: only the datasets backed by an array
+     * or a mapped file, and the color maps of {@link NumberColorMaps},
+     * are known to allow that.
+     * 
+     * @param xStartPoint the first pixel column
+     * @param yStartPoint the first pixel row
+     * @param xPointToDataMap the x index of the data for each pixel column
+     * @param yPointToDataMap the y index of the data for each pixel row
+     * @param data the data
+     * @param colorMap the color map
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     */
+    void drawDataImage(final int xStartPoint, final int yStartPoint,
+            final int[] xPointToDataMap, final int[] yPointToDataMap,
+            final Cell2DDataset data, final NumberColorMapInstance colorMap, final CancellationToken cancellationToken) {
+        int nStripes = Math.min(Parallel.PARALLELISM, xPointToDataMap.length * yPointToDataMap.length / MIN_STRIPE_PIXELS);
+        drawDataImage(xStartPoint, yStartPoint, xPointToDataMap, yPointToDataMap, data, colorMap, cancellationToken, nStripes);
+    }
+    
+    /**
+     * Draws the data image split in the given number of stripes.
+     */
+    void drawDataImage(final int xStartPoint, final int yStartPoint,
+            final int[] xPointToDataMap, final int[] yPointToDataMap,
+            final Cell2DDataset data, final NumberColorMapInstance colorMap, final CancellationToken cancellationToken,
+            int nStripes) {
+        // Integer values are colored with a table, unless the table
+        // would have more entries than the pixels to color
+        final int[] colorTable;
+        if (data instanceof Cell2DIntegerDataset
+                && ((Cell2DIntegerDataset) data).getLevels() <= xPointToDataMap.length * yPointToDataMap.length) {
+            colorTable = new int[((Cell2DIntegerDataset) data).getLevels()];
+            for (int value = 0; value < colorTable.length; value++) {
+                colorTable[value] = colorMap.colorFor(value);
+            }
+        } else {
+            colorTable = null;
+        }
+        
+        if (nStripes <= 1 || !readsConcurrently(data, colorTable == null ? colorMap : null)) {
+            drawDataRows(xStartPoint, yStartPoint, xPointToDataMap, yPointToDataMap, 0, yPointToDataMap.length,
+                    data, colorMap, colorTable, cancellationToken);
+            return;
+        }
+        
+        // Each stripe starts on a new data row, so that the rows repeated
+        // by tall cells are copied within the same stripe
+        List<Callable<Void>> tasks = new ArrayList<>(nStripes);
+        int stripeStart = 0;
+        for (int stripe = 1; stripe <= nStripes; stripe++) {
+            int stripeEnd = stripe == nStripes ? yPointToDataMap.length : yPointToDataMap.length * stripe / nStripes;
+            while (stripeEnd < yPointToDataMap.length && yPointToDataMap[stripeEnd] == yPointToDataMap[stripeEnd - 1]) {
+                stripeEnd++;
+            }
+            if (stripeEnd > stripeStart) {
+                final int from = stripeStart;
+                final int to = stripeEnd;
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        drawDataRows(xStartPoint, yStartPoint, xPointToDataMap, yPointToDataMap, from, to,
+                                data, colorMap, colorTable, cancellationToken);
+                        return null;
+                    }
+                });
+            }
+            stripeStart = Math.max(stripeStart, stripeEnd);
+        }
+        Parallel.invokeAll(tasks);
+    }
+    
+    /**
+     * Whether the dataset and the color map, if used, can be read by
+     * the threads of the stripes.
+     */
+    private static boolean readsConcurrently(Cell2DDataset data, NumberColorMapInstance colorMap) {
+        return data instanceof ConcurrentCell2DDataset
+                && (colorMap == null || colorMap instanceof NumberColorMapInstanceOptimized
+                || colorMap instanceof NumberColorMapGradient.ValueColorSchemeInstanceGradient);
+    }
+    
+    // Images smaller than two stripes are filled on the calling thread
+    private static final int MIN_STRIPE_PIXELS = 64 * 1024;
+    
+    // A row is copied at once if it has at most these many cells
+    // for each pixel column
+    static final int MAX_ROW_CELLS_PER_PIXEL = 4;
+    
+    /**
+     * Whether the cells of a row should be copied all at once, from the first
+     * to the last column displayed. An array can be copied for a few cells
+     * per pixel, while a dataset whose rows are not cheap to copy, like
+     * a mapped file, is copied only if no cell is skipped.
+     */
+    private static boolean copiesRows(Cell2DDataset data, int rowCells, int nPixels) {
+        if (data instanceof ConcurrentCell2DDataset && !((ConcurrentCell2DDataset) data).isRowCopyCheap()) {
+            return rowCells <= nPixels;
+        }
+        return data instanceof Cell2DRowDataset && rowCells <= MAX_ROW_CELLS_PER_PIXEL * nPixels;
+    }
+    
+    /**
+     * Reads the cell of each pixel column, once for each run of columns
+     * that display the same cell.
+     */
+    private static void readColumns(Cell2DDataset data, int yData, int[] xPointToDataMap, double[] rowValues, int[] rowIntValues) {
+        for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+            boolean sameCell = xOffset > 0 && xPointToDataMap[xOffset] == xPointToDataMap[xOffset - 1];
+            if (rowIntValues != null) {
+                rowIntValues[xOffset] = sameCell ? rowIntValues[xOffset - 1] : (int) data.getValue(xPointToDataMap[xOffset], yData);
+            } else {
+                rowValues[xOffset] = sameCell ? rowValues[xOffset - 1] : data.getValue(xPointToDataMap[xOffset], yData);
+            }
+        }
+    }
+    
+    private void drawDataRows(int xStartPoint, int yStartPoint,
+            int[] xPointToDataMap, int[] yPointToDataMap, int yOffsetStart, int yOffsetEnd,
+            Cell2DDataset data, NumberColorMapInstance colorMap, int[] colorTable, CancellationToken cancellationToken) {
+        if (xPointToDataMap.length == 0) {
+            return;
+        }
+        
+        // Each data row is read once. The cells from the first to the last
+        // column displayed are copied at once, if the dataset can copy
+        // a row and the columns skipped are not too many; otherwise only
+        // the cells of the columns displayed are read, one at a time.
+        int xDataMin = Integer.MAX_VALUE;
+        int xDataMax = Integer.MIN_VALUE;
+        for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+            xDataMin = Math.min(xDataMin, xPointToDataMap[xOffset]);
+            xDataMax = Math.max(xDataMax, xPointToDataMap[xOffset]);
+        }
+        boolean copyRows = copiesRows(data, xDataMax - xDataMin + 1, xPointToDataMap.length);
+        int rowLength = copyRows ? xDataMax - xDataMin + 1 : xPointToDataMap.length;
+        // The position of the value of each pixel column in the row
+        int[] xRowIndex = new int[xPointToDataMap.length];
+        for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+            xRowIndex[xOffset] = copyRows ? xPointToDataMap[xOffset] - xDataMin : xOffset;
+        }
+        double[] rowValues = null;
+        int[] rowIntValues = null;
+        if (colorTable != null) {
+            rowIntValues = new int[rowLength];
+        } else {
+            rowValues = new double[rowLength];
+        }
         int previousYData = -1;
-        for (int yOffset = 0; yOffset < yPointToDataMap.length; yOffset++) {
+        for (int yOffset = yOffsetStart; yOffset < yOffsetEnd; yOffset++) {
             int yData = yPointToDataMap[yOffset];
             if (yData != previousYData) {
-                for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
-                    int xData = xPointToDataMap[xOffset];
-                    int rgb = colorMap.colorFor(data.getValue(xData, yData));
-                    if(hasAlphaChannel){
-                        pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 0] = (byte)(rgb >> 24 & 0xFF);
-                        pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 1] = (byte)(rgb & 0xFF);
-                        pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 2] = (byte)(rgb >> 8 & 0xFF);
-                        pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 3] = (byte)(rgb >> 16 & 0xFF);
+                if (cancellationToken != null) {
+                    cancellationToken.checkCancelled();
+                }
+                if (copyRows && colorTable != null) {
+                    ((Cell2DIntegerDataset) data).getIntRow(yData, xDataMin, xDataMax + 1, rowIntValues);
+                } else if (copyRows) {
+                    ((Cell2DRowDataset) data).getRow(yData, xDataMin, xDataMax + 1, rowValues);
+                } else {
+                    readColumns(data, yData, xPointToDataMap, rowValues, rowIntValues);
+                }
+                if (intPixels != null) {
+                    int rowOffset = (yStartPoint + yOffset)*width + xStartPoint;
+                    if (colorTable != null) {
+                        for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+                            intPixels[rowOffset + xOffset] = colorTable[rowIntValues[xRowIndex[xOffset]]];
+                        }
                     } else {
-                        pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 0] = (byte)(rgb & 0xFF);
-                        pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 1] = (byte)((rgb >> 8 & 0xFF) );
-                        pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 2] = (byte)((rgb >> 16 & 0xFF));
+                        for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+                            intPixels[rowOffset + xOffset] = colorMap.colorFor(rowValues[xRowIndex[xOffset]]);
+                        }
+                    }
+                } else {
+                    for (int xOffset = 0; xOffset < xPointToDataMap.length; xOffset++) {
+                        int rgb;
+                        if (colorTable != null) {
+                            rgb = colorTable[rowIntValues[xRowIndex[xOffset]]];
+                        } else {
+                            rgb = colorMap.colorFor(rowValues[xRowIndex[xOffset]]);
+                        }
+                        if(hasAlphaChannel){
+                            pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 0] = (byte)(rgb >> 24 & 0xFF);
+                            pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 1] = (byte)(rgb & 0xFF);
+                            pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 2] = (byte)(rgb >> 8 & 0xFF);
+                            pixels[(yStartPoint + yOffset)*width*4 + 4*(xStartPoint + xOffset) + 3] = (byte)(rgb >> 16 & 0xFF);
+                        } else {
+                            pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 0] = (byte)(rgb & 0xFF);
+                            pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 1] = (byte)((rgb >> 8 & 0xFF) );
+                            pixels[(yStartPoint + yOffset)*width*3 + 3*(xStartPoint + xOffset) + 2] = (byte)((rgb >> 16 & 0xFF));
+                        }
                     }
                 }
             } else {
-                if (hasAlphaChannel) {
+                if (intPixels != null) {
+                    System.arraycopy(intPixels, (yStartPoint + yOffset - 1)*width + xStartPoint,
+                            intPixels, (yStartPoint + yOffset)*width + xStartPoint, xPointToDataMap.length);
+                } else if (hasAlphaChannel) {
                     System.arraycopy(pixels, (yStartPoint + yOffset - 1)*width*4 + 4*xStartPoint,
                             pixels, (yStartPoint + yOffset)*width*4 + 4*xStartPoint, xPointToDataMap.length*4);
                 } else {
@@ -102,6 +337,320 @@ public class GraphBuffer {
         }
     }
     
+    /**
+     * Draws the given polyline directly on the pixel buffer, with a 1 pixel
+     * wide line and no antialiasing. This bypasses the Java2D stroking,
+     * which is the most expensive part of drawing lines with many points.
+     * <p>
+     * The path can only contain straight segments; segments with
+     * NaN or infinite coordinates are skipped. The ends of each segment are
+     * the pixels that contain them, meaning that coordinates are truncated
+     * and not rounded, and the pixels in between are chosen by Bresenham's
+     * algorithm: one pixel for each step along the longer side. This is
+     * close to, but not always the same as, the Java2D stroke. Pixels
+     * outside the clip are not painted.
+     * 
+     * @param line a path with straight segments only
+     * @param rgb the color of the line
+     * @param clip the area to draw on; null for the whole image
+     */
+    void drawPolyline(Path2D line, int rgb, Rectangle clip) {
+        int clipLeft = 0;
+        int clipTop = 0;
+        int clipRight = width;
+        int clipBottom = height;
+        if (clip != null) {
+            clipLeft = Math.max(clipLeft, clip.x);
+            clipTop = Math.max(clipTop, clip.y);
+            clipRight = Math.min(clipRight, clip.x + clip.width);
+            clipBottom = Math.min(clipBottom, clip.y + clip.height);
+        }
+        if (clipLeft >= clipRight || clipTop >= clipBottom) {
+            return;
+        }
+        
+        double[] coords = new double[6];
+        double startX = java.lang.Double.NaN;
+        double startY = java.lang.Double.NaN;
+        double lastX = java.lang.Double.NaN;
+        double lastY = java.lang.Double.NaN;
+        for (PathIterator iterator = line.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    startX = coords[0];
+                    startY = coords[1];
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    drawSegment(lastX, lastY, coords[0], coords[1], rgb, clipLeft, clipTop, clipRight, clipBottom);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    drawSegment(lastX, lastY, startX, startY, rgb, clipLeft, clipTop, clipRight, clipBottom);
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Only straight segments can be drawn on the buffer");
+            }
+        }
+    }
+    
+    private void drawSegment(double x0, double y0, double x1, double y1, int rgb,
+            int clipLeft, int clipTop, int clipRight, int clipBottom) {
+        if (!isFinite(x0) || !isFinite(y0) || !isFinite(x1) || !isFinite(y1)) {
+            return;
+        }
+        
+        // Liang-Barsky: clip the segment so that the integer stepping
+        // only goes through the visible pixels
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double[] segmentBounds = {0, 1};
+        if (!clipEdge(-dx, x0 - clipLeft, segmentBounds) || !clipEdge(dx, clipRight - x0, segmentBounds) ||
+                !clipEdge(-dy, y0 - clipTop, segmentBounds) || !clipEdge(dy, clipBottom - y0, segmentBounds)) {
+            return;
+        }
+        double tStart = segmentBounds[0];
+        double tEnd = segmentBounds[1];
+        
+        int px = (int) Math.floor(x0 + tStart * dx);
+        int py = (int) Math.floor(y0 + tStart * dy);
+        int pxEnd = (int) Math.floor(x0 + tEnd * dx);
+        int pyEnd = (int) Math.floor(y0 + tEnd * dy);
+        
+        // Bresenham
+        int stepsX = Math.abs(pxEnd - px);
+        int stepsY = Math.abs(pyEnd - py);
+        int incX = px < pxEnd ? 1 : -1;
+        int incY = py < pyEnd ? 1 : -1;
+        int error = stepsX - stepsY;
+        while (true) {
+            if (px >= clipLeft && px < clipRight && py >= clipTop && py < clipBottom) {
+                writePixel(px, py, rgb);
+            }
+            if (px == pxEnd && py == pyEnd) {
+                return;
+            }
+            int error2 = 2 * error;
+            if (error2 > -stepsY) {
+                error -= stepsY;
+                px += incX;
+            }
+            if (error2 < stepsX) {
+                error += stepsX;
+                py += incY;
+            }
+        }
+    }
+    
+    private static boolean isFinite(double value) {
+        return !java.lang.Double.isNaN(value) && !java.lang.Double.isInfinite(value);
+    }
+    
+    private static boolean clipEdge(double p, double q, double[] bounds) {
+        if (p == 0) {
+            return q >= 0;
+        }
+        double t = q / p;
+        if (p < 0) {
+            bounds[0] = Math.max(bounds[0], t);
+        } else {
+            bounds[1] = Math.min(bounds[1], t);
+        }
+        return bounds[0] <= bounds[1];
+    }
+    
+    private void writePixel(int x, int y, int rgb) {
+        if (intPixels != null) {
+            intPixels[y * width + x] = 0xFF000000 | rgb;
+        } else if (hasAlphaChannel) {
+            int offset = (y * width + x) * 4;
+            pixels[offset] = (byte) 0xFF;
+            pixels[offset + 1] = (byte) (rgb & 0xFF);
+            pixels[offset + 2] = (byte) (rgb >> 8 & 0xFF);
+            pixels[offset + 3] = (byte) (rgb >> 16 & 0xFF);
+        } else {
+            int offset = (y * width + x) * 3;
+            pixels[offset] = (byte) (rgb & 0xFF);
+            pixels[offset + 1] = (byte) (rgb >> 8 & 0xFF);
+            pixels[offset + 2] = (byte) (rgb >> 16 & 0xFF);
+        }
+    }
+    
+    /**
+     * Blends the color on the opaque buffer using the given coverage mask,
+     * with the same arithmetic Java2D uses for antialiased text.
+     * 
+     * @param coverage the coverage of each pixel, row by row
+     * @param x the left side of the mask
+     * @param y the top side of the mask
+     * @param maskWidth the width of the mask
+     * @param maskHeight the height of the mask
+     * @param rgb the color
+     * @param clip the area where pixels can be written; null for the whole buffer
+     */
+    void drawMask(byte[] coverage, int x, int y, int maskWidth, int maskHeight, int rgb, Rectangle clip) {
+        if (hasAlphaChannel) {
+            throw new UnsupportedOperationException("Masks can only be drawn on opaque buffers");
+        }
+        if (intPixels != null) {
+            drawIntMask(coverage, x, y, maskWidth, maskHeight, rgb, clip);
+            return;
+        }
+        int xMin = Math.max(x, 0);
+        int yMin = Math.max(y, 0);
+        int xMax = Math.min(x + maskWidth, width);
+        int yMax = Math.min(y + maskHeight, height);
+        if (clip != null) {
+            xMin = Math.max(xMin, clip.x);
+            yMin = Math.max(yMin, clip.y);
+            xMax = Math.min(xMax, clip.x + clip.width);
+            yMax = Math.min(yMax, clip.y + clip.height);
+        }
+        
+        int blue = rgb & 0xFF;
+        int green = rgb >> 8 & 0xFF;
+        int red = rgb >> 16 & 0xFF;
+        for (int row = yMin; row < yMax; row++) {
+            int maskOffset = (row - y) * maskWidth - x;
+            for (int column = xMin; column < xMax; column++) {
+                int alpha = coverage[maskOffset + column] & 0xFF;
+                if (alpha != 0) {
+                    int offset = (row * width + column) * 3;
+                    if (alpha == 0xFF) {
+                        pixels[offset] = (byte) blue;
+                        pixels[offset + 1] = (byte) green;
+                        pixels[offset + 2] = (byte) red;
+                    } else {
+                        pixels[offset] = (byte) blend(blue, pixels[offset] & 0xFF, alpha);
+                        pixels[offset + 1] = (byte) blend(green, pixels[offset + 1] & 0xFF, alpha);
+                        pixels[offset + 2] = (byte) blend(red, pixels[offset + 2] & 0xFF, alpha);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void drawIntMask(byte[] coverage, int x, int y, int maskWidth, int maskHeight, int rgb, Rectangle clip) {
+        int xMin = Math.max(x, 0);
+        int yMin = Math.max(y, 0);
+        int xMax = Math.min(x + maskWidth, width);
+        int yMax = Math.min(y + maskHeight, height);
+        if (clip != null) {
+            xMin = Math.max(xMin, clip.x);
+            yMin = Math.max(yMin, clip.y);
+            xMax = Math.min(xMax, clip.x + clip.width);
+            yMax = Math.min(yMax, clip.y + clip.height);
+        }
+        
+        int blue = rgb & 0xFF;
+        int green = rgb >> 8 & 0xFF;
+        int red = rgb >> 16 & 0xFF;
+        for (int row = yMin; row < yMax; row++) {
+            int maskOffset = (row - y) * maskWidth - x;
+            for (int column = xMin; column < xMax; column++) {
+                int alpha = coverage[maskOffset + column] & 0xFF;
+                if (alpha != 0) {
+                    int offset = row * width + column;
+                    if (alpha == 0xFF) {
+                        intPixels[offset] = 0xFF000000 | rgb;
+                    } else {
+                        int destination = intPixels[offset];
+                        intPixels[offset] = 0xFF000000
+                                | blend(red, destination >> 16 & 0xFF, alpha) << 16
+                                | blend(green, destination >> 8 & 0xFF, alpha) << 8
+                                | blend(blue, destination & 0xFF, alpha);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static int blend(int source, int destination, int alpha) {
+        return (source * alpha + 127) / 255 + (destination * (255 - alpha) + 127) / 255;
+    }
+    
+    /**
+     * Copies the content of the buffer, so that it can be restored
+     * with {@link #restorePixels(java.lang.Object) }. The copy is a byte
+     * or an int array, depending on the type of the image.
+     * 
+     * @param copy the array to copy into; if null or of the wrong size or type a new one is created
+     * @return the copy
+     */
+    Object copyPixels(Object copy) {
+        if (intPixels != null) {
+            if (!(copy instanceof int[]) || ((int[]) copy).length != intPixels.length) {
+                copy = new int[intPixels.length];
+            }
+            System.arraycopy(intPixels, 0, copy, 0, intPixels.length);
+        } else {
+            if (!(copy instanceof byte[]) || ((byte[]) copy).length != pixels.length) {
+                copy = new byte[pixels.length];
+            }
+            System.arraycopy(pixels, 0, copy, 0, pixels.length);
+        }
+        return copy;
+    }
+    
+    /**
+     * Restores the content of the buffer from a copy taken with
+     * {@link #copyPixels(java.lang.Object) } on a buffer of the same size and type.
+     * 
+     * @param copy the copy of the buffer
+     */
+    void restorePixels(Object copy) {
+        if (intPixels != null) {
+            if (!(copy instanceof int[]) || ((int[]) copy).length != intPixels.length) {
+                throw new IllegalArgumentException("Copy does not match the buffer size");
+            }
+            System.arraycopy(copy, 0, intPixels, 0, intPixels.length);
+        } else {
+            if (!(copy instanceof byte[]) || ((byte[]) copy).length != pixels.length) {
+                throw new IllegalArgumentException("Copy does not match the buffer size");
+            }
+            System.arraycopy(copy, 0, pixels, 0, pixels.length);
+        }
+    }
+    
+    /**
+     * Moves the pixels of the given area to the left, as a scrolling plot
+     * does when new data arrives. The columns exposed on the right
+     * keep their previous content and are expected to be redrawn.
+     * 
+     * @param x the left side of the area
+     * @param y the top side of the area
+     * @param areaWidth the width of the area
+     * @param areaHeight the height of the area
+     * @param shift the number of pixels to move the area by
+     */
+    void shiftLeft(int x, int y, int areaWidth, int areaHeight, int shift) {
+        if (x < 0 || y < 0 || x + areaWidth > width || y + areaHeight > height) {
+            throw new IllegalArgumentException("Area must be within the buffer");
+        }
+        if (shift <= 0 || shift >= areaWidth) {
+            return;
+        }
+        
+        if (intPixels != null) {
+            for (int row = y; row < y + areaHeight; row++) {
+                int offset = row * width + x;
+                System.arraycopy(intPixels, offset + shift, intPixels, offset, areaWidth - shift);
+            }
+            return;
+        }
+        
+        int pixelSize = hasAlphaChannel ? 4 : 3;
+        int length = (areaWidth - shift) * pixelSize;
+        for (int row = y; row < y + areaHeight; row++) {
+            int offset = (row * width + x) * pixelSize;
+            System.arraycopy(pixels, offset + shift * pixelSize, pixels, offset, length);
+        }
+    }
+    
     private double xLeftValue;
     private double xRightValue;
     private double xLeftPixel;
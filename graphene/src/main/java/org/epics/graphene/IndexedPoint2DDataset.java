@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * A dataset of 2D points, sorted by x, that can quickly answer the minimum
+ * and maximum of the y values on a range of points.
+ * <p>
+ * The index is built once when the dataset is created, so that the data
+ * reduction of a line graph can be performed by querying each pixel column
+ * instead of going through each point.
+ *
+ * @author carcassi
+ */
+public interface IndexedPoint2DDataset extends Point2DDataset {
+    
+    /**
+     * The minimum of the y values between the given indexes, ignoring NaN.
+     * 
+     * @param fromIndex the first index (inclusive)
+     * @param toIndex the last index (exclusive)
+     * @return the minimum; NaN if no actual value is in the range
+     */
+    public double getYMinimum(int fromIndex, int toIndex);
+    
+    /**
+     * The maximum of the y values between the given indexes, ignoring NaN.
+     * 
+     * @param fromIndex the first index (inclusive)
+     * @param toIndex the last index (exclusive)
+     * @return the maximum; NaN if no actual value is in the range
+     */
+    public double getYMaximum(int fromIndex, int toIndex);
+    
+}
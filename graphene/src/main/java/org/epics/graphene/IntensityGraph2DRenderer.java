@@ -12,8 +12,6 @@ import java.util.Arrays;
 import java.util.List;
 import org.epics.util.array.ListNumbers;
 import org.epics.util.array.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 import org.epics.util.stats.Ranges;
 
 /**
@@ -117,6 +115,12 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
     private Range xIndexSelectionRange;
     private Range yIndexSelectionRange;
     
+    // Graph area of the last frame: it's drawn again only if the layout,
+    // the legend space or the colors change
+    private List<Object> graphAreaKey;
+    private GraphAreaData graphArea;
+    private Object graphAreaLayer;
+    
     /**
      *Draws an intensity graph in the given graphics context, using the given data.
      * All drawing is done within the bounds specified either at initialization or at update.
@@ -125,13 +129,33 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
      * @param data can not be null
      */
     public void draw(GraphBuffer graphBuffer, Cell2DDataset data) {
+        draw(graphBuffer, data, null);
+    }
+    
+    /**
+     * Draws an intensity graph in the given buffer, stopping as soon as
+     * the token is cancelled. The color of each row of the image is
+     * calculated only if the draw was not cancelled.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data can not be null
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     * @throws java.util.concurrent.CancellationException if the token was cancelled
+     */
+    public void draw(GraphBuffer graphBuffer, Cell2DDataset data, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        try {
+            drawCancellable(graphBuffer, data);
+        } finally {
+            this.cancellationToken = null;
+        }
+    }
+    
+    private void drawCancellable(GraphBuffer graphBuffer, Cell2DDataset data) {
+        long frameStart = System.nanoTime();
         //Use super class to draw basics of graph.
         this.g = graphBuffer.getGraphicsContext();
-        GraphAreaData area = new GraphAreaData();
-        BufferedImage image = graphBuffer.getImage();
         calculateRanges(data.getXRange(), data.getXRange(), data.getYRange(), data.getYRange());
-        area.setGraphBuffer(graphBuffer);
-        graphBuffer.drawBackground(backgroundColor);
         calculateZRange(data.getStatistics(), data.getDisplayRange());
         
         // TODO: the calculation for leaving space for the legend is somewhat hacked
@@ -144,13 +168,32 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
         } else {
             areaRightPixel = getImageWidth() - 1 - rightMargin;
         }
-        area.setGraphArea(leftMargin, getImageHeight() - 1 - bottomMargin, areaRightPixel, topMargin);
-        area.setGraphPadding(leftAreaMargin, bottomAreaMargin, rightAreaMargin, topAreaMargin);
-        area.setLabelMargin(xLabelMargin, yLabelMargin);
-        area.setRanges(getXPlotRange(), xValueScale, getYPlotRange(), yValueScale);
-        area.prepareLabels(labelFont, labelColor);
-        area.prepareGraphArea(true, referenceLineColor);
-        area.drawGraphArea();
+        List<Object> key = Arrays.<Object>asList(layoutProperties(), areaRightPixel,
+                graphBuffer.getImage().getType(), graphBuffer.getImage().getWidth(), graphBuffer.getImage().getHeight(),
+                backgroundColor, labelColor, referenceLineColor);
+        GraphAreaData area;
+        if (key.equals(graphAreaKey)) {
+            // Same labels: only the scales of the new buffer need to be set
+            area = graphArea;
+            area.setGraphBuffer(graphBuffer);
+            area.prepareGraphArea(true, referenceLineColor);
+            graphBuffer.restorePixels(graphAreaLayer);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        } else {
+            area = new GraphAreaData();
+            area.setGraphBuffer(graphBuffer);
+            graphBuffer.drawBackground(backgroundColor);
+            area.setGraphArea(leftMargin, getImageHeight() - 1 - bottomMargin, areaRightPixel, topMargin);
+            area.setGraphPadding(leftAreaMargin, bottomAreaMargin, rightAreaMargin, topAreaMargin);
+            area.setLabelMargin(xLabelMargin, yLabelMargin);
+            area.setRanges(getXPlotRange(), xValueScale, getYPlotRange(), yValueScale);
+            area.prepareLabels(labelFont, labelColor);
+            area.prepareGraphArea(true, referenceLineColor);
+            area.drawGraphArea();
+            graphAreaLayer = graphBuffer.copyPixels(graphAreaLayer);
+            graphArea = area;
+            graphAreaKey = key;
+        }
         
         /*Wait to calculate the coordinates of the legend labels till after yPlotCoordRange is calculated.
         Allows for the use of yPlotCoordEnd/start in calculations.*/
@@ -194,16 +237,17 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
         int endY = area.graphBottom;//(int) Math.ceil(yPlotCoordEnd);
         PointToDataMap xPointToDataMap = createXPointToDataMap(startX, endX, graphBuffer, data.getXBoundaries()); //createPointToDataMap(startX, endX+1, getXPlotRange(), data.getXBoundaries(), false);
         PointToDataMap yPointToDataMap = createYPointToDataMap(startY, endY, graphBuffer, data.getYBoundaries());//getYPlotRange(), data.getYBoundaries(), true);
-        graphBuffer.drawDataImage(xPointToDataMap.startPoint, yPointToDataMap.startPoint, xPointToDataMap.pointToDataMap, yPointToDataMap.pointToDataMap, data, colorMapInstance);
+        graphBuffer.drawDataImage(xPointToDataMap.startPoint, yPointToDataMap.startPoint, xPointToDataMap.pointToDataMap, yPointToDataMap.pointToDataMap, data, colorMapInstance, cancellationToken);
+        checkCancelled();
         
-        if(drawLegend && legendWidth>0){
+        if(drawLegend && legendWidth>0 && isDrawingDecorations()){
             /*dataList is made by splitting the aggregated range of the z(color) data into a list of the
             same length as the the height of the graph in pixels.*/
             ListNumber dataList = ListNumbers.linearListFromRange(zPlotRange.getMinimum().doubleValue(),zPlotRange.getMaximum().doubleValue(),(int)yHeightTotal);
             //legendData is a Cell2DDataset representation of dataList.
             Cell2DDataset legendData = Cell2DDatasets.linearRange(dataList, Ranges.range(0, 1), 1, Ranges.range(0, (int)yHeightTotal), (int)yHeightTotal);
             int xLegendStart = getImageWidth() - originalRightMargin - zLabelMaxWidth - zLabelMargin - legendWidth;
-            drawRectanglesArray(g, legendData, xLegendStart, yEndGraph, legendWidth, yHeightTotal, 1, legendWidth, image);
+            drawRectanglesArray(g, legendData, xLegendStart, yEndGraph, legendWidth, yHeightTotal, 1, legendWidth, graphBuffer);
             graphBuffer.drawLeftLabels(zReferenceLabels, zReferenceCoords, labelColor, labelFont, area.areaBottom, area.areaTop, getImageWidth() - originalRightMargin - 1);
         }
         
@@ -253,6 +297,8 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
             graphBuffer.getGraphicsContext().drawRect(selectionLeftPixel, selectionTopPixel,
                     selectionRightPixel - selectionLeftPixel, selectionBottomPixel - selectionTopPixel);
         }
+        
+        frameRendered(System.nanoTime() - frameStart);
     }
     
     @Override
@@ -352,10 +398,8 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
     }
     
     private void drawRectanglesArray(Graphics2D g, Cell2DDataset data, double xStartGraph, double yEndGraph,
-            double xWidthTotal, double yHeightTotal, double cellHeight, double cellWidth, BufferedImage image){
+            double xWidthTotal, double yHeightTotal, double cellHeight, double cellWidth, GraphBuffer graphBuffer){
         
-        byte pixels[] = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
-        boolean hasAlphaChannel = image.getAlphaRaster() != null;
         int countY = 0;
         int countX;
         double yPosition = yEndGraph-yHeightTotal;
@@ -368,17 +412,7 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
                     int rgb = colorMapInstance.colorFor(data.getValue((int)countX, data.getYCount()-1-(int)countY));
                     for(int w = 0; w < (int)cellWidth + 1; w++){
                         for(int h = 0; h < (int)cellHeight + 1; h++){
-                            if(hasAlphaChannel){
-                            pixels[(yPositionInt+h)*getImageWidth()*4 + 4*xPositionInt + 0] = (byte)(rgb >> 24 & 0xFF);
-                            pixels[(yPositionInt+h)*getImageWidth()*4 + 4*xPositionInt + 1] = (byte)(rgb & 0xFF);
-                            pixels[(yPositionInt+h)*getImageWidth()*4 + 4*xPositionInt + 2] = (byte)(rgb >> 8 & 0xFF);
-                            pixels[(yPositionInt+h)*getImageWidth()*4 + 4*xPositionInt + 3] = (byte)(rgb >> 16 & 0xFF);
-                            }
-                            else{
-                            pixels[(yPositionInt+h)*getImageWidth()*3 + 3*(xPositionInt+w) + 0] = (byte)(rgb & 0xFF);
-                            pixels[(yPositionInt+h)*getImageWidth()*3 + 3*(xPositionInt+w) + 1] = (byte)((rgb >> 8 & 0xFF) );
-                            pixels[(yPositionInt+h)*getImageWidth()*3 + 3*(xPositionInt+w) + 2] = (byte)((rgb >> 16 & 0xFF));
-                            }
+                            graphBuffer.setPixel(xPositionInt + w, yPositionInt + h, rgb);
                         }
                     }
                     xPosition = xPosition + cellWidth;
@@ -403,6 +437,12 @@ public class IntensityGraph2DRenderer extends Graph2DRenderer<IntensityGraph2DRe
     protected void calculateZRange(Range zDataRange, Range displayRange) {
         zPlotRange = zAxisRange.axisRange(zDataRange, displayRange);
     }
+
+    @Override
+    void resetAxisRanges() {
+        super.resetAxisRanges();
+        zAxisRange = zAxisRange.getAxisRange().createInstance();
+    }
     /**
      *Sets private variables to account for the space required to draw in labels for the legend.
      * Only called if drawLegend is true.
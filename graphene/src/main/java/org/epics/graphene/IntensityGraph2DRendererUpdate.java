@@ -178,4 +178,30 @@ public class IntensityGraph2DRendererUpdate extends Graph2DRendererUpdate<Intens
         return yPixelSelectionRange;
     }
     
+    @Override
+    void merge(IntensityGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.zLabelMargin != null) {
+            zLabelMargin = update.zLabelMargin;
+        }
+        if (update.legendWidth != null) {
+            legendWidth = update.legendWidth;
+        }
+        if (update.graphAreaToLegendMargin != null) {
+            graphAreaToLegendMargin = update.graphAreaToLegendMargin;
+        }
+        if (update.drawLegend != null) {
+            drawLegend = update.drawLegend;
+        }
+        if (update.colorMap != null) {
+            colorMap = update.colorMap;
+        }
+        if (update.xPixelSelectionRange != null) {
+            xPixelSelectionRange = update.xPixelSelectionRange;
+        }
+        if (update.yPixelSelectionRange != null) {
+            yPixelSelectionRange = update.yPixelSelectionRange;
+        }
+    }
+
 }
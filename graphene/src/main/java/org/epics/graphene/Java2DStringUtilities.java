@@ -4,9 +4,12 @@
  */
 package org.epics.graphene;
 
-import java.awt.FontMetrics;
+import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 /**
  *
@@ -70,7 +73,41 @@ public class Java2DStringUtilities {
      * @param text string to be drawn.
      */
     public static void drawString(Graphics2D g, Alignment alignment, int x, int y, String text) {
-        Rectangle2D stringBounds = g.getFontMetrics().getStringBounds(text, g);
-        g.drawString(text, alignment.stringRightSide(stringBounds, x), alignment.stringBaseline(stringBounds, y));
+        drawString(g, null, alignment, x, y, text);
+    }
+    
+    /**
+     * Draws a string using the given alignment. The measures of the string
+     * are cached. If the graphics draws on the given buffer with an opaque
+     * color and no transformation, the cached glyphs are written directly
+     * in the buffer.
+     * 
+     * @param g the graphics to draw on
+     * @param graphBuffer the buffer behind the graphics; can be null
+     * @param alignment how the string is placed with respect to x and y
+     * @param x the x-coordinate the alignment refers to
+     * @param y the y-coordinate the alignment refers to
+     * @param text string to be drawn
+     */
+    static void drawString(Graphics2D g, GraphBuffer graphBuffer, Alignment alignment, int x, int y, String text) {
+        TextCache.Text cachedText = TextCache.text(g.getFontMetrics(), text);
+        Rectangle2D stringBounds = cachedText.getBounds();
+        int xBaseline = alignment.stringRightSide(stringBounds, x);
+        int yBaseline = alignment.stringBaseline(stringBounds, y);
+        if (graphBuffer != null && cachedText.isMaskable() && isPlainText(g, graphBuffer)) {
+            cachedText.draw(graphBuffer, xBaseline, yBaseline, g.getColor().getRGB(), g.getClipBounds());
+        } else {
+            g.drawString(text, xBaseline, yBaseline);
+        }
+    }
+    
+    private static boolean isPlainText(Graphics2D g, GraphBuffer graphBuffer) {
+        return (graphBuffer.getImage().getType() == BufferedImage.TYPE_3BYTE_BGR
+                || graphBuffer.getImage().getType() == BufferedImage.TYPE_INT_RGB)
+                && graphBuffer.getGraphicsContext() == g
+                && g.getPaint() instanceof Color && g.getColor().getAlpha() == 255
+                && g.getTransform().isIdentity()
+                && AlphaComposite.SrcOver.equals(g.getComposite())
+                && (g.getClip() == null || g.getClip() instanceof Rectangle);
     }
 }
@@ -8,6 +8,7 @@ import org.epics.util.stats.Range;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.epics.util.array.ListNumber;
@@ -22,7 +23,7 @@ import org.epics.util.stats.Ranges;
 public class LineGraph2DRenderer extends Graph2DRenderer<LineGraph2DRendererUpdate> {
 
     public static java.util.List<InterpolationScheme> supportedInterpolationScheme = Arrays.asList(InterpolationScheme.NEAREST_NEIGHBOR, InterpolationScheme.LINEAR, InterpolationScheme.CUBIC);
-    public static java.util.List<ReductionScheme> supportedReductionScheme = Arrays.asList(ReductionScheme.FIRST_MAX_MIN_LAST, ReductionScheme.NONE);
+    public static java.util.List<ReductionScheme> supportedReductionScheme = Arrays.asList(ReductionScheme.FIRST_MAX_MIN_LAST, ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS, ReductionScheme.NONE);
     
     @Override
     public LineGraph2DRendererUpdate newUpdate() {
@@ -109,6 +110,69 @@ public class LineGraph2DRenderer extends Graph2DRenderer<LineGraph2DRendererUpda
         }
     }
 
+    /**
+     * Draws the graph on the given buffer. The line is written directly
+     * on the pixels of the buffer, unless the interpolation is cubic.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data the data to display
+     */
+    public void draw(GraphBuffer graphBuffer, Point2DDataset data) {
+        draw(graphBuffer, data, null);
+    }
+    
+    /**
+     * Draws the graph on the given buffer, stopping as soon as the token
+     * is cancelled.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data the data to display
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     * @throws java.util.concurrent.CancellationException if the token was cancelled
+     */
+    public void draw(GraphBuffer graphBuffer, Point2DDataset data, CancellationToken cancellationToken) {
+        this.graphBuffer = graphBuffer;
+        this.cancellationToken = cancellationToken;
+        try {
+            draw(graphBuffer.getGraphicsContext(), data);
+        } finally {
+            this.graphBuffer = null;
+            this.cancellationToken = null;
+        }
+    }
+    
+    /**
+     * Draws a graph with multiple lines on the given buffer. The lines are
+     * written directly on the pixels of the buffer, unless the interpolation
+     * is cubic.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data can not be null
+     */
+    public void draw(GraphBuffer graphBuffer, List<Point2DDataset> data) {
+        draw(graphBuffer, data, null);
+    }
+    
+    /**
+     * Draws the graph with multiple lines on the given buffer, stopping as soon as the token
+     * is cancelled.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data can not be null
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     * @throws java.util.concurrent.CancellationException if the token was cancelled
+     */
+    public void draw(GraphBuffer graphBuffer, List<Point2DDataset> data, CancellationToken cancellationToken) {
+        this.graphBuffer = graphBuffer;
+        this.cancellationToken = cancellationToken;
+        try {
+            draw(graphBuffer.getGraphicsContext(), data);
+        } finally {
+            this.graphBuffer = null;
+            this.cancellationToken = null;
+        }
+    }
+    
     /**
      * Draws the graph on the given graphics context.
      * 
@@ -116,34 +180,68 @@ public class LineGraph2DRenderer extends Graph2DRenderer<LineGraph2DRendererUpda
      * @param data the data to display
      */
     public void draw(Graphics2D g, Point2DDataset data) {
+        long frameStart = System.nanoTime();
         this.g = g;
         
         calculateRanges(data.getXStatistics(), data.getXDisplayRange(), data.getYStatistics(), data.getYDisplayRange());
-        calculateLabels();
-        calculateGraphArea();        
-        drawBackground();
-        drawGraphArea();
+        calculateAndDrawGraphArea();
         
-        SortedListView xValues = org.epics.util.array.ListNumbers.sortedView(data.getXValues());
-        ListNumber yValues = org.epics.util.array.ListNumbers.sortedView(data.getYValues(), xValues.getIndexes());
-
         setClip(g);
         g.setColor(Color.BLACK);
-
-        currentIndex = 0;
-        currentScaledDiff = getImageWidth();
-        drawValueExplicitLine(xValues, yValues, interpolation, reduction);
+        
+        // Indexed data is already sorted and can be reduced without going
+        // through each point
+        if (data instanceof IndexedPoint2DDataset) {
+            drawValueExplicitLine((IndexedPoint2DDataset) data, interpolation, reduction);
+        } else if (Point2DDatasets.isXSorted(data)) {
+            drawValueExplicitLine(data.getXValues(), data.getYValues(), interpolation, reduction);
+        } else {
+            SortedListView sortedXValues = org.epics.util.array.ListNumbers.sortedView(data.getXValues());
+            ListNumber yValues = org.epics.util.array.ListNumbers.sortedView(data.getYValues(), sortedXValues.getIndexes());
+            drawValueExplicitLine(sortedXValues, yValues, interpolation, reduction);
+        }
+        
         if (focusPixelX != null) {
-            focusValueIndex = xValues.getIndexes().getInt(currentIndex);
-            if (highlightFocusValue) {
+            focusValueIndex = findValueIndex(data, focusPixelX);
+            if (highlightFocusValue && focusValueIndex != -1) {
                 g.setColor(new Color(0, 0, 0, 128));
-                int x = (int) scaledX(xValues.getDouble(currentIndex));
+                int x = (int) scaledX(data.getXValues().getDouble(focusValueIndex));
                 g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
                 g.drawLine(x, yAreaCoordStart, x, yAreaCoordEnd - 1);
             }
         } else {
             focusValueIndex = -1;
         }
+        
+        frameRendered(System.nanoTime() - frameStart);
+    }
+    
+    /**
+     * Finds the index of the value closest to the given pixel, using
+     * the ranges of the last draw. This allows to resolve the value under
+     * the mouse without redrawing the graph. For data sorted on x
+     * the lookup is a binary search, otherwise all values are scanned.
+     * 
+     * @param data the data that was last drawn
+     * @param pixelX the x position in the graph (pixel)
+     * @return the index (in the dataset) of the closest value; -1 if there are no values
+     */
+    public int findValueIndex(Point2DDataset data, int pixelX) {
+        ListNumber xValues = data.getXValues();
+        if (Point2DDatasets.isXSorted(data)) {
+            return nearestXIndex(xValues, pixelX);
+        }
+        
+        int index = -1;
+        double currentScaledDiff = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xValues.size(); i++) {
+            double scaledDiff = Math.abs(scaledX(xValues.getDouble(i)) - pixelX);
+            if (scaledDiff < currentScaledDiff) {
+                index = i;
+                currentScaledDiff = scaledDiff;
+            }
+        }
+        return index;
     }
     
     /**
@@ -152,16 +250,14 @@ public class LineGraph2DRenderer extends Graph2DRenderer<LineGraph2DRendererUpda
      * @param data can not be null
      */
     public void draw(Graphics2D g, List<Point2DDataset> data) {
+        long frameStart = System.nanoTime();
         this.g = g;
         
         //Calculate range, range will end up being from the lowest point to highest in all of the given data.
         for(Point2DDataset dataPiece: data){
           super.calculateRanges(dataPiece.getXStatistics(), dataPiece.getXDisplayRange(), dataPiece.getYStatistics(), dataPiece.getYDisplayRange());
         }
-        calculateLabels();
-        calculateGraphArea();
-        drawBackground();
-        drawGraphArea();
+        calculateAndDrawGraphArea();
         
         Range datasetRangeCheck = Ranges.range(0,data.size());
         
@@ -171,28 +267,14 @@ public class LineGraph2DRenderer extends Graph2DRenderer<LineGraph2DRendererUpda
             valueColorSchemeInstance = valueColorScheme.createInstance(datasetRange);
         }
         //Draw a line for each set of data in the data array.
+        List<Color> colors = new ArrayList<>();
         for(int datasetNumber = 0; datasetNumber < data.size(); datasetNumber++){
-            SortedListView xValues = org.epics.util.array.ListNumbers.sortedView(data.get(datasetNumber).getXValues());
-            ListNumber yValues = org.epics.util.array.ListNumbers.sortedView(data.get(datasetNumber).getYValues(), xValues.getIndexes());        
-            setClip(g);
-            g.setColor(new Color(valueColorSchemeInstance.colorFor((double)datasetNumber)));
-            drawValueExplicitLine(xValues, yValues, interpolation, reduction);
-        }
-    }
-
-    @Override
-    protected void processScaledValue(int index, double valueX, double valueY, double scaledX, double scaledY) {
-        if (focusPixelX != null) {
-            double scaledDiff = Math.abs(scaledX - focusPixelX);
-            if (scaledDiff < currentScaledDiff) {
-                currentIndex = index;
-                currentScaledDiff = scaledDiff;
-            }
+            colors.add(new Color(valueColorSchemeInstance.colorFor((double)datasetNumber)));
         }
+        setClip(g);
+        drawValueExplicitLines(data, colors, interpolation, reduction);
+        
+        frameRendered(System.nanoTime() - frameStart);
     }
-    
-    private int currentIndex;
-    private double currentScaledDiff;
 
-    
 }
@@ -40,7 +40,7 @@ public class LineGraph2DRendererUpdate extends Graph2DRendererUpdate<LineGraph2D
     
     /**
      *Sets this object's data reduction scheme to the given scheme.
-     * @param scheme can not be null, must be a supported scheme. Supported schemes:FIRST_MAX_MIN_LAST,NONE
+     * @param scheme can not be null, must be a supported scheme. Supported schemes:FIRST_MAX_MIN_LAST,LARGEST_TRIANGLE_THREE_BUCKETS,NONE
      * @return this
      */
     public LineGraph2DRendererUpdate dataReduction(ReductionScheme scheme) {
@@ -118,4 +118,24 @@ public class LineGraph2DRendererUpdate extends Graph2DRendererUpdate<LineGraph2D
         return highlightFocusValue;
     }
     
+    @Override
+    void merge(LineGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.valueColorScheme != null) {
+            valueColorScheme = update.valueColorScheme;
+        }
+        if (update.interpolation != null) {
+            interpolation = update.interpolation;
+        }
+        if (update.reduction != null) {
+            reduction = update.reduction;
+        }
+        if (update.focusPixelX != null) {
+            focusPixelX = update.focusPixelX;
+        }
+        if (update.highlightFocusValue != null) {
+            highlightFocusValue = update.highlightFocusValue;
+        }
+    }
+
 }
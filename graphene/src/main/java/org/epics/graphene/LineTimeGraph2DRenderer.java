@@ -6,9 +6,19 @@ package org.epics.graphene;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.epics.util.array.ListDouble;
 import org.epics.util.array.ListNumber;
-import org.epics.util.array.SortedListView;
+import org.epics.util.stats.Range;
+import org.epics.util.stats.Ranges;
+import org.epics.util.time.TimeDuration;
+import org.epics.util.time.TimeInterval;
+import org.epics.util.time.Timestamp;
 
 /**
  * Renderer for a line graph.
@@ -22,6 +32,9 @@ public class LineTimeGraph2DRenderer extends TemporalGraph2DRenderer<LineTimeGra
             InterpolationScheme.PREVIOUS_VALUE,
             InterpolationScheme.LINEAR,
             InterpolationScheme.CUBIC);
+    public static java.util.List<ReductionScheme> supportedReductionScheme = Arrays.asList(
+            ReductionScheme.FIRST_MAX_MIN_LAST,
+            ReductionScheme.NONE);
     
     @Override
     public LineTimeGraph2DRendererUpdate newUpdate() {
@@ -29,6 +42,20 @@ public class LineTimeGraph2DRenderer extends TemporalGraph2DRenderer<LineTimeGra
     }
 
     private InterpolationScheme interpolation = InterpolationScheme.NEAREST_NEIGHBOR;
+    private ReductionScheme reduction = ReductionScheme.NONE;
+    private boolean stripChart = false;
+    
+    // Strip chart: state of the frames drawn since the last full redraw
+    private GraphBuffer stripBuffer;
+    private Rectangle stripArea;
+    private Range stripValueRange;
+    private TimeDuration stripDuration;
+    private Timestamp stripOrigin;
+    private long stripPixel;
+    private Timestamp stripLastTimestamp;
+    private List<List<Object>> stripXLabels;
+    // Pixels the current frame is scrolled by; -1 if fully redrawn
+    private int stripShift = -1;
 
     /**
      * Creates a new line graph renderer.
@@ -48,6 +75,25 @@ public class LineTimeGraph2DRenderer extends TemporalGraph2DRenderer<LineTimeGra
     public InterpolationScheme getInterpolation() {
         return interpolation;
     }
+
+    /**
+     * The current data reduction used for the line. The default
+     * is NONE.
+     * 
+     * @return the current data reduction
+     */
+    public ReductionScheme getDataReduction() {
+        return reduction;
+    }
+    
+    /**
+     * Whether the graph is drawn as a strip chart.
+     * 
+     * @return true if the previous plot is scrolled when possible
+     */
+    public boolean isStripChart() {
+        return stripChart;
+    }
     
     @Override
     public void update(LineTimeGraph2DRendererUpdate update) {
@@ -55,8 +101,42 @@ public class LineTimeGraph2DRenderer extends TemporalGraph2DRenderer<LineTimeGra
         if (update.getInterpolation() != null) {
             interpolation = update.getInterpolation();
         }
+        if (update.getDataReduction() != null) {
+            reduction = update.getDataReduction();
+        }
+        if (update.getStripChart() != null) {
+            stripChart = update.getStripChart();
+        }
+        // Changes to the time axis range are what makes the plot scroll;
+        // anything else changing the look requires a full redraw
+        if (update.getInterpolation() != null || update.getDataReduction() != null
+                || update.getStripChart() != null || update.getValueScale() != null
+                || update.getTimeScale() != null) {
+            stripBuffer = null;
+        }
     }
 
+    /**
+     * Draws the graph on the given buffer. The line is written directly
+     * on the pixels of the buffer, unless the interpolation is cubic.
+     * <p>
+     * In strip chart mode, if the same buffer was used for the previous
+     * frame, the value range and the duration of the time axis did not change
+     * and the time axis moved forward by less than the plot width, the previous
+     * plot is scrolled and only the data after the last sample drawn is added.
+     * 
+     * @param graphBuffer the buffer on which to display the data
+     * @param data the data to display
+     */
+    public void draw(GraphBuffer graphBuffer, TimeSeriesDataset data) {
+        this.graphBuffer = graphBuffer;
+        try {
+            draw(graphBuffer.getGraphicsContext(), data);
+        } finally {
+            this.graphBuffer = null;
+        }
+    }
+    
     /**
      * Draws the graph on the given graphics context.
      * 
@@ -68,14 +148,164 @@ public class LineTimeGraph2DRenderer extends TemporalGraph2DRenderer<LineTimeGra
         
         calculateRanges(data.getStatistics(), data.getTimeInterval());
         calculateGraphArea();
+        if (stripShift != -1) {
+            drawStripChartFrame(data);
+            return;
+        }
         drawBackground();
         drawGraphArea();
+        if (stripChart) {
+            stripXLabels = xLabelsLayout();
+        }
+        if (data.getCount() == 0) {
+            stripLastTimestamp = null;
+            return;
+        }
         
-        ListNumber xValues = data.getNormalizedTime();
+        ListNumber xValues;
+        if (stripChart) {
+            xValues = normalizedTime(data.getTimestamps(), 0);
+            stripLastTimestamp = data.getTimestamps().get(data.getCount() - 1);
+        } else {
+            xValues = data.getNormalizedTime();
+        }
         ListNumber yValues = data.getValues();
 
         setClip(g);
         g.setColor(Color.BLACK);
-        drawValueLine(xValues, yValues, interpolation);
+        drawValueLine(xValues, yValues, interpolation, reduction);
+    }
+
+    /**
+     * In strip chart mode, aligns the start of the plot to a whole number
+     * of pixels from the last full redraw, so that the previous plot can be
+     * scrolled. The start is rounded up, so that the latest data stays in view.
+     * 
+     * @param plotTimeInterval the interval computed by the time axis range
+     * @return the interval to plot
+     */
+    @Override
+    protected TimeInterval alignPlotTimeInterval(TimeInterval plotTimeInterval) {
+        stripShift = -1;
+        if (!stripChart) {
+            return plotTimeInterval;
+        }
+        
+        Rectangle area = new Rectangle(xAreaStart, yAreaStart, xAreaEnd - xAreaStart + 1, yAreaEnd - yAreaStart + 1);
+        TimeDuration duration = plotTimeInterval.getEnd().durationFrom(plotTimeInterval.getStart());
+        if (graphBuffer != null && graphBuffer == stripBuffer && area.equals(stripArea)
+                && Ranges.equals(getPlotRange(), stripValueRange) && duration.equals(stripDuration)
+                && interpolation != InterpolationScheme.CUBIC) {
+            double pixelNanos = duration.toNanosLong() / xPlotCoordWidth;
+            long pixel = (long) Math.ceil(plotTimeInterval.getStart().durationFrom(stripOrigin).toNanosLong() / pixelNanos);
+            long shift = pixel - stripPixel;
+            if (shift >= 0 && shift < area.width) {
+                stripShift = (int) shift;
+                stripPixel = pixel;
+                Timestamp start = stripOrigin.plus(TimeDuration.ofNanos(Math.round(pixel * pixelNanos)));
+                return TimeInterval.between(start, start.plus(duration));
+            }
+        }
+        
+        // Start over from this frame
+        stripBuffer = graphBuffer;
+        stripArea = area;
+        stripValueRange = getPlotRange();
+        stripDuration = duration;
+        stripOrigin = plotTimeInterval.getStart();
+        stripPixel = 0;
+        return plotTimeInterval;
+    }
+    
+    private void drawStripChartFrame(TimeSeriesDataset data) {
+        if (stripShift > 0) {
+            int areaHeight = yAreaEnd - yAreaStart + 1;
+            graphBuffer.shiftLeft(xAreaStart, yAreaStart, xAreaEnd - xAreaStart + 1, areaHeight, stripShift);
+            
+            // Fill the columns that scrolled in
+            g.setClip(xAreaEnd - stripShift + 1, yAreaStart, stripShift, areaHeight);
+            drawBackground();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawVerticalReferenceLines();
+            drawHorizontalReferenceLines();
+            
+            // The time labels follow the references: if they all moved
+            // with the plot, they are scrolled as well, otherwise the whole
+            // band is redrawn
+            int bandHeight = getImageHeight() - yAreaEnd - 1;
+            List<List<Object>> xLabels = xLabelsLayout();
+            if (xLabels.equals(shiftedLabels(stripXLabels, stripShift))) {
+                graphBuffer.shiftLeft(xAreaStart, yAreaEnd + 1, xAreaEnd - xAreaStart + 1, bandHeight, stripShift);
+                g.setClip(xAreaEnd - stripShift + 1, yAreaEnd + 1, stripShift, bandHeight);
+            } else {
+                g.setClip(0, yAreaEnd + 1, getImageWidth(), bandHeight);
+            }
+            drawBackground();
+            drawXLabels();
+            stripXLabels = xLabels;
+        }
+        
+        // The line restarts from the last sample drawn, which is still in
+        // the data unless it was all replaced
+        List<Timestamp> timestamps = data.getTimestamps();
+        if (timestamps.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        if (stripLastTimestamp != null) {
+            start = Collections.binarySearch(timestamps, stripLastTimestamp);
+            if (start < 0) {
+                start = Math.max(0, -start - 2);
+            }
+        }
+        stripLastTimestamp = timestamps.get(timestamps.size() - 1);
+        if (timestamps.size() - start < 2) {
+            return;
+        }
+        
+        setClip(g);
+        g.setColor(Color.BLACK);
+        drawValueLine(normalizedTime(timestamps, start), values(data.getValues(), start), interpolation, reduction);
+    }
+    
+    private static List<List<Object>> shiftedLabels(List<List<Object>> labels, int shift) {
+        List<List<Object>> shifted = new ArrayList<>(labels.size());
+        for (List<Object> label : labels) {
+            shifted.add(Arrays.<Object>asList(label.get(0), label.get(1), (Integer) label.get(2) - shift, label.get(3)));
+        }
+        return shifted;
+    }
+    
+    private ListNumber normalizedTime(final List<Timestamp> timestamps, final int start) {
+        // Normalized on the plot interval: samples before it are negative
+        final Timestamp plotStart = getPlotTimeInterval().getStart();
+        final double range = getPlotTimeInterval().getEnd().durationFrom(plotStart).toNanosLong();
+        return new ListDouble() {
+
+            @Override
+            public double getDouble(int index) {
+                return timestamps.get(start + index).durationFrom(plotStart).toNanosLong() / range;
+            }
+
+            @Override
+            public int size() {
+                return timestamps.size() - start;
+            }
+        };
+    }
+    
+    private static ListNumber values(final ListNumber values, final int start) {
+        return new ListDouble() {
+
+            @Override
+            public double getDouble(int index) {
+                return values.getDouble(start + index);
+            }
+
+            @Override
+            public int size() {
+                return values.size() - start;
+            }
+        };
     }
 }
@@ -11,6 +11,8 @@ package org.epics.graphene;
 public class LineTimeGraph2DRendererUpdate extends TemporalGraph2DRendererUpdate<LineTimeGraph2DRendererUpdate> {
 
     private InterpolationScheme interpolation;
+    private ReductionScheme reduction;
+    private Boolean stripChart;
     
     public LineTimeGraph2DRendererUpdate interpolation(InterpolationScheme scheme) {
         if (scheme == null) {
@@ -23,8 +25,60 @@ public class LineTimeGraph2DRendererUpdate extends TemporalGraph2DRendererUpdate
         return this;
     }
     
+    /**
+     * Sets the data reduction scheme. The default is NONE, which goes
+     * through every point (e.g. to draw every step with PREVIOUS_VALUE).
+     * FIRST_MAX_MIN_LAST keeps the first, max, min and last value for each
+     * pixel column: the line looks the same, and is much faster to draw
+     * when there are many more points than pixels.
+     * 
+     * @param scheme can not be null, must be a supported scheme. Supported schemes:FIRST_MAX_MIN_LAST,NONE
+     * @return this
+     */
+    public LineTimeGraph2DRendererUpdate dataReduction(ReductionScheme scheme) {
+        if (scheme == null) {
+            throw new NullPointerException("Data reduction scheme can't be null");
+        }
+        if (!LineTimeGraph2DRenderer.supportedReductionScheme.contains(scheme)) {
+            throw new IllegalArgumentException("Data reduction " + scheme + " is not supported");
+        }
+        this.reduction = scheme;
+        return this;
+    }
+    
+    /**
+     * Sets whether the graph is drawn as a strip chart. When drawing on
+     * the same {@link GraphBuffer} with a time axis of constant duration,
+     * the previous plot is scrolled and only the new data is drawn.
+     * 
+     * @param stripChart true to scroll the previous plot when possible
+     * @return this
+     */
+    public LineTimeGraph2DRendererUpdate stripChart(boolean stripChart) {
+        this.stripChart = stripChart;
+        return this;
+    }
+    
     public InterpolationScheme getInterpolation() {
         return interpolation;
     }
     
+    /**
+     * Current reduction scheme
+     * 
+     * @return the current reduction scheme.
+     */
+    public ReductionScheme getDataReduction() {
+        return reduction;
+    }
+    
+    /**
+     * Whether the graph is drawn as a strip chart.
+     * 
+     * @return true if strip chart; null if not changed
+     */
+    public Boolean getStripChart() {
+        return stripChart;
+    }
+    
 }
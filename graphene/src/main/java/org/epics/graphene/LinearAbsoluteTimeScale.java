@@ -4,6 +4,8 @@
  */
 package org.epics.graphene;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.epics.util.array.ArrayDouble;
 import org.epics.util.time.TimeDuration;
@@ -31,8 +33,17 @@ final class LinearAbsoluteTimeScale implements TimeScale {
         return newMinValue + (fromStart) / range * newRange;
     }
 
+    // Same ranges are asked for at every frame
+    private static final ReferencesCache<TimeAxis> cache = new ReferencesCache<>(128);
+
     @Override
     public TimeAxis references(TimeInterval range, int minRefs, int maxRefs) {
+        List<Object> key = Arrays.<Object>asList(range, minRefs, maxRefs);
+        TimeAxis axis = cache.get(key);
+        if (axis != null) {
+            return axis;
+        }
+        
         // First guess at the time between references.
         // Get the smallest required period, and then round down
         TimeDuration rangeDuration = range.getEnd().durationFrom(range.getStart());
@@ -57,7 +68,10 @@ final class LinearAbsoluteTimeScale implements TimeScale {
         }
         ArrayDouble normalizedValues = new ArrayDouble(normalized);
         
-        return new TimeAxis(range, references, normalizedValues, TimeScales.trimLabelsLeft(TimeScales.trimLabelsRight(TimeScales.createLabels(references))));
+        axis = new TimeAxis(range, Collections.unmodifiableList(references), normalizedValues,
+                Collections.unmodifiableList(TimeScales.trimLabelsLeft(TimeScales.trimLabelsRight(TimeScales.createLabels(references)))));
+        cache.put(key, axis);
+        return axis;
     }
     
 }
@@ -6,10 +6,10 @@ package org.epics.graphene;
 
 import org.epics.util.stats.Range;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.List;
 import static org.epics.graphene.ValueAxis.orderOfMagnitude;
-import org.epics.util.text.NumberFormats;
+import org.epics.util.array.ListNumber;
 
 /**
  *
@@ -24,17 +24,36 @@ final class LinearValueScale implements ValueScale {
         return newMinValue + (value - minValue) / oldRange * newRange;
     }
 
+    /**
+     * Scales a range of values, like {@link #scaleValue(double, double, double, double, double) }
+     * on each element.
+     */
+    void scaleValues(ListNumber values, int from, int to, double[] scaledValues, double minValue, double maxValue, double newMinValue, double newMaxValue) {
+        double oldRange = maxValue - minValue;
+        double newRange = newMaxValue - newMinValue;
+        for (int i = from; i < to; i++) {
+            scaledValues[i - from] = newMinValue + (values.getDouble(i) - minValue) / oldRange * newRange;
+        }
+    }
+
     @Override
     public double invScaleValue(double scaleValue, double minValue, double maxValue, double newMinValue, double newMaxValue) {
         return scaleValue(scaleValue, newMinValue, newMaxValue, minValue, maxValue);
     }
     
-    private static final DecimalFormat defaultFormat = new DecimalFormat("0.###");
+    // Same ranges are asked for at every frame
+    private static final ReferencesCache<ValueAxis> cache = new ReferencesCache<>(128);
 
     @Override
     public ValueAxis references(Range range, int minRefs, int maxRefs) {
         double minValue = range.getMinimum().doubleValue();
         double maxValue = range.getMaximum().doubleValue();
+        List<Object> key = Arrays.<Object>asList(minValue, maxValue, minRefs, maxRefs);
+        ValueAxis axis = cache.get(key);
+        if (axis != null) {
+            return axis;
+        }
+        
         double minIncrement = Double.MIN_VALUE;
         double increment = incrementForRange(minValue, maxValue, maxRefs, minIncrement);
         double[] ticks = createTicks(minValue, maxValue, increment);
@@ -45,42 +64,35 @@ final class LinearValueScale implements ValueScale {
         int incrementOrder = (int) orderOfMagnitude(increment);
         int nDigits = rangeOrder - incrementOrder;
         
-        // The format will decide how many significant digit to show
-        NumberFormat format = defaultFormat;
-        // The normalization and the exponent will need to agree and
-        // decide what order of magnitude to format the number as
-        double normalization = 1.0;
-        String exponent = null;
+        // The formatter will decide how many significant digit to show
+        TickFormatter formatter;
+        // The exponent will decide what order of magnitude
+        // to format the number as
+        boolean useExponentialNotation;
         if (rangeOrder >= -3 && rangeOrder <= 3) {
+            useExponentialNotation = false;
             if (incrementOrder < 0) {
-                format = NumberFormats.format(-incrementOrder);
+                formatter = new TickFormatter(-incrementOrder);
             } else {
-                format = NumberFormats.format(0);
+                formatter = new TickFormatter(0);
             }
-        } else if (rangeOrder > 3) {
-            format = NumberFormats.format(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
-        } else if (rangeOrder < -3) {
-            format = NumberFormats.format(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
+        } else {
+            useExponentialNotation = true;
+            formatter = new TickFormatter(nDigits);
         }
         
         String[] labels = new String[ticks.length];
         for (int i = 0; i < ticks.length; i++) {
             double value = ticks[i];
-            labels[i] = format(value, format, exponent, normalization);//error happens here. value = -0.5, format = , exponent = null, normalization = 1.0
-        }
-        return new ValueAxis(minValue, maxValue, ticks, labels);
-    }
-    
-    static String format(double number, NumberFormat format, String exponent, double normalization) {
-        if (exponent != null) {
-            return format.format(number/normalization) + "e" + exponent;
-        } else {
-            return format.format(number/normalization);
+            if (useExponentialNotation) {
+                labels[i] = formatter.format(value, rangeOrder);
+            } else {
+                labels[i] = formatter.format(value);
+            }
         }
+        axis = new ValueAxis(minValue, maxValue, ticks, labels);
+        cache.put(key, axis);
+        return axis;
     }
     
     /**
@@ -6,13 +6,13 @@ package org.epics.graphene;
 
 import org.epics.util.stats.Range;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.List;
 import static org.epics.graphene.ValueAxis.orderOfMagnitude;
 import org.epics.util.array.CircularBufferDouble;
 import org.epics.util.array.CollectionNumbers;
 import org.epics.util.array.ListDouble;
-import org.epics.util.text.NumberFormats;
+import org.epics.util.array.ListNumber;
 
 /**
  *
@@ -30,6 +30,20 @@ final class LogValueScale implements ValueScale {
         return newMinValue + (value - minValue) / oldRange * newRange;
     }
 
+    /**
+     * Scales a range of values, like {@link #scaleValue(double, double, double, double, double) }
+     * on each element.
+     */
+    void scaleValues(ListNumber values, int from, int to, double[] scaledValues, double minValue, double maxValue, double newMinValue, double newMaxValue) {
+        minValue = Math.log10(minValue);
+        maxValue = Math.log10(maxValue);
+        double oldRange = maxValue - minValue;
+        double newRange = newMaxValue - newMinValue;
+        for (int i = from; i < to; i++) {
+            scaledValues[i - from] = newMinValue + (Math.log10(values.getDouble(i)) - minValue) / oldRange * newRange;
+        }
+    }
+
     @Override
     public double invScaleValue(double scaleValue, double actualMinValue, double actualMaxValue, double scaleMinValue, double scaleMaxValue) {
         actualMinValue = Math.log10(actualMinValue);
@@ -39,10 +53,18 @@ final class LogValueScale implements ValueScale {
         return Math.pow(10.0, actualMinValue + (scaleValue - scaleMinValue) / scaleRange * actualRange);
     }
 
+    // Same ranges are asked for at every frame
+    private static final ReferencesCache<ValueAxis> cache = new ReferencesCache<>(128);
+
     @Override
     public ValueAxis references(Range range, int minRefs, int maxRefs) {
         double minValue = range.getMinimum().doubleValue();
         double maxValue = range.getMaximum().doubleValue();
+        List<Object> key = Arrays.<Object>asList(minValue, maxValue, minRefs, maxRefs);
+        ValueAxis axis = cache.get(key);
+        if (axis != null) {
+            return axis;
+        }
         if (minValue == 0 || maxValue == 0) {
             throw new IllegalArgumentException("The range for a log scale can't include 0");
         }
@@ -64,36 +86,30 @@ final class LogValueScale implements ValueScale {
         
         // Number of digits required after first number
         int orderOfIncrement = MathUtil.orderOf(currentFactor);
-        NumberFormat format;
+        TickFormatter formatter;
         boolean useExponentialNotation;
         if ((minExp - orderOfIncrement) < -3 || maxExp > 3) {
             // Would need more than 3 decimal places or more than 3 zeros
             useExponentialNotation = true;
-            format = NumberFormats.format(orderOfIncrement);
+            formatter = new TickFormatter(orderOfIncrement);
         } else {
             useExponentialNotation = false;
-            format = NumberFormats.format(orderOfIncrement - minExp);
+            formatter = new TickFormatter(orderOfIncrement - minExp);
         }
         
         String[] labels = new String[references.size()];
         for (int i = 0; i < references.size(); i++) {
             double value = references.getDouble(i);
             if (useExponentialNotation) {
-                labels[i] = format(value, format, Integer.toString(MathUtil.orderOf(value)), Math.pow(10, MathUtil.orderOf(value)));
+                labels[i] = formatter.format(value, MathUtil.orderOf(value));
             } else {
-                labels[i] = format(value, format, null, 1);
+                labels[i] = formatter.format(value);
             }
         }
         
-        return new ValueAxis(minValue, maxValue, CollectionNumbers.doubleArrayCopyOf(references), labels);
-    }
-    
-    static String format(double number, NumberFormat format, String exponent, double normalization) {
-        if (exponent != null) {
-            return format.format(number/normalization) + "e" + exponent;
-        } else {
-            return format.format(number/normalization);
-        }
+        axis = new ValueAxis(minValue, maxValue, CollectionNumbers.doubleArrayCopyOf(references), labels);
+        cache.put(key, axis);
+        return axis;
     }
     
     static int decreaseFactor(int factor) {
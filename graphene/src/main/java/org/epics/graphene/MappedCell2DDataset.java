@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.epics.util.array.ListDouble;
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Range;
+import org.epics.util.stats.Ranges;
+import org.epics.util.stats.Statistics;
+import org.epics.util.stats.StatisticsUtil;
+
+/**
+ * A dataset read from a memory mapped file, one row after the other.
+ * <p>
+ * Only the rows that are read are loaded by the operating system, so files
+ * much larger than the heap can be displayed. Since a single buffer can't map
+ * more than 2 GB, the file is mapped in chunks of whole rows. The
+ * statistics are calculated in parallel the first time they are requested,
+ * and they require reading the whole file.
+ *
+ * @author carcassi
+ */
+class MappedCell2DDataset implements ConcurrentCell2DDataset {
+
+    // The number of cells for which each parallel task calculates the statistics
+    private static final int STATISTICS_TASK_CELLS = 1 << 24;
+
+    private final Cell2DDatasets.ElementType elementType;
+    private final long rowStride;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] chunks;
+    private final ListNumber xBoundaries;
+    private final ListNumber yBoundaries;
+    private final Range xRange;
+    private final Range yRange;
+    private final int xCount;
+    private final int yCount;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private boolean statisticsCalculated;
+    private Statistics statistics;
+
+    MappedCell2DDataset(FileChannel channel, long position, long rowStride, Cell2DDatasets.ElementType elementType, ByteOrder byteOrder,
+            ListNumber xBoundaries, ListNumber yBoundaries, long maxChunkSize) throws IOException {
+        xCount = xBoundaries.size() - 1;
+        yCount = yBoundaries.size() - 1;
+        if (xCount <= 0 || yCount <= 0) {
+            throw new IllegalArgumentException("Number of X (or Y) values must be greater than 0. xCount = " + xCount + " yCount = " + yCount);
+        }
+        long rowSize = (long) xCount * elementType.size;
+        if (rowStride < rowSize) {
+            throw new IllegalArgumentException("Row stride must be at least the size of a row (" + rowStride + " < " + rowSize + ")");
+        }
+        if (rowStride > maxChunkSize) {
+            throw new IllegalArgumentException("Row stride must be at most " + maxChunkSize + " (was " + rowStride + ")");
+        }
+        long dataSize = (yCount - 1) * rowStride + rowSize;
+        if (position < 0 || position + dataSize > channel.size()) {
+            throw new IllegalArgumentException("File is too small for " + xCount + " * " + yCount + " cells (size " + channel.size()
+                    + ", data from " + position + " to " + (position + dataSize) + ")");
+        }
+
+        this.elementType = elementType;
+        this.rowStride = rowStride;
+        this.rowsPerChunk = (int) Math.min(yCount, maxChunkSize / rowStride);
+        this.chunks = new ByteBuffer[(yCount + rowsPerChunk - 1) / rowsPerChunk];
+        for (int i = 0; i < chunks.length; i++) {
+            int firstRow = i * rowsPerChunk;
+            int nRows = Math.min(rowsPerChunk, yCount - firstRow);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + firstRow * rowStride, (nRows - 1) * rowStride + rowSize)
+                    .order(byteOrder);
+        }
+        this.xBoundaries = xBoundaries;
+        this.yBoundaries = yBoundaries;
+        this.xRange = Ranges.range(xBoundaries.getDouble(0), xBoundaries.getDouble(xBoundaries.size() - 1));
+        this.yRange = Ranges.range(yBoundaries.getDouble(0), yBoundaries.getDouble(yBoundaries.size() - 1));
+    }
+
+    /**
+     * Reads the value at the given byte in the chunk. Only absolute reads
+     * are used, so that the buffers can be shared across threads.
+     */
+    double read(ByteBuffer chunk, int index) {
+        switch (elementType) {
+            case BYTE:
+                return chunk.get(index);
+            case UNSIGNED_BYTE:
+                return chunk.get(index) & 0xFF;
+            case SHORT:
+                return chunk.getShort(index);
+            case UNSIGNED_SHORT:
+                return chunk.getShort(index) & 0xFFFF;
+            case INT:
+                return chunk.getInt(index);
+            case FLOAT:
+                return chunk.getFloat(index);
+            case DOUBLE:
+                return chunk.getDouble(index);
+            default:
+                throw new IllegalStateException("Element type " + elementType + " not supported");
+        }
+    }
+
+    ByteBuffer chunkFor(int y) {
+        if (y < 0 || y >= yCount) {
+            throw new ArrayIndexOutOfBoundsException("y must be from 0 to " + (yCount - 1) + " (was " + y + ")");
+        }
+        return chunks[y / rowsPerChunk];
+    }
+
+    int indexFor(int x, int y) {
+        return (int) ((y % rowsPerChunk) * rowStride) + x * elementType.size;
+    }
+
+    @Override
+    public double getValue(int x, int y) {
+        if (x < 0 || x >= xCount) {
+            throw new ArrayIndexOutOfBoundsException("x must be from 0 to " + (xCount - 1) + " (was " + x + ")");
+        }
+        return read(chunkFor(y), indexFor(x, y));
+    }
+
+    @Override
+    public void getRow(int y, int xFrom, int xTo, double[] dest) {
+        if (xFrom < 0 || xTo > xCount) {
+            throw new ArrayIndexOutOfBoundsException("x must be from 0 to " + (xCount - 1) + " (was " + xFrom + " to " + (xTo - 1) + ")");
+        }
+        ByteBuffer chunk = chunkFor(y);
+        int index = indexFor(xFrom, y);
+        for (int x = xFrom; x < xTo; x++) {
+            dest[x - xFrom] = read(chunk, index);
+            index += elementType.size;
+        }
+    }
+
+    @Override
+    public boolean isRowCopyCheap() {
+        // Each cell is decoded from the buffer
+        return false;
+    }
+
+    @Override
+    public Statistics getStatistics() {
+        synchronized (lock) {
+            if (!statisticsCalculated) {
+                statistics = calculateStatistics();
+                statisticsCalculated = true;
+            }
+            return statistics;
+        }
+    }
+
+    private Statistics calculateStatistics() {
+        // Each task goes through a band of rows
+        final int rowsPerTask = Math.max(1, STATISTICS_TASK_CELLS / Math.max(1, xCount));
+        List<Callable<Statistics>> tasks = new ArrayList<>();
+        for (int firstRow = 0; firstRow < yCount; firstRow += rowsPerTask) {
+            final int from = firstRow;
+            final int nRows = Math.min(rowsPerTask, yCount - firstRow);
+            tasks.add(new Callable<Statistics>() {
+
+                @Override
+                public Statistics call() {
+                    return StatisticsUtil.statisticsOf(new ListDouble() {
+
+                        @Override
+                        public double getDouble(int index) {
+                            return getValue(index % xCount, from + index / xCount);
+                        }
+
+                        @Override
+                        public int size() {
+                            return nRows * xCount;
+                        }
+                    });
+                }
+            });
+        }
+
+        List<Statistics> bands = new ArrayList<>();
+        for (Statistics band : Parallel.invokeAll(tasks)) {
+            if (band != null) {
+                bands.add(band);
+            }
+        }
+        if (bands.isEmpty()) {
+            return null;
+        }
+        return StatisticsUtil.statisticsOf(bands);
+    }
+
+    @Override
+    public Range getDisplayRange() {
+        return getStatistics();
+    }
+
+    @Override
+    public ListNumber getXBoundaries() {
+        return xBoundaries;
+    }
+
+    @Override
+    public Range getXRange() {
+        return xRange;
+    }
+
+    @Override
+    public int getXCount() {
+        return xCount;
+    }
+
+    @Override
+    public ListNumber getYBoundaries() {
+        return yBoundaries;
+    }
+
+    @Override
+    public Range getYRange() {
+        return yRange;
+    }
+
+    @Override
+    public int getYCount() {
+        return yCount;
+    }
+
+    /**
+     * A mapped dataset of unsigned integers, which can be colored
+     * through a table.
+     */
+    static class Unsigned extends MappedCell2DDataset implements Cell2DIntegerDataset {
+
+        private final int levels;
+
+        Unsigned(FileChannel channel, long position, long rowStride, Cell2DDatasets.ElementType elementType, ByteOrder byteOrder,
+                ListNumber xBoundaries, ListNumber yBoundaries, long maxChunkSize) throws IOException {
+            super(channel, position, rowStride, elementType, byteOrder, xBoundaries, yBoundaries, maxChunkSize);
+            levels = elementType == Cell2DDatasets.ElementType.UNSIGNED_BYTE ? 256 : 65536;
+        }
+
+        @Override
+        public int getLevels() {
+            return levels;
+        }
+
+        @Override
+        public void getIntRow(int y, int xFrom, int xTo, int[] dest) {
+            if (xFrom < 0 || xTo > getXCount()) {
+                throw new ArrayIndexOutOfBoundsException("x must be from 0 to " + (getXCount() - 1) + " (was " + xFrom + " to " + (xTo - 1) + ")");
+            }
+            ByteBuffer chunk = chunkFor(y);
+            int index = indexFor(xFrom, y);
+            if (levels == 256) {
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = chunk.get(index++) & 0xFF;
+                }
+            } else {
+                for (int x = xFrom; x < xTo; x++) {
+                    dest[x - xFrom] = chunk.getShort(index) & 0xFFFF;
+                    index += 2;
+                }
+            }
+        }
+    }
+
+}
@@ -17,6 +17,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
 import static org.epics.graphene.InterpolationScheme.CUBIC;
 import static org.epics.graphene.InterpolationScheme.LINEAR;
 import static org.epics.graphene.InterpolationScheme.NEAREST_NEIGHBOR;
@@ -179,6 +180,24 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         }
     }
 
+    /**
+     * Draws the graph on the given graphics context, stopping as soon as the token
+     * is cancelled.
+     * 
+     * @param g the graphics on which to display the data
+     * @param data the data to display
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     * @throws java.util.concurrent.CancellationException if the token was cancelled
+     */
+    public void draw(Graphics2D g, List<Point2DDataset> data, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        try {
+            draw(g, data);
+        } finally {
+            this.cancellationToken = null;
+        }
+    }
+
     /**
      * Draws the graph on the given graphics context.
      * 
@@ -225,26 +244,52 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         }
         
         
-        List<SortedListView> xValues = new ArrayList<SortedListView>();
-        for(int i = 0; i < numGraphs; i++){
-            xValues.add(org.epics.util.array.ListNumbers.sortedView(data.get(i).getXValues()));
-        }
-        
-        List<ListNumber> yValues = new ArrayList<ListNumber>();
+        // Sort, scale and reduce all the lines in parallel
+        lineBuffers.prepare(numGraphs);
+        List<Callable<Path2D>> tasks = new ArrayList<Callable<Path2D>>();
         for(int i = 0; i < numGraphs; i++){
-            yValues.add(org.epics.util.array.ListNumbers.sortedView(data.get(i).getYValues(), xValues.get(i).getIndexes()));
+            final Point2DDataset dataset = data.get(i);
+            final int index = i;
+            tasks.add(new Callable<Path2D>() {
+
+                @Override
+                public Path2D call() {
+                    checkCancelled();
+                    ListNumber xValues;
+                    ListNumber yValues;
+                    if (Point2DDatasets.isXSorted(dataset)) {
+                        xValues = dataset.getXValues();
+                        yValues = dataset.getYValues();
+                    } else {
+                        SortedListView sortedXValues = org.epics.util.array.ListNumbers.sortedView(dataset.getXValues());
+                        xValues = sortedXValues;
+                        yValues = org.epics.util.array.ListNumbers.sortedView(dataset.getYValues(), sortedXValues.getIndexes());
+                    }
+                    return createLine(xValues, yValues, interpolation, reduction, index,
+                            lineBuffers.scaledData(index), lineBuffers.path(index));
+                }
+            });
         }
-        if(separateAreas){
-            g.setColor(Color.BLACK);
-            for(int i = 0; i < numGraphs; i++){
-                drawValueExplicitLine(xValues.get(i), yValues.get(i), interpolation, reduction,i);
+        try {
+            List<Path2D> lines = prepareLines(tasks);
+
+            // Draw the lines in order
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            if(separateAreas){
+                g.setColor(Color.BLACK);
+                for(int i = 0; i < numGraphs; i++){
+                    g.draw(lines.get(i));
+                }
             }
-        }
-        else{
-            for(int i = 0; i < numGraphs; i++){
-                g.setColor(new Color(valueColorSchemeInstance.colorFor(i)));
-                drawValueExplicitLine(xValues.get(i), yValues.get(i), interpolation, reduction,i);
+            else{
+                for(int i = 0; i < numGraphs; i++){
+                    g.setColor(new Color(valueColorSchemeInstance.colorFor(i)));
+                    g.draw(lines.get(i));
+                }
             }
+        } finally {
+            lineBuffers.release(numGraphs);
         }
 
     }
@@ -630,6 +675,14 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         return yValueScale.scaleValue(value, yPlotValueStart.get(index), yPlotValueEnd.get(index), yPlotCoordEnd.get(index), yPlotCoordStart.get(index));
     }
     
+    private void scaledYValues(ListNumber values, int from, int to, double[] scaledValues, int index) {
+        if(separateAreas){
+            ValueScales.scaleValues(yValueScale, values, from, to, scaledValues, yPlotValueStart.get(index), yPlotValueEnd.get(index), yPlotCoordEnd.get(index), yPlotCoordStart.get(index));
+        }else{
+            ValueScales.scaleValues(yValueScale, values, from, to, scaledValues, yPlotValueStart.get(index), yPlotValueEnd.get(index), super.yPlotCoordEnd, super.yPlotCoordStart);
+        }
+    }
+    
     @Override
     protected void drawGraphArea() {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -971,12 +1024,22 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         return xValueScale.scaleValue(value, xPlotValueStart, xPlotValueEnd, xPlotCoordStart, xPlotCoordEnd);
     }
     
+    private void scaledX1(ListNumber values, int from, int to, double[] scaledValues) {
+        ValueScales.scaleValues(xValueScale, values, from, to, scaledValues, xPlotValueStart, xPlotValueEnd, xPlotCoordStart, xPlotCoordEnd);
+    }
+    
     protected void drawValueExplicitLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction, int index) {
-        MultiAxisLineGraph2DRenderer.ScaledData scaledData;
-        
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
         
+        // Draw the line
+        g.draw(createLine(xValues, yValues, interpolation, reduction, index, scaledData, path));
+    }
+    
+    private Path2D createLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction, int index,
+            ScaledData lineData, Path2D.Double line) {
+        ScaledData scaledData;
+        
         // Narrow the data
         int start = org.epics.util.array.ListNumbers.binarySearchValueOrLower(xValues, xPlotValueStart);
         int end = org.epics.util.array.ListNumbers.binarySearchValueOrHigher(xValues, xPlotValueEnd);
@@ -988,68 +1051,57 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
             default:
                 throw new IllegalArgumentException("Reduction scheme " + reduction + " not supported");
             case NONE:
-                scaledData = scaleNoReduction(xValues, yValues, start,index);
+                scaledData = scaleNoReduction(lineData, xValues, yValues, start, index);
                 break;
             case FIRST_MAX_MIN_LAST:
-                scaledData = scaleFirstMaxMinLastReduction(xValues, yValues, start, index);
+                scaledData = scaleFirstMaxMinLastReduction(lineData, xValues, yValues, start, index);
                 break;
         }
         
         // create path
-        Path2D path;
+        line.reset();
         switch (interpolation) {
             default:
             case NEAREST_NEIGHBOR:
-                path = nearestNeighbour(scaledData);
+                nearestNeighbour(scaledData, line);
                 break;
             case LINEAR:
-                path = linearInterpolation(scaledData);
+                linearInterpolation(scaledData, line);
                 break;
             case CUBIC:
-                path = cubicInterpolation(scaledData);
+                cubicInterpolation(scaledData, line);
                 break;
         }
-
-        // Draw the line
-        g.draw(path);
+        return line;
     }
     
-    private static class ScaledData {
-        private double[] scaledX;
-        private double[] scaledY;
-        private int start;
-        private int end;
-    }
+    // Buffers reused from line to line and from frame to frame: they only grow
+    private final ScaledData scaledData = new ScaledData();
+    private final Path2D.Double path = new Path2D.Double();
+    // Buffers for each line, as the lines are prepared in parallel
+    private final ScaledData.Lines lineBuffers = new ScaledData.Lines();
     
-    private MultiAxisLineGraph2DRenderer.ScaledData scaleNoReduction(ListNumber xValues, ListNumber yValues, int dataStart, int index) {
-        MultiAxisLineGraph2DRenderer.ScaledData scaledData = new MultiAxisLineGraph2DRenderer.ScaledData();
+    private ScaledData scaleNoReduction(ScaledData scaledData, ListNumber xValues, ListNumber yValues, int dataStart, int index) {
         int dataCount = xValues.size();
-        scaledData.scaledX = new double[dataCount];
-        scaledData.scaledY = new double[dataCount];
-        for (int i = 0; i < scaledData.scaledY.length; i++) {
-            scaledData.scaledX[i] = scaledX1(xValues.getDouble(i));
-            if(separateAreas){
-                scaledData.scaledY[i] = scaledYSplit(yValues.getDouble(i), index);
-            }else{
-                scaledData.scaledY[i] = scaledY(yValues.getDouble(i), index);
-            }
+        scaledData.prepare(dataCount);
+        scaledX1(xValues, 0, dataCount, scaledData.scaledX);
+        scaledYValues(yValues, 0, dataCount, scaledData.scaledY, index);
+        for (int i = 0; i < dataCount; i++) {
             processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), scaledData.scaledX[i], scaledData.scaledY[i]);
         }
         scaledData.end = dataCount;
         return scaledData;
     }
     
-    private MultiAxisLineGraph2DRenderer.ScaledData scaleFirstMaxMinLastReduction(ListNumber xValues, ListNumber yValues, int dataStart, int index) {
+    private ScaledData scaleFirstMaxMinLastReduction(ScaledData scaledData, ListNumber xValues, ListNumber yValues, int dataStart, int index) {
         // The number of points generated by this is about 4 times the 
         // number of points on the x axis. If the number of points is less
         // than that, it's not worth it. Don't do the data reduction.
         if (xValues.size() < xPlotCoordWidth * 4) {
-            return scaleNoReduction(xValues, yValues, dataStart, index);
+            return scaleNoReduction(scaledData, xValues, yValues, dataStart, index);
         }
 
-        MultiAxisLineGraph2DRenderer.ScaledData scaledData = new MultiAxisLineGraph2DRenderer.ScaledData();
-        scaledData.scaledX = new double[((int) xPlotCoordWidth + 1)*4 ];
-        scaledData.scaledY = new double[((int) xPlotCoordWidth + 1)*4];
+        scaledData.prepare(((int) xPlotCoordWidth + 1)*4);
         int cursor = 0;
         int previousPixel = (int) scaledX1(xValues.getDouble(0));
         double last;
@@ -1064,39 +1116,39 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         scaledData.scaledY[0] = min;
         processScaledValue(dataStart, xValues.getDouble(0), yValues.getDouble(0), scaledX1(xValues.getDouble(0)), last);
         cursor++;
-        for (int i = 1; i < xValues.size(); i++) {
-            double currentScaledX = scaledX1(xValues.getDouble(i));
-            int currentPixel = (int) currentScaledX;
-            if (currentPixel == previousPixel) {
-                if(separateAreas){
-                    last = scaledYSplit(yValues.getDouble(i),index);
-                }else{
-                    last = scaledY(yValues.getDouble(i),index);
-                }
-                min = MathIgnoreNaN.min(min, last);
-                max = MathIgnoreNaN.max(max, last);
-                processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), currentScaledX, last);
-            } else {
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = max;
-                cursor++;
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = min;
-                cursor++;
-                scaledData.scaledX[cursor] = previousPixel;
-                scaledData.scaledY[cursor] = last;
-                cursor++;
-                previousPixel = currentPixel;
-                if(separateAreas){
-                    last = scaledYSplit(yValues.getDouble(i),index);
-                }else{
-                    last = scaledY(yValues.getDouble(i),index);
+        double[] chunkX = scaledData.chunkX;
+        double[] chunkY = scaledData.chunkY;
+        for (int chunkStart = 1; chunkStart < xValues.size(); chunkStart += ScaledData.SCALING_CHUNK) {
+            checkCancelled();
+            int chunkEnd = Math.min(chunkStart + ScaledData.SCALING_CHUNK, xValues.size());
+            scaledX1(xValues, chunkStart, chunkEnd, chunkX);
+            scaledYValues(yValues, chunkStart, chunkEnd, chunkY, index);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                double currentScaledX = chunkX[i - chunkStart];
+                int currentPixel = (int) currentScaledX;
+                if (currentPixel == previousPixel) {
+                    last = chunkY[i - chunkStart];
+                    min = MathIgnoreNaN.min(min, last);
+                    max = MathIgnoreNaN.max(max, last);
+                    processScaledValue(dataStart + i, xValues.getDouble(i), yValues.getDouble(i), currentScaledX, last);
+                } else {
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = max;
+                    cursor++;
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = min;
+                    cursor++;
+                    scaledData.scaledX[cursor] = previousPixel;
+                    scaledData.scaledY[cursor] = last;
+                    cursor++;
+                    previousPixel = currentPixel;
+                    last = chunkY[i - chunkStart];
+                    min = last;
+                    max = last;
+                    scaledData.scaledX[cursor] = currentPixel;
+                    scaledData.scaledY[cursor] = last;
+                    cursor++;
                 }
-                min = last;
-                max = last;
-                scaledData.scaledX[cursor] = currentPixel;
-                scaledData.scaledY[cursor] = last;
-                cursor++;
             }
         }
         scaledData.scaledX[cursor] = previousPixel;
@@ -1109,12 +1161,11 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
         return scaledData;
     }
     
-    private static Path2D.Double nearestNeighbour(MultiAxisLineGraph2DRenderer.ScaledData scaledData) {
+    private static void nearestNeighbour(ScaledData scaledData, Path2D.Double line) {
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double line = new Path2D.Double();
         line.moveTo(scaledX[start], scaledY[start]);
         for (int i = 1; i < end; i++) {
             double halfX = scaledX[i - 1] + (scaledX[i] - scaledX[i - 1]) / 2;
@@ -1127,15 +1178,13 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
             }
         }
         line.lineTo(scaledX[end - 1], scaledY[end - 1]);
-        return line;
     }
     
-    private static Path2D.Double linearInterpolation(MultiAxisLineGraph2DRenderer.ScaledData scaledData){
+    private static void linearInterpolation(ScaledData scaledData, Path2D.Double line){
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double line = new Path2D.Double();
         
         for (int i = start; i < end; i++) {
             // Do I have a current value?
@@ -1158,15 +1207,13 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
                 }
             } 
         }
-        return line;
     }
     
-    private static Path2D.Double cubicInterpolation(MultiAxisLineGraph2DRenderer.ScaledData scaledData){
+    private static void cubicInterpolation(ScaledData scaledData, Path2D.Double path){
         double[] scaledX = scaledData.scaledX;
         double[] scaledY = scaledData.scaledY;
         int start = scaledData.start;
         int end = scaledData.end;
-        Path2D.Double path = new Path2D.Double();
         for (int i = start; i < end; i++) {
             
             double y1;
@@ -1284,6 +1331,5 @@ public class MultiAxisLineGraph2DRenderer extends Graph2DRenderer<MultiAxisLineG
                // Do nothing
              }
         }
-        return path;
     }
 }
@@ -116,4 +116,31 @@ public class MultiAxisLineGraph2DRendererUpdate extends Graph2DRendererUpdate<Mu
     public Boolean isSeparateAreas(){
         return separateAreas;
     }
+
+    @Override
+    void merge(MultiAxisLineGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.IndexToRangeMap != null) {
+            IndexToRangeMap = new HashMap<>(update.IndexToRangeMap);
+        }
+        if (update.marginBetweenGraphs != null) {
+            marginBetweenGraphs = update.marginBetweenGraphs;
+        }
+        if (update.minimumGraphHeight != null) {
+            minimumGraphHeight = update.minimumGraphHeight;
+        }
+        if (update.interpolation != null) {
+            interpolation = update.interpolation;
+        }
+        if (update.reduction != null) {
+            reduction = update.reduction;
+        }
+        if (update.minimumGraphWidth != null) {
+            minimumGraphWidth = update.minimumGraphWidth;
+        }
+        if (update.separateAreas != null) {
+            separateAreas = update.separateAreas;
+        }
+    }
+
 }
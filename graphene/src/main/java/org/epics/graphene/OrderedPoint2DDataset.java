@@ -0,0 +1,24 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * A dataset of 2D points that knows whether its x values are sorted,
+ * so that they don't need to be checked on each frame. Use
+ * {@link Point2DDatasets#isXSorted(Point2DDataset) } to check any dataset.
+ *
+ * @author carcassi
+ */
+interface OrderedPoint2DDataset extends Point2DDataset {
+    
+    /**
+     * Whether the x values are sorted in ascending order. If the x values
+     * contain NaN, they are not sorted.
+     * 
+     * @return true if the x values are sorted
+     */
+    public boolean isXSorted();
+    
+}
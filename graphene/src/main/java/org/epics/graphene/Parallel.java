@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the parts of a draw that can be split in independent tasks, such as
+ * preparing the lines of a graph or filling the stripes of an image, on
+ * a pool shared by all the renderers.
+ * <p>
+ * The exceptions thrown by a task are rethrown as they are on the calling
+ * thread, so that a cancelled draw still ends with a
+ * {@link java.util.concurrent.CancellationException}.
+ *
+ * @author carcassi
+ */
+class Parallel {
+
+    private Parallel() {
+        // Static methods only
+    }
+
+    /**
+     * The number of tasks that can run at the same time.
+     */
+    static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    /**
+     * Runs the tasks in parallel and returns their results in order. A single
+     * task is run on the current thread.
+     *
+     * @param <T> the type of the results
+     * @param tasks the tasks to run
+     * @return the results of the tasks
+     */
+    static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            return callAll(tasks);
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : POOL.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while preparing the data", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Runs the tasks one after the other on the current thread and returns
+     * their results in order.
+     *
+     * @param <T> the type of the results
+     * @param tasks the tasks to run
+     * @return the results of the tasks
+     */
+    static <T> List<T> callAll(List<? extends Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
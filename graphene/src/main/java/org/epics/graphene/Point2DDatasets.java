@@ -44,10 +44,11 @@ public class Point2DDatasets {
             throw new IllegalArgumentException("Arrays length don't match: " + x.size() + " - " + y.size());
         }
         
-        return new Point2DDataset() {
+        return new OrderedPoint2DDataset() {
             
             private final Statistics xStatistics = StatisticsUtil.statisticsOf(x);
             private final Statistics yStatistics = StatisticsUtil.statisticsOf(y);
+            private final boolean xSorted = isSorted(x);
 
             @Override
             public ListNumber getXValues() {
@@ -79,6 +80,11 @@ public class Point2DDatasets {
                 return null;
             }
 
+            @Override
+            public boolean isXSorted() {
+                return xSorted;
+            }
+
             @Override
             public int getCount() {
                 return x.size();
@@ -86,4 +92,253 @@ public class Point2DDatasets {
         };
     }
     
+    /**
+     * Whether the x values of the dataset are sorted in ascending order.
+     * The datasets created here know it already; for any other dataset,
+     * the values are checked one by one. If the x values contain NaN,
+     * they are not sorted.
+     * 
+     * @param dataset the dataset to check
+     * @return true if the x values are sorted
+     */
+    public static boolean isXSorted(Point2DDataset dataset) {
+        if (dataset instanceof IndexedPoint2DDataset) {
+            return true;
+        }
+        if (dataset instanceof OrderedPoint2DDataset) {
+            return ((OrderedPoint2DDataset) dataset).isXSorted();
+        }
+        return isSorted(dataset.getXValues());
+    }
+    
+    /**
+     * Checks whether the values are sorted in ascending order. NaN values
+     * are not sorted.
+     * 
+     * @param values the values to check
+     * @return true if sorted
+     */
+    static boolean isSorted(ListNumber values) {
+        double previous = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < values.size(); i++) {
+            double value = values.getDouble(i);
+            if (!(previous <= value)) {
+                return false;
+            }
+            previous = value;
+        }
+        return true;
+    }
+    
+    /**
+     * Creates an indexed version of the given dataset, that can be reduced
+     * by pixel column without going through each point.
+     * <p>
+     * The index is calculated once, here, and requires the x values to be
+     * sorted in ascending order. The index uses about 1/16 of the memory
+     * used by the y values, as it is a pyramid starting from blocks of 64 points.
+     * 
+     * @param dataset the dataset to index; can't be null
+     * @return the indexed dataset
+     * @throws IllegalArgumentException if the x values are not sorted
+     */
+    public static IndexedPoint2DDataset indexed(Point2DDataset dataset) {
+        if (dataset instanceof IndexedPoint2DDataset) {
+            return (IndexedPoint2DDataset) dataset;
+        }
+        return new Point2DPyramidDataset(dataset);
+    }
+    
+    /**
+     * A view of the dataset that keeps one point every few, so that there
+     * are at most the given number of points. The first point is always kept.
+     * The statistics and the display ranges are the ones of the full
+     * dataset, so that a graph of the view has the same axes.
+     * 
+     * @param dataset the dataset to decimate
+     * @param maxCount the maximum number of points
+     * @return the dataset itself, if it's already small enough, or the view
+     */
+    static Point2DDataset decimated(final Point2DDataset dataset, int maxCount) {
+        final int count = dataset.getCount();
+        if (count <= maxCount) {
+            return dataset;
+        }
+        final int stride = (count + maxCount - 1) / maxCount;
+        final int decimatedCount = (count + stride - 1) / stride;
+        final ListNumber xValues = stridedView(dataset.getXValues(), stride, decimatedCount);
+        final ListNumber yValues = stridedView(dataset.getYValues(), stride, decimatedCount);
+        final boolean xSorted = isXSorted(dataset);
+        
+        return new OrderedPoint2DDataset() {
+
+            @Override
+            public ListNumber getXValues() {
+                return xValues;
+            }
+
+            @Override
+            public ListNumber getYValues() {
+                return yValues;
+            }
+
+            @Override
+            public Statistics getXStatistics() {
+                return dataset.getXStatistics();
+            }
+
+            @Override
+            public Statistics getYStatistics() {
+                return dataset.getYStatistics();
+            }
+
+            @Override
+            public Range getXDisplayRange() {
+                return dataset.getXDisplayRange();
+            }
+
+            @Override
+            public Range getYDisplayRange() {
+                return dataset.getYDisplayRange();
+            }
+
+            @Override
+            public boolean isXSorted() {
+                return xSorted;
+            }
+
+            @Override
+            public int getCount() {
+                return decimatedCount;
+            }
+        };
+    }
+    
+    /**
+     * A view of the dataset that keeps, for each group of consecutive points,
+     * the first, the maximum, the minimum and the last point, so that
+     * there are at most the given number of points. This is the FIRST_MAX_MIN_LAST
+     * reduction done on the index instead of the pixel column: unlike
+     * {@link #decimated(Point2DDataset, int) }, spikes are never dropped.
+     * The points are kept in their order, and the statistics and
+     * the display ranges are the ones of the full dataset.
+     * 
+     * @param dataset the dataset to reduce
+     * @param maxCount the maximum number of points; at least 4
+     * @return the dataset itself, if it's already small enough, or the view
+     */
+    static Point2DDataset envelope(final Point2DDataset dataset, int maxCount) {
+        final int count = dataset.getCount();
+        if (count <= maxCount) {
+            return dataset;
+        }
+        int groupCount = maxCount / 4;
+        int groupSize = (count + groupCount - 1) / groupCount;
+        ListNumber y = dataset.getYValues();
+        int[] indexes = new int[4 * ((count + groupSize - 1) / groupSize)];
+        int size = 0;
+        for (int first = 0; first < count; first += groupSize) {
+            int last = Math.min(first + groupSize, count) - 1;
+            int maxIndex = first;
+            int minIndex = first;
+            for (int i = first + 1; i <= last; i++) {
+                double value = y.getDouble(i);
+                // NaN fails both comparisons, and is never the max or the min
+                if (value > y.getDouble(maxIndex) || Double.isNaN(y.getDouble(maxIndex))) {
+                    maxIndex = i;
+                }
+                if (value < y.getDouble(minIndex) || Double.isNaN(y.getDouble(minIndex))) {
+                    minIndex = i;
+                }
+            }
+            indexes[size++] = first;
+            if (Math.min(maxIndex, minIndex) != first) {
+                indexes[size++] = Math.min(maxIndex, minIndex);
+            }
+            if (Math.max(maxIndex, minIndex) != first && maxIndex != minIndex) {
+                indexes[size++] = Math.max(maxIndex, minIndex);
+            }
+            if (indexes[size - 1] != last) {
+                indexes[size++] = last;
+            }
+        }
+        final int envelopeCount = size;
+        final ListNumber xValues = indexedView(dataset.getXValues(), indexes, envelopeCount);
+        final ListNumber yValues = indexedView(y, indexes, envelopeCount);
+        final boolean xSorted = isXSorted(dataset);
+        
+        return new OrderedPoint2DDataset() {
+
+            @Override
+            public ListNumber getXValues() {
+                return xValues;
+            }
+
+            @Override
+            public ListNumber getYValues() {
+                return yValues;
+            }
+
+            @Override
+            public Statistics getXStatistics() {
+                return dataset.getXStatistics();
+            }
+
+            @Override
+            public Statistics getYStatistics() {
+                return dataset.getYStatistics();
+            }
+
+            @Override
+            public Range getXDisplayRange() {
+                return dataset.getXDisplayRange();
+            }
+
+            @Override
+            public Range getYDisplayRange() {
+                return dataset.getYDisplayRange();
+            }
+
+            @Override
+            public boolean isXSorted() {
+                return xSorted;
+            }
+
+            @Override
+            public int getCount() {
+                return envelopeCount;
+            }
+        };
+    }
+    
+    static ListNumber indexedView(final ListNumber values, final int[] indexes, final int size) {
+        return new ListDouble() {
+
+            @Override
+            public double getDouble(int index) {
+                return values.getDouble(indexes[index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    static ListNumber stridedView(final ListNumber values, final int stride, final int size) {
+        return new ListDouble() {
+
+            @Override
+            public double getDouble(int index) {
+                return values.getDouble(index * stride);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
 }
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Range;
+import org.epics.util.stats.Statistics;
+
+/**
+ * An indexed dataset that keeps a pyramid of the minimum and maximum
+ * y values.
+ * <p>
+ * The first level of the pyramid contains the minimum and maximum of each
+ * block of {@link #BLOCK_SIZE} points, and each following level
+ * combines two elements of the previous one. A query looks at most at
+ * two partial blocks of raw values plus two elements for each level.
+ *
+ * @author carcassi
+ */
+final class Point2DPyramidDataset implements IndexedPoint2DDataset {
+    
+    static final int BLOCK_SIZE = 64;
+    
+    private final Point2DDataset dataset;
+    private final ListNumber yValues;
+    private final double[][] minimums;
+    private final double[][] maximums;
+
+    Point2DPyramidDataset(Point2DDataset dataset) {
+        if (!Point2DDatasets.isXSorted(dataset)) {
+            throw new IllegalArgumentException("X values must be sorted in ascending order");
+        }
+        this.dataset = dataset;
+        this.yValues = dataset.getYValues();
+        
+        int nLevels = 1;
+        int nBlocks = blockCount(yValues.size(), BLOCK_SIZE);
+        while (nBlocks > 1) {
+            nBlocks = blockCount(nBlocks, 2);
+            nLevels++;
+        }
+        minimums = new double[nLevels][];
+        maximums = new double[nLevels][];
+        
+        // First level: go through the raw values
+        nBlocks = blockCount(yValues.size(), BLOCK_SIZE);
+        minimums[0] = new double[nBlocks];
+        maximums[0] = new double[nBlocks];
+        for (int block = 0; block < nBlocks; block++) {
+            double min = Double.NaN;
+            double max = Double.NaN;
+            int end = Math.min((block + 1) * BLOCK_SIZE, yValues.size());
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                double value = yValues.getDouble(i);
+                min = MathIgnoreNaN.min(min, value);
+                max = MathIgnoreNaN.max(max, value);
+            }
+            minimums[0][block] = min;
+            maximums[0][block] = max;
+        }
+        
+        // Other levels: combine pairs of the previous level
+        for (int level = 1; level < nLevels; level++) {
+            double[] previousMin = minimums[level - 1];
+            double[] previousMax = maximums[level - 1];
+            nBlocks = blockCount(previousMin.length, 2);
+            minimums[level] = new double[nBlocks];
+            maximums[level] = new double[nBlocks];
+            for (int block = 0; block < nBlocks; block++) {
+                int first = 2 * block;
+                if (first + 1 < previousMin.length) {
+                    minimums[level][block] = MathIgnoreNaN.min(previousMin[first], previousMin[first + 1]);
+                    maximums[level][block] = MathIgnoreNaN.max(previousMax[first], previousMax[first + 1]);
+                } else {
+                    minimums[level][block] = previousMin[first];
+                    maximums[level][block] = previousMax[first];
+                }
+            }
+        }
+    }
+    
+    private static int blockCount(int size, int blockSize) {
+        return (size + blockSize - 1) / blockSize;
+    }
+
+    @Override
+    public double getYMinimum(int fromIndex, int toIndex) {
+        return query(fromIndex, toIndex, minimums, false);
+    }
+
+    @Override
+    public double getYMaximum(int fromIndex, int toIndex) {
+        return query(fromIndex, toIndex, maximums, true);
+    }
+    
+    private double query(int fromIndex, int toIndex, double[][] pyramid, boolean maximum) {
+        if (fromIndex < 0 || toIndex > yValues.size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range " + fromIndex + " - " + toIndex + " is out of bounds");
+        }
+        double result = Double.NaN;
+        
+        // Raw values before the first full block
+        int i = fromIndex;
+        while (i < toIndex && i % BLOCK_SIZE != 0) {
+            result = combine(result, yValues.getDouble(i), maximum);
+            i++;
+        }
+        
+        // Full blocks, climbing the pyramid
+        int blockFrom = i / BLOCK_SIZE;
+        int blockTo = toIndex / BLOCK_SIZE;
+        if (blockTo > blockFrom) {
+            int low = blockFrom;
+            int high = blockTo;
+            int level = 0;
+            while (low < high) {
+                if ((low & 1) == 1) {
+                    result = combine(result, pyramid[level][low], maximum);
+                    low++;
+                }
+                if ((high & 1) == 1) {
+                    high--;
+                    result = combine(result, pyramid[level][high], maximum);
+                }
+                low >>= 1;
+                high >>= 1;
+                level++;
+            }
+            i = blockTo * BLOCK_SIZE;
+        }
+        
+        // Raw values after the last full block
+        while (i < toIndex) {
+            result = combine(result, yValues.getDouble(i), maximum);
+            i++;
+        }
+        return result;
+    }
+    
+    private static double combine(double a, double b, boolean maximum) {
+        if (maximum) {
+            return MathIgnoreNaN.max(a, b);
+        } else {
+            return MathIgnoreNaN.min(a, b);
+        }
+    }
+
+    @Override
+    public ListNumber getXValues() {
+        return dataset.getXValues();
+    }
+
+    @Override
+    public ListNumber getYValues() {
+        return yValues;
+    }
+
+    @Override
+    public Statistics getXStatistics() {
+        return dataset.getXStatistics();
+    }
+
+    @Override
+    public Statistics getYStatistics() {
+        return dataset.getYStatistics();
+    }
+
+    @Override
+    public Range getXDisplayRange() {
+        return dataset.getXDisplayRange();
+    }
+
+    @Override
+    public Range getYDisplayRange() {
+        return dataset.getYDisplayRange();
+    }
+
+    @Override
+    public int getCount() {
+        return dataset.getCount();
+    }
+    
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders a graph in two steps: a coarse frame from a reduced view of
+ * the data, which is returned right away, and the exact frame, which is
+ * rendered in the background and delivered to a listener.
+ * <p>
+ * The two frames are drawn by two renderers with the same configuration,
+ * so that the exact frame never holds the coarse one. The coarse renderer
+ * is used on the thread that calls {@link #update(Graph2DRendererUpdate) }
+ * and {@link #draw(java.lang.Object, FinalFrameListener) }, which should
+ * always be the same (e.g. the UI thread). The exact renderer is used by
+ * a background thread, which is released when idle.
+ * <p>
+ * If a new frame is requested before the exact frame of the previous one
+ * is done, the rendering of the previous exact frame is cancelled.
+ *
+ * @param <U> the type of update for the renderer
+ * @param <D> the type of data
+ * @author carcassi
+ */
+public abstract class ProgressiveGraph2DRenderer<U extends Graph2DRendererUpdate<U>, D> {
+
+    /**
+     * Receives the exact frame once it's rendered.
+     */
+    public static interface FinalFrameListener {
+
+        /**
+         * Called on the background thread when the exact frame is ready.
+         *
+         * @param image the exact frame
+         */
+        public void finalFrameRendered(BufferedImage image);
+    }
+
+    // Number of points for each pixel of the coarse frame
+    private static final int COARSE_POINTS_PER_PIXEL = 4;
+    // Number of pixels for each cell of the coarse frame
+    private static final int COARSE_PIXELS_PER_CELL = 2;
+
+    private static final ThreadFactory refineThreadFactory = new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "graphene progressive rendering");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final Graph2DRenderer<U> coarseRenderer;
+    private final Graph2DRenderer<U> finalRenderer;
+    // A single thread, so that the updates and the frames are rendered in order
+    private final ThreadPoolExecutor refineExecutor = new ThreadPoolExecutor(1, 1,
+            1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), refineThreadFactory);
+    private final AtomicReference<CancellationToken> lastFrame = new AtomicReference<>();
+
+    private ProgressiveGraph2DRenderer(Graph2DRenderer<U> coarseRenderer, Graph2DRenderer<U> finalRenderer) {
+        this.coarseRenderer = coarseRenderer;
+        this.finalRenderer = finalRenderer;
+        refineExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A view of the data that can be drawn within a few milliseconds.
+     *
+     * @param data the data
+     * @param imageWidth the width of the graph
+     * @param imageHeight the height of the graph
+     * @return the data itself, if it's already fast to draw, or a view
+     */
+    abstract D coarseData(D data, int imageWidth, int imageHeight);
+
+    /**
+     * Draws the data with the given renderer.
+     *
+     * @param renderer one of the two renderers
+     * @param graphBuffer the buffer to draw on
+     * @param data the data
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     */
+    abstract void draw(Graph2DRenderer<U> renderer, GraphBuffer graphBuffer, D data, CancellationToken cancellationToken);
+
+    /**
+     * Creates a new update for the graph.
+     *
+     * @return a new update object
+     */
+    public U newUpdate() {
+        return coarseRenderer.newUpdate();
+    }
+
+    /**
+     * Applies the update to the graph. The update is applied to the exact
+     * frames requested from now on. The update is copied, so it can
+     * be modified afterwards.
+     *
+     * @param update the update to apply
+     */
+    public void update(U update) {
+        coarseRenderer.update(update);
+        final U copy = newUpdate();
+        copy.merge(update);
+        refineExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                finalRenderer.update(copy);
+            }
+        });
+    }
+
+    /**
+     * Draws the coarse frame for the data, and starts the rendering
+     * of the exact frame. If the data is small enough to be drawn exactly
+     * right away, the returned frame is already exact and the listener
+     * is not notified.
+     *
+     * @param data the data to draw
+     * @param listener receives the exact frame; can't be null
+     * @return the coarse frame
+     */
+    public BufferedImage draw(final D data, final FinalFrameListener listener) {
+        final CancellationToken frame = new CancellationToken();
+        CancellationToken previousFrame = lastFrame.getAndSet(frame);
+        if (previousFrame != null) {
+            previousFrame.cancel();
+        }
+        D coarseData = coarseData(data, coarseRenderer.getImageWidth(), coarseRenderer.getImageHeight());
+        GraphBuffer coarseBuffer = new GraphBuffer(coarseRenderer);
+        draw(coarseRenderer, coarseBuffer, coarseData, null);
+        if (coarseData == data) {
+            return coarseBuffer.getImage();
+        }
+
+        refineExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                // Skip frames that were already replaced
+                if (frame.isCancelled()) {
+                    return;
+                }
+                GraphBuffer finalBuffer = new GraphBuffer(finalRenderer);
+                try {
+                    draw(finalRenderer, finalBuffer, data, frame);
+                } catch (CancellationException ex) {
+                    return;
+                }
+                if (!frame.isCancelled()) {
+                    listener.finalFrameRendered(finalBuffer.getImage());
+                }
+            }
+        });
+        return coarseBuffer.getImage();
+    }
+
+    /**
+     * A progressive line graph. The coarse frame uses a few points per pixel:
+     * the first, the maximum, the minimum and the last of each group of
+     * points, so that the spikes are still drawn. Indexed datasets are reduced
+     * without going through each point, so they are always drawn exactly.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @return a new progressive renderer
+     */
+    public static ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset> lineGraph(int imageWidth, int imageHeight) {
+        return new ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset>(
+                new LineGraph2DRenderer(imageWidth, imageHeight), new LineGraph2DRenderer(imageWidth, imageHeight)) {
+
+            @Override
+            Point2DDataset coarseData(Point2DDataset data, int imageWidth, int imageHeight) {
+                if (data instanceof IndexedPoint2DDataset) {
+                    return data;
+                }
+                return Point2DDatasets.envelope(data, COARSE_POINTS_PER_PIXEL * imageWidth);
+            }
+
+            @Override
+            void draw(Graph2DRenderer<LineGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data, CancellationToken cancellationToken) {
+                ((LineGraph2DRenderer) renderer).draw(graphBuffer, data, cancellationToken);
+            }
+        };
+    }
+
+    /**
+     * A progressive scatter graph. The coarse frame uses a few points per pixel,
+     * taken at regular intervals.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @return a new progressive renderer
+     */
+    public static ProgressiveGraph2DRenderer<ScatterGraph2DRendererUpdate, Point2DDataset> scatterGraph(int imageWidth, int imageHeight) {
+        return new ProgressiveGraph2DRenderer<ScatterGraph2DRendererUpdate, Point2DDataset>(
+                new ScatterGraph2DRenderer(imageWidth, imageHeight), new ScatterGraph2DRenderer(imageWidth, imageHeight)) {
+
+            @Override
+            Point2DDataset coarseData(Point2DDataset data, int imageWidth, int imageHeight) {
+                return Point2DDatasets.decimated(data, COARSE_POINTS_PER_PIXEL * imageWidth);
+            }
+
+            @Override
+            void draw(Graph2DRenderer<ScatterGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data, CancellationToken cancellationToken) {
+                ((ScatterGraph2DRenderer) renderer).draw(graphBuffer.getGraphicsContext(), data, cancellationToken);
+            }
+        };
+    }
+
+    /**
+     * A progressive intensity graph. The coarse frame uses at most one cell
+     * every two pixels in each direction, so that only a quarter of the
+     * values are read and colored.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @return a new progressive renderer
+     */
+    public static ProgressiveGraph2DRenderer<IntensityGraph2DRendererUpdate, Cell2DDataset> intensityGraph(int imageWidth, int imageHeight) {
+        return new ProgressiveGraph2DRenderer<IntensityGraph2DRendererUpdate, Cell2DDataset>(
+                new IntensityGraph2DRenderer(imageWidth, imageHeight), new IntensityGraph2DRenderer(imageWidth, imageHeight)) {
+
+            @Override
+            Cell2DDataset coarseData(Cell2DDataset data, int imageWidth, int imageHeight) {
+                return Cell2DDatasets.decimated(data, Math.max(1, imageWidth / COARSE_PIXELS_PER_CELL),
+                        Math.max(1, imageHeight / COARSE_PIXELS_PER_CELL));
+            }
+
+            @Override
+            void draw(Graph2DRenderer<IntensityGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Cell2DDataset data, CancellationToken cancellationToken) {
+                ((IntensityGraph2DRenderer) renderer).draw(graphBuffer, data, cancellationToken);
+            }
+        };
+    }
+
+}
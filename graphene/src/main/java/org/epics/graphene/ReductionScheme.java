@@ -9,5 +9,5 @@ package org.epics.graphene;
  * @author carcassi
  */
 public enum ReductionScheme {
-    NONE, FIRST_MAX_MIN_LAST;
+    NONE, FIRST_MAX_MIN_LAST, LARGEST_TRIANGLE_THREE_BUCKETS;
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache for the references of a scale, so that the same ticks
+ * and labels are not recalculated at every frame. When full, the least
+ * recently used axis is dropped.
+ * <p>
+ * The cached axes are shared: they should not be modified.
+ *
+ * @param <T> the type of axis
+ * @author carcassi
+ */
+final class ReferencesCache<T> {
+
+    private final Map<List<Object>, T> axes;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum number of axes kept
+     */
+    ReferencesCache(final int maxSize) {
+        axes = new LinkedHashMap<List<Object>, T>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, T> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * The axis for the given range and number of references.
+     *
+     * @param key the range and the number of references
+     * @return the axis; null if not cached
+     */
+    synchronized T get(List<Object> key) {
+        return axes.get(key);
+    }
+
+    /**
+     * Adds an axis to the cache.
+     *
+     * @param key the range and the number of references
+     * @param axis the axis
+     */
+    synchronized void put(List<Object> key, T axis) {
+        axes.put(key, axis);
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * The quality a graph is rendered with, when the renderer needs to stay
+ * within a render budget. Each level keeps the reductions of the
+ * levels before it.
+ *
+ * @author carcassi
+ */
+public enum RenderQuality {
+
+    /**
+     * Everything is drawn as configured.
+     */
+    FULL,
+
+    /**
+     * Lines and reference lines are not antialiased.
+     */
+    NO_ANTIALIASING,
+
+    /**
+     * Cubic interpolation is drawn as linear.
+     */
+    LINEAR_INTERPOLATION,
+
+    /**
+     * All data is reduced with {@link ReductionScheme#FIRST_MAX_MIN_LAST},
+     * which is the cheapest reduction.
+     */
+    COARSE_REDUCTION,
+
+    /**
+     * Reference lines and legends are not drawn: only the data
+     * and the labels.
+     */
+    ESSENTIAL;
+}
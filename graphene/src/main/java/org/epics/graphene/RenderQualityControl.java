@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+/**
+ * Chooses the quality of the next frame given the time taken by the recent
+ * ones. When the average of the last frames is over budget, the quality is
+ * lowered by one level; when it is under half the budget, it is raised by
+ * one level. After each change, a new set of frames is measured at the
+ * new quality, so that a single slow frame does not change the quality
+ * and the levels are stepped one at a time.
+ *
+ * @author carcassi
+ */
+final class RenderQualityControl {
+
+    static final int FRAMES = 4;
+
+    private static final RenderQuality[] levels = RenderQuality.values();
+
+    private final long[] frameTimes = new long[FRAMES];
+    private int nFrames;
+    private int level;
+
+    /**
+     * The quality for the next frame.
+     *
+     * @return the render quality
+     */
+    RenderQuality getQuality() {
+        return levels[level];
+    }
+
+    /**
+     * Records the time taken by a frame, and adapts the quality.
+     *
+     * @param frameNanos the time to render the frame
+     * @param budgetNanos the time the frame should take; zero for no budget
+     */
+    void frameRendered(long frameNanos, long budgetNanos) {
+        if (budgetNanos <= 0) {
+            reset();
+            return;
+        }
+
+        frameTimes[nFrames] = frameNanos;
+        nFrames++;
+        if (nFrames < FRAMES) {
+            return;
+        }
+
+        long total = 0;
+        for (long frameTime : frameTimes) {
+            total += frameTime;
+        }
+        long average = total / FRAMES;
+        if (average > budgetNanos && level < levels.length - 1) {
+            level++;
+        } else if (average < budgetNanos / 2 && level > 0) {
+            level--;
+        }
+        nFrames = 0;
+    }
+
+    /**
+     * Goes back to full quality and forgets the recorded frames.
+     */
+    void reset() {
+        nFrames = 0;
+        level = 0;
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.epics.util.time.TimeDuration;
+
+/**
+ * Renders a graph for data and updates that arrive from other threads,
+ * at most at a given rate.
+ * <p>
+ * Data and updates can be submitted from any thread, at any rate. Only
+ * the latest data is rendered: data that is replaced before its frame starts
+ * is never drawn. The updates are copied when submitted, and merged in the
+ * order they were submitted into a single update, which is applied before
+ * the next frame. A new frame starts only after the
+ * previous one is done and the minimum interval between frames has
+ * passed, so frames are never dropped half-way and at most one thread
+ * works on the same graph.
+ * <p>
+ * The frames are rendered on a pool shared by all schedulers, with as many
+ * threads as processors. Each frame is drawn on a new {@link GraphBuffer},
+ * which is handed to the listener and not used afterwards.
+ *
+ * @param <U> the type of update for the renderer
+ * @param <D> the type of data
+ * @author carcassi
+ */
+public abstract class RenderScheduler<U extends Graph2DRendererUpdate<U>, D> {
+
+    /**
+     * Receives the frames once they are rendered.
+     */
+    public static interface FrameListener {
+
+        /**
+         * Called on a rendering thread when a frame is ready.
+         *
+         * @param graphBuffer the buffer with the frame
+         */
+        public void frameRendered(GraphBuffer graphBuffer);
+    }
+
+    private static final Logger log = Logger.getLogger(RenderScheduler.class.getName());
+
+    private static ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + " " + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static final ExecutorService renderPool = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), threadFactory("graphene render"));
+    private static final ScheduledExecutorService frameTimer = Executors.newSingleThreadScheduledExecutor(
+            threadFactory("graphene frame timer"));
+
+    private final Graph2DRenderer<U> renderer;
+    private final long minFrameIntervalNanos;
+    private final FrameListener listener;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private D pendingData;
+    private D lastData;
+    // The updates not applied yet, merged; null if none
+    private U pendingUpdate;
+    private boolean frameScheduled;
+    private long lastFrameStart;
+    private boolean firstFrame = true;
+
+    private final Runnable renderTask = new Runnable() {
+
+        @Override
+        public void run() {
+            render();
+        }
+    };
+
+    private final Runnable submitTask = new Runnable() {
+
+        @Override
+        public void run() {
+            renderPool.execute(renderTask);
+        }
+    };
+
+    private RenderScheduler(Graph2DRenderer<U> renderer, TimeDuration minFrameInterval, FrameListener listener) {
+        if (minFrameInterval.isNegative()) {
+            throw new IllegalArgumentException("Minimum frame interval must be positive (was " + minFrameInterval + ")");
+        }
+        if (listener == null) {
+            throw new NullPointerException("Listener can't be null");
+        }
+        this.renderer = renderer;
+        this.minFrameIntervalNanos = minFrameInterval.toNanosLong();
+        this.listener = listener;
+    }
+
+    /**
+     * Draws the data with the renderer.
+     *
+     * @param renderer the renderer
+     * @param graphBuffer the buffer to draw on
+     * @param data the data
+     */
+    abstract void draw(Graph2DRenderer<U> renderer, GraphBuffer graphBuffer, D data);
+
+    /**
+     * Creates a new update for the graph.
+     *
+     * @return a new update object
+     */
+    public U newUpdate() {
+        return renderer.newUpdate();
+    }
+
+    /**
+     * Submits new data for the graph. It replaces the data submitted before
+     * that was not rendered yet.
+     *
+     * @param data the data to render; can't be null
+     */
+    public void submit(D data) {
+        if (data == null) {
+            throw new NullPointerException("Data can't be null");
+        }
+        synchronized (lock) {
+            pendingData = data;
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Submits an update for the graph. It's applied before the next frame,
+     * which redraws the latest data. The update is copied, so it can
+     * be modified afterwards.
+     *
+     * @param update the update to apply; can't be null
+     */
+    public void update(U update) {
+        if (update == null) {
+            throw new NullPointerException("Update can't be null");
+        }
+        synchronized (lock) {
+            if (pendingUpdate == null) {
+                pendingUpdate = renderer.newUpdate();
+            }
+            pendingUpdate.merge(update);
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled || (pendingData == null && lastData == null)) {
+            return;
+        }
+        long delay = firstFrame ? 0 : lastFrameStart + minFrameIntervalNanos - System.nanoTime();
+        if (delay <= 0) {
+            renderPool.execute(renderTask);
+        } else {
+            frameTimer.schedule(submitTask, delay, TimeUnit.NANOSECONDS);
+        }
+        frameScheduled = true;
+    }
+
+    private void render() {
+        // The state is reset in the finally, so that not even an Error
+        // leaves the scheduler waiting for a frame that will never end
+        try {
+            D data;
+            U update;
+            synchronized (lock) {
+                if (pendingData != null) {
+                    lastData = pendingData;
+                    pendingData = null;
+                }
+                data = lastData;
+                update = pendingUpdate;
+                pendingUpdate = null;
+                lastFrameStart = System.nanoTime();
+                firstFrame = false;
+            }
+
+            if (update != null) {
+                renderer.update(update);
+            }
+            GraphBuffer graphBuffer = new GraphBuffer(renderer);
+            draw(renderer, graphBuffer, data);
+            listener.frameRendered(graphBuffer);
+        } catch (RuntimeException ex) {
+            log.log(Level.WARNING, "Couldn't render frame", ex);
+        } finally {
+            synchronized (lock) {
+                frameScheduled = false;
+                if (pendingData != null || pendingUpdate != null) {
+                    scheduleFrame();
+                }
+            }
+        }
+    }
+
+    /**
+     * A line graph rendered at most once every interval.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @param minFrameInterval the minimum time between the start of two frames
+     * @param listener receives the frames
+     * @return a new scheduler
+     */
+    public static RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset> lineGraph(int imageWidth, int imageHeight,
+            TimeDuration minFrameInterval, FrameListener listener) {
+        return new RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset>(
+                new LineGraph2DRenderer(imageWidth, imageHeight), minFrameInterval, listener) {
+
+            @Override
+            void draw(Graph2DRenderer<LineGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data) {
+                ((LineGraph2DRenderer) renderer).draw(graphBuffer, data);
+            }
+        };
+    }
+
+    /**
+     * A scatter graph rendered at most once every interval.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @param minFrameInterval the minimum time between the start of two frames
+     * @param listener receives the frames
+     * @return a new scheduler
+     */
+    public static RenderScheduler<ScatterGraph2DRendererUpdate, Point2DDataset> scatterGraph(int imageWidth, int imageHeight,
+            TimeDuration minFrameInterval, FrameListener listener) {
+        return new RenderScheduler<ScatterGraph2DRendererUpdate, Point2DDataset>(
+                new ScatterGraph2DRenderer(imageWidth, imageHeight), minFrameInterval, listener) {
+
+            @Override
+            void draw(Graph2DRenderer<ScatterGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Point2DDataset data) {
+                ((ScatterGraph2DRenderer) renderer).draw(graphBuffer.getGraphicsContext(), data);
+            }
+        };
+    }
+
+    /**
+     * An intensity graph rendered at most once every interval.
+     *
+     * @param imageWidth the graph width
+     * @param imageHeight the graph height
+     * @param minFrameInterval the minimum time between the start of two frames
+     * @param listener receives the frames
+     * @return a new scheduler
+     */
+    public static RenderScheduler<IntensityGraph2DRendererUpdate, Cell2DDataset> intensityGraph(int imageWidth, int imageHeight,
+            TimeDuration minFrameInterval, FrameListener listener) {
+        return new RenderScheduler<IntensityGraph2DRendererUpdate, Cell2DDataset>(
+                new IntensityGraph2DRenderer(imageWidth, imageHeight), minFrameInterval, listener) {
+
+            @Override
+            void draw(Graph2DRenderer<IntensityGraph2DRendererUpdate> renderer, GraphBuffer graphBuffer, Cell2DDataset data) {
+                ((IntensityGraph2DRenderer) renderer).draw(graphBuffer, data);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The scaled points of a line, and the buffers used to calculate them.
+ * The buffers only grow, so that redrawing a graph of the same size does
+ * not allocate.
+ *
+ * @author carcassi
+ */
+class ScaledData {
+
+    /**
+     * Number of values scaled at a time when going through the data.
+     */
+    static final int SCALING_CHUNK = 1024;
+
+    /**
+     * Buffers larger than this are not kept between frames.
+     */
+    static final int MAX_RETAINED_POINTS = 64 * 1024;
+
+    double[] scaledX = new double[0];
+    double[] scaledY = new double[0];
+    int start;
+    int end;
+    final double[] chunkX = new double[SCALING_CHUNK];
+    final double[] chunkY = new double[SCALING_CHUNK];
+    int[] bucketStart = new int[0];
+    double[] bucketAvgX = new double[0];
+    double[] bucketAvgY = new double[0];
+
+    /**
+     * Makes room for the given number of points, and empties the line.
+     *
+     * @param capacity the number of points
+     */
+    void prepare(int capacity) {
+        if (scaledX.length < capacity) {
+            scaledX = new double[capacity];
+            scaledY = new double[capacity];
+        }
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Makes room for the given number of points, keeping the ones
+     * already calculated.
+     *
+     * @param capacity the number of points
+     */
+    void ensureCapacity(int capacity) {
+        if (scaledX.length < capacity) {
+            scaledX = Arrays.copyOf(scaledX, 2 * capacity);
+            scaledY = Arrays.copyOf(scaledY, 2 * capacity);
+        }
+    }
+
+    /**
+     * Makes room for the given number of buckets.
+     *
+     * @param capacity the number of buckets
+     */
+    void prepareBuckets(int capacity) {
+        if (bucketAvgX.length < capacity) {
+            bucketStart = new int[capacity + 1];
+            bucketAvgX = new double[capacity];
+            bucketAvgY = new double[capacity];
+        }
+    }
+
+    /**
+     * The buffers of the lines of a graph, one for each line, as the lines
+     * are prepared in parallel. Buffers larger than a few reduced lines
+     * are not kept between frames.
+     */
+    static class Lines {
+
+        private final List<ScaledData> scaledData = new ArrayList<>();
+        private final List<Path2D.Double> paths = new ArrayList<>();
+
+        /**
+         * Makes sure there are buffers for the given number of lines.
+         *
+         * @param nLines the number of lines
+         */
+        void prepare(int nLines) {
+            while (scaledData.size() < nLines) {
+                scaledData.add(new ScaledData());
+                paths.add(new Path2D.Double());
+            }
+        }
+
+        ScaledData scaledData(int line) {
+            return scaledData.get(line);
+        }
+
+        Path2D.Double path(int line) {
+            return paths.get(line);
+        }
+
+        /**
+         * Drops the buffers of the lines that are no longer drawn, and the ones
+         * that grew past what a reduced line needs, so that a frame with many
+         * large lines does not stay in memory for the life of the renderer.
+         *
+         * @param nLines the number of lines drawn
+         */
+        void release(int nLines) {
+            while (scaledData.size() > nLines) {
+                scaledData.remove(scaledData.size() - 1);
+                paths.remove(paths.size() - 1);
+            }
+            for (int i = 0; i < scaledData.size(); i++) {
+                if (scaledData.get(i).scaledX.length > MAX_RETAINED_POINTS) {
+                    scaledData.set(i, new ScaledData());
+                    paths.set(i, new Path2D.Double());
+                }
+            }
+        }
+
+        /**
+         * The number of points held by the buffers between frames.
+         *
+         * @return the number of points
+         */
+        int retainedPoints() {
+            int points = 0;
+            for (ScaledData lineData : scaledData) {
+                points += lineData.scaledX.length;
+            }
+            return points;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.epics.util.array.ListNumber;
 public class ScatterGraph2DRenderer extends Graph2DRenderer<ScatterGraph2DRendererUpdate> {
     
     public static java.util.List<InterpolationScheme> supportedInterpolationScheme = Arrays.asList(InterpolationScheme.NONE, InterpolationScheme.LINEAR, InterpolationScheme.CUBIC);
+    public static java.util.List<ReductionScheme> supportedReductionScheme = Arrays.asList(ReductionScheme.NONE, ReductionScheme.FIRST_MAX_MIN_LAST, ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS);
 
     public ScatterGraph2DRenderer(int width, int height) {
         super(width, height);
@@ -26,6 +27,9 @@ public class ScatterGraph2DRenderer extends Graph2DRenderer<ScatterGraph2DRender
     }
     
     private InterpolationScheme interpolation = InterpolationScheme.NONE;
+    private ReductionScheme reduction = ReductionScheme.NONE;
+    // Number of points drawn between checks of the cancellation token
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
 
     @Override
     public ScatterGraph2DRendererUpdate newUpdate() {
@@ -38,16 +42,39 @@ public class ScatterGraph2DRenderer extends Graph2DRenderer<ScatterGraph2DRender
         if (update.getInterpolation() != null) {
             interpolation = update.getInterpolation();
         }
+        if (update.getDataReduction() != null) {
+            reduction = update.getDataReduction();
+        }
     }
 
     public void draw(Graphics2D g, Point2DDataset data) {
+        draw(g, data, null);
+    }
+    
+    /**
+     * Draws the graph on the given graphics context, stopping as soon as
+     * the token is cancelled.
+     * 
+     * @param g the graphics on which to display the data
+     * @param data the data to display
+     * @param cancellationToken the token of the draw; null if it can't be cancelled
+     * @throws java.util.concurrent.CancellationException if the token was cancelled
+     */
+    public void draw(Graphics2D g, Point2DDataset data, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        try {
+            drawCancellable(g, data);
+        } finally {
+            this.cancellationToken = null;
+        }
+    }
+    
+    private void drawCancellable(Graphics2D g, Point2DDataset data) {
+        long frameStart = System.nanoTime();
         // Prepare the plot area
         calculateRanges(data.getXStatistics(), data.getXDisplayRange(), data.getYStatistics(), data.getYDisplayRange());
         this.g = g;
-        calculateLabels();
-        calculateGraphArea();
-        drawBackground();
-        drawGraphArea();
+        calculateAndDrawGraphArea();
 
         // Draw the plot
         ListNumber xValues = data.getXValues();
@@ -57,15 +84,19 @@ public class ScatterGraph2DRenderer extends Graph2DRenderer<ScatterGraph2DRender
         setClip(g);
         g.setColor(Color.BLACK);
         for (int i = 0; i < xValues.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) {
+                checkCancelled();
+            }
             drawValue(g, xValues.getDouble(i), yValues.getDouble(i));
         }
         
         if (interpolation != InterpolationScheme.NONE) {
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            drawValueLine(data.getXValues(), data.getYValues(), interpolation);
+            drawValueLine(data.getXValues(), data.getYValues(), interpolation, reduction);
         }
-
+        
+        frameRendered(System.nanoTime() - frameStart);
     }
     
     private void drawValue(Graphics2D g, double x, double y) {
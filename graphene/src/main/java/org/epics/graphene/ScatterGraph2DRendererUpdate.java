@@ -11,6 +11,7 @@ package org.epics.graphene;
 public class ScatterGraph2DRendererUpdate extends Graph2DRendererUpdate<ScatterGraph2DRendererUpdate> {
 
     private InterpolationScheme interpolation;
+    private ReductionScheme reduction;
     
     public ScatterGraph2DRendererUpdate interpolation(InterpolationScheme scheme) {
         if (scheme == null) {
@@ -23,8 +24,40 @@ public class ScatterGraph2DRendererUpdate extends Graph2DRendererUpdate<ScatterG
         return this;
     }
     
+    /**
+     * Sets the data reduction scheme used for the interpolated line.
+     * 
+     * @param scheme can not be null, must be a supported scheme. Supported schemes:NONE,FIRST_MAX_MIN_LAST,LARGEST_TRIANGLE_THREE_BUCKETS
+     * @return this
+     */
+    public ScatterGraph2DRendererUpdate dataReduction(ReductionScheme scheme) {
+        if (scheme == null) {
+            throw new NullPointerException("Data reduction scheme can't be null");
+        }
+        if (!ScatterGraph2DRenderer.supportedReductionScheme.contains(scheme)) {
+            throw new IllegalArgumentException("Data reduction " + scheme + " is not supported");
+        }
+        this.reduction = scheme;
+        return this;
+    }
+    
     public InterpolationScheme getInterpolation() {
         return interpolation;
     }
     
+    public ReductionScheme getDataReduction() {
+        return reduction;
+    }
+    
+    @Override
+    void merge(ScatterGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.interpolation != null) {
+            interpolation = update.interpolation;
+        }
+        if (update.reduction != null) {
+            reduction = update.reduction;
+        }
+    }
+
 }
@@ -134,8 +134,16 @@ public class SparklineGraph2DRenderer extends Graph2DRenderer<SparklineGraph2DRe
         g.setColor(Color.BLACK);        
   
         //Calculates data values
-        SortedListView xValues = org.epics.util.array.ListNumbers.sortedView(data.getXValues());
-        ListNumber yValues = org.epics.util.array.ListNumbers.sortedView(data.getYValues(), xValues.getIndexes());        
+        ListNumber xValues;
+        ListNumber yValues;
+        if (Point2DDatasets.isXSorted(data)) {
+            xValues = data.getXValues();
+            yValues = data.getYValues();
+        } else {
+            SortedListView sortedXValues = org.epics.util.array.ListNumbers.sortedView(data.getXValues());
+            xValues = sortedXValues;
+            yValues = org.epics.util.array.ListNumbers.sortedView(data.getYValues(), sortedXValues.getIndexes());
+        }
         setClip(g);
         
         //Draws Line  
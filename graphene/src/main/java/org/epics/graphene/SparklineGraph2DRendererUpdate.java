@@ -165,4 +165,31 @@ public class SparklineGraph2DRendererUpdate extends Graph2DRendererUpdate<Sparkl
     public Double getAspectRatio(){
         return aspectRatio;
     }
+
+    @Override
+    void merge(SparklineGraph2DRendererUpdate update) {
+        super.merge(update);
+        if (update.minValueColor != null) {
+            minValueColor = update.minValueColor;
+        }
+        if (update.maxValueColor != null) {
+            maxValueColor = update.maxValueColor;
+        }
+        if (update.lastValueColor != null) {
+            lastValueColor = update.lastValueColor;
+        }
+        if (update.circleDiameter != null) {
+            circleDiameter = update.circleDiameter;
+        }
+        if (update.drawCircles != null) {
+            drawCircles = update.drawCircles;
+        }
+        if (update.interpolation != null) {
+            interpolation = update.interpolation;
+        }
+        if (update.aspectRatio != null) {
+            aspectRatio = update.aspectRatio;
+        }
+    }
+
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -82,6 +83,13 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
     
     protected Graphics2D g;
     
+    /**
+     * The buffer behind the graphics context, if drawing on a {@link GraphBuffer}.
+     * When set, lines that are 1 pixel wide and not antialiased are written
+     * directly in the buffer instead of being stroked by Java2D.
+     */
+    protected GraphBuffer graphBuffer;
+    
     // Renderer external parameter //
     
     // Size of the image
@@ -284,12 +292,8 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
     }
     
     protected void calculateGraphArea() {
-        TimeAxis timeAxis = timeScale.references(plotTimeInterval, 2, Math.max(2, getImageWidth() / 100));
         ValueAxis valueAxis = valueScale.references(plotValueRange, 2, Math.max(2, getImageHeight()/ 60));
-        timeReferenceLabels = timeAxis.getTickLabels();
         valueReferenceLabels = Arrays.asList(valueAxis.getTickLabels());
-        timeReferences = timeAxis.getTimestamps();
-        normalizedTimeReferences = timeAxis.getNormalizedValues();
         valueReferences = new ArrayDouble(valueAxis.getTickValues());
         
         labelFontMetrics = g.getFontMetrics(labelFont);
@@ -302,7 +306,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         int[] yLabelWidths = new int[valueReferenceLabels.size()];
         yLabelMaxWidth = 0;
         for (int i = 0; i < yLabelWidths.length; i++) {
-            yLabelWidths[i] = labelFontMetrics.stringWidth(valueReferenceLabels.get(i));
+            yLabelWidths[i] = TextCache.stringWidth(labelFontMetrics, valueReferenceLabels.get(i));
             yLabelMaxWidth = Math.max(yLabelMaxWidth, yLabelWidths[i]);
         }
         int areaFromLeft = leftMargin + yLabelMaxWidth + yLabelMargin;
@@ -322,6 +326,14 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         xPlotCoordWidth = xPlotCoordEnd - xPlotCoordStart;
         yPlotCoordHeight = yPlotCoordEnd - yPlotCoordStart;
         
+        // The time references depend on the plot interval, which may
+        // need the graph area to be computed
+        plotTimeInterval = alignPlotTimeInterval(plotTimeInterval);
+        TimeAxis timeAxis = timeScale.references(plotTimeInterval, 2, Math.max(2, getImageWidth() / 100));
+        timeReferenceLabels = timeAxis.getTickLabels();
+        timeReferences = timeAxis.getTimestamps();
+        normalizedTimeReferences = timeAxis.getNormalizedValues();
+        
         double[] xRefCoords = new double[normalizedTimeReferences.size()];
         for (int i = 0; i < xRefCoords.length; i++) {
             xRefCoords[i] = scaledX(normalizedTimeReferences.getDouble(i));
@@ -335,6 +347,17 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         yReferenceCoords = new ArrayDouble(yRefCoords);
     }
 
+    /**
+     * Adjusts the time interval of the plot once the graph area is known.
+     * The default implementation returns the interval unchanged.
+     * 
+     * @param plotTimeInterval the interval computed by the time axis range
+     * @return the interval to plot
+     */
+    protected TimeInterval alignPlotTimeInterval(TimeInterval plotTimeInterval) {
+        return plotTimeInterval;
+    }
+
     protected void drawBackground() {
         g.setColor(backgroundColor);
         g.fillRect(0, 0, getImageWidth(), getImageHeight());
@@ -352,41 +375,156 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         drawXLabels();
     }
     
+    /**
+     * Draws an implicit line given the interpolation scheme and the x,y values,
+     * without data reduction. The function will scale the values.
+     * 
+     * @param xValues the normalized time values
+     * @param yValues the y values
+     * @param interpolation the interpolation scheme
+     */
     protected void drawValueLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation) {
-        // Scale data and sort data
-        int dataCount = xValues.size();
-        double[] scaledX = new double[dataCount];
-        double[] scaledY = new double[dataCount];
-        for (int i = 0; i < scaledY.length; i++) {
-            scaledX[i] = scaledX(xValues.getDouble(i));
-            scaledY[i] = scaledY(yValues.getDouble(i));;
+        drawValueLine(xValues, yValues, interpolation, ReductionScheme.NONE);
+    }
+    
+    /**
+     * Draws an implicit line given the interpolation and reduction schemes
+     * and the x,y values. The function will scale the values.
+     * <p>
+     * The reduced data keeps, for each pixel column, the first, max, min and
+     * last value in that order, so that PREVIOUS_VALUE holds the last value
+     * of a column until the first value of the next one.
+     * 
+     * @param xValues the normalized time values
+     * @param yValues the y values
+     * @param interpolation the interpolation scheme
+     * @param reduction the reduction scheme
+     */
+    protected void drawValueLine(ListNumber xValues, ListNumber yValues, InterpolationScheme interpolation, ReductionScheme reduction) {
+        ScaledData scaledData;
+        
+        switch (reduction) {
+            default:
+                throw new IllegalArgumentException("Reduction scheme " + reduction + " not supported");
+            case NONE:
+                scaledData = scaleNoReduction(xValues, yValues);
+                break;
+            case FIRST_MAX_MIN_LAST:
+                scaledData = scaleFirstMaxMinLastReduction(xValues, yValues);
+                break;
         }
         
-        Path2D path;
+        path.reset();
         switch (interpolation) {
             default:
                 throw new IllegalArgumentException("Interpolation " + interpolation + " not supported");
             case NEAREST_NEIGHBOR:
-                path = nearestNeighbour(scaledX, scaledY);
+                nearestNeighbour(scaledData, path);
                 break;
             case PREVIOUS_VALUE:
-                path = previousValue(scaledX, scaledY);
+                previousValue(scaledData, path);
                 break;
             case LINEAR:
-                path = linearInterpolation(scaledX, scaledY);
+                linearInterpolation(scaledData, path);
                 break;
             case CUBIC:
-                path = cubicInterpolation(scaledX, scaledY);
+                cubicInterpolation(scaledData, path);
         }
 
         // Draw the line
-        g.draw(path);
+        if (graphBuffer != null && interpolation != InterpolationScheme.CUBIC && Graph2DRenderer.isPlainStroke(g)) {
+            graphBuffer.drawPolyline(path, g.getColor().getRGB(), g.getClipBounds());
+        } else {
+            g.draw(path);
+        }
+    }
+    
+    // Buffers reused from frame to frame: they only grow
+    private final ScaledData scaledData = new ScaledData();
+    // The path of the last line drawn, visible for testing
+    final Path2D.Double path = new Path2D.Double();
+    
+    private ScaledData scaleNoReduction(ListNumber xValues, ListNumber yValues) {
+        int dataCount = xValues.size();
+        scaledData.prepare(dataCount);
+        for (int i = 0; i < dataCount; i++) {
+            scaledData.scaledX[i] = scaledX(xValues.getDouble(i));
+        }
+        ValueScales.scaleValues(valueScale, yValues, 0, dataCount, scaledData.scaledY, yPlotValueStart, yPlotValueEnd, yPlotCoordEnd, yPlotCoordStart);
+        scaledData.end = dataCount;
+        return scaledData;
+    }
+    
+    private ScaledData scaleFirstMaxMinLastReduction(ListNumber xValues, ListNumber yValues) {
+        // The number of points generated by this is about 4 times the 
+        // number of points on the x axis. If the number of points is less
+        // than that, it's not worth it. Don't do the data reduction.
+        if (xValues.size() < xPlotCoordWidth * 4) {
+            return scaleNoReduction(xValues, yValues);
+        }
+        
+        // Each pixel column generates at most 4 points. Columns can only
+        // be outside the plot for points outside the time interval.
+        scaledData.prepare(((int) xPlotCoordWidth + 3) * 4);
+        double[] chunkY = scaledData.chunkY;
+        int cursor = 0;
+        int previousPixel = 0;
+        double first = Double.NaN;
+        double last = Double.NaN;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int chunkStart = 0; chunkStart < xValues.size(); chunkStart += ScaledData.SCALING_CHUNK) {
+            int chunkEnd = Math.min(chunkStart + ScaledData.SCALING_CHUNK, xValues.size());
+            ValueScales.scaleValues(valueScale, yValues, chunkStart, chunkEnd, chunkY, yPlotValueStart, yPlotValueEnd, yPlotCoordEnd, yPlotCoordStart);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                int currentPixel = (int) scaledX(xValues.getDouble(i));
+                double current = chunkY[i - chunkStart];
+                if (i != 0 && currentPixel == previousPixel) {
+                    last = current;
+                    min = MathIgnoreNaN.min(min, last);
+                    max = MathIgnoreNaN.max(max, last);
+                } else {
+                    if (i != 0) {
+                        cursor = addPixelColumn(scaledData, cursor, previousPixel, first, max, min, last);
+                    }
+                    previousPixel = currentPixel;
+                    first = current;
+                    last = current;
+                    min = current;
+                    max = current;
+                }
+            }
+        }
+        if (xValues.size() != 0) {
+            cursor = addPixelColumn(scaledData, cursor, previousPixel, first, max, min, last);
+        }
+        scaledData.end = cursor;
+        return scaledData;
+    }
+    
+    private static int addPixelColumn(ScaledData scaledData, int cursor, int pixel, double first, double max, double min, double last) {
+        scaledData.ensureCapacity(cursor + 4);
+        scaledData.scaledX[cursor] = pixel;
+        scaledData.scaledY[cursor] = first;
+        cursor++;
+        scaledData.scaledX[cursor] = pixel;
+        scaledData.scaledY[cursor] = max;
+        cursor++;
+        scaledData.scaledX[cursor] = pixel;
+        scaledData.scaledY[cursor] = min;
+        cursor++;
+        scaledData.scaledX[cursor] = pixel;
+        scaledData.scaledY[cursor] = last;
+        cursor++;
+        return cursor;
     }
 
-    private static Path2D.Double nearestNeighbour(double[] scaledX, double[] scaledY) {
-        Path2D.Double line = new Path2D.Double();
+    private static void nearestNeighbour(ScaledData scaledData, Path2D.Double line) {
+        double[] scaledX = scaledData.scaledX;
+        double[] scaledY = scaledData.scaledY;
+        int end = scaledData.end;
         line.moveTo(scaledX[0], scaledY[0]);
-        for (int i = 1; i < scaledY.length; i++) {
+        for (int i = 1; i < end; i++) {
             double halfX = scaledX[i - 1] + (scaledX[i] - scaledX[i - 1]) / 2;
             if (!java.lang.Double.isNaN(scaledY[i-1])) {
                 line.lineTo(halfX, scaledY[i - 1]);
@@ -396,32 +534,40 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                 line.moveTo(halfX, scaledY[i]);
             }
         }
-        line.lineTo(scaledX[scaledX.length - 1], scaledY[scaledY.length - 1]);
-        return line;
+        line.lineTo(scaledX[end - 1], scaledY[end - 1]);
     }
-//What does previousValue do?
-//Should it do the same thing as linearInterpolation?
-    private static Path2D.Double previousValue(double[] scaledX, double[] scaledY) {
-        Path2D.Double line = new Path2D.Double();
-        line.moveTo(scaledX[0], scaledY[0]);
-        // TODO: review for NaN support
-        for (int i = 1; i < scaledY.length; i++) {
-            line.lineTo(scaledX[i], scaledY[i-1]);
-            line.lineTo(scaledX[i], scaledY[i]);
+    private static void previousValue(ScaledData scaledData, Path2D.Double line) {
+        double[] scaledX = scaledData.scaledX;
+        double[] scaledY = scaledData.scaledY;
+        int end = scaledData.end;
+        for (int i = 0; i < end; i++) {
+            if (java.lang.Double.isNaN(scaledY[i])) {
+                // Hold the previous value until the missing one
+                if (i != 0 && !java.lang.Double.isNaN(scaledY[i - 1])) {
+                    line.lineTo(scaledX[i], scaledY[i - 1]);
+                }
+            } else if (i == 0 || java.lang.Double.isNaN(scaledY[i - 1])) {
+                // No previous value: start a new line
+                line.moveTo(scaledX[i], scaledY[i]);
+            } else {
+                // Hold the previous value, then step to the current one
+                line.lineTo(scaledX[i], scaledY[i - 1]);
+                line.lineTo(scaledX[i], scaledY[i]);
+            }
         }
-//        line.lineTo(scaledX[scaledX.length - 1], scaledY[scaledY.length - 1]);
         //TODO: last value till end of the graph 
-        return line;
     }
 
-    private static Path2D.Double linearInterpolation(double[] scaledX, double[] scaledY) {
-        Path2D.Double line = new Path2D.Double();
+    private static void linearInterpolation(ScaledData scaledData, Path2D.Double line) {
+        double[] scaledX = scaledData.scaledX;
+        double[] scaledY = scaledData.scaledY;
+        int end = scaledData.end;
 //        line.moveTo(scaledX[0], scaledY[0]);
 //        for (int i = 1; i < scaledY.length; i++) {
 //            line.lineTo(scaledX[i], scaledY[i]);
 //        }
         
-         for (int i = 0; i < scaledX.length; i++) {
+         for (int i = 0; i < end; i++) {
             // Do I have a current value?
             if (!java.lang.Double.isNaN(scaledY[i])) {
                 // Do I have a previous value?
@@ -431,7 +577,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                 } else {
                     // Don't have a previous value
                     // Do I have a next value?
-                    if (i != scaledX.length - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
+                    if (i != end - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
                         // There is no value before, but there is a value after
                         line.moveTo(scaledX[i], scaledY[i]);
                     } else {
@@ -442,12 +588,13 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                 }
             }
         }
-        return line;
     }
 
-    private static Path2D.Double cubicInterpolation(double[] scaledX, double[] scaledY) {
-        Path2D.Double path = new Path2D.Double();
-        for (int i = 0; i < scaledX.length; i++) {
+    private static void cubicInterpolation(ScaledData scaledData, Path2D.Double path) {
+        double[] scaledX = scaledData.scaledX;
+        double[] scaledY = scaledData.scaledY;
+        int end = scaledData.end;
+        for (int i = 0; i < end; i++) {
             
             double y1;
             double y2;
@@ -476,7 +623,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                     //Do I have value two before?
                     if (i > 0 + 1 && !java.lang.Double.isNaN(scaledY[i - 2])) {
                         //Do I have next value?
-                        if (i != scaledX.length - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
+                        if (i != end - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
                             y2 = scaledY[i];
                             x2 = scaledX[i];
                             y0 = scaledY[i - 2];
@@ -518,7 +665,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                             by2 = (bx2 - bx3) * bdy3 + by3;
                             path.curveTo(bx1, by1, bx2, by2, bx3, by3);
                         } 
-                    } else if (i != scaledX.length- 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
+                    } else if (i != end - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
                         //Have current , previous, and next, but not two before
                         path.moveTo(scaledX[i - 1], scaledY[i - 1]);
                         y2 = scaledY[i];
@@ -546,7 +693,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                 //have current, but not previous
                 }else{
                     // No previous value
-                    if (i != scaledX.length - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
+                    if (i != end - 1 && !java.lang.Double.isNaN(scaledY[i + 1])) {
                         // If we have the next value, just move, we'll draw later
                         path.moveTo(scaledX[i], scaledY[i]);
                     } else {
@@ -559,7 +706,6 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
                // Do nothing
              }
         }
-        return path;
 //        path.moveTo(scaledX[0], scaledY[0]);
 //        for (int i = 1; i < scaledY.length; i++) {
 //            // Extract 4 points (take care of boundaries)
@@ -606,7 +752,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
     private static final int MIN = 0;
     private static final int MAX = 1;
     
-    private static void drawHorizontalReferencesLabel(Graphics2D graphics, FontMetrics metrics, String text, int yCenter, int[] drawRange, int xRight, boolean updateMin, boolean centeredOnly) {
+    private static void drawHorizontalReferencesLabel(Graphics2D graphics, GraphBuffer graphBuffer, FontMetrics metrics, String text, int yCenter, int[] drawRange, int xRight, boolean updateMin, boolean centeredOnly) {
         // If the center is not in the range, don't draw anything
         if (drawRange[MAX] < yCenter || drawRange[MIN] > yCenter)
             return;
@@ -632,7 +778,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
             targetY = drawRange[MAX];
         }
 
-        Java2DStringUtilities.drawString(graphics, alignment, xRight, targetY, text);
+        Java2DStringUtilities.drawString(graphics, graphBuffer, alignment, xRight, targetY, text);
         
         if (updateMin) {
             drawRange[MAX] = targetY - metrics.getHeight();
@@ -641,7 +787,8 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         }
     }
     
-    private static void drawVerticalReferenceLabel(Graphics2D graphics, FontMetrics metrics, String text, int xCenter, int[] drawRange, int yTop, boolean updateMin, boolean centeredOnly) {
+    private static void drawVerticalReferenceLabel(Graphics2D graphics, GraphBuffer graphBuffer, FontMetrics metrics, String text, int xCenter, int[] drawRange, int yTop, boolean updateMin, boolean centeredOnly,
+            List<List<Object>> placements, boolean draw) {
         // If the center is not in the range, don't draw anything
         if (drawRange[MAX] < xCenter || drawRange[MIN] > xCenter)
             return;
@@ -652,7 +799,7 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
         
         Java2DStringUtilities.Alignment alignment = Java2DStringUtilities.Alignment.TOP;
         int targetX = xCenter;
-        int halfWidth = metrics.stringWidth(text) / 2;
+        int halfWidth = TextCache.stringWidth(metrics, text) / 2;
         if (xCenter < drawRange[MIN] + halfWidth) {
             // Can't be drawn in the center
             if (centeredOnly)
@@ -667,7 +814,10 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
             targetX = drawRange[MAX];
         }
 
-        Java2DStringUtilities.drawString(graphics, alignment, targetX, yTop, text);
+        placements.add(Arrays.<Object>asList(text, alignment, targetX, yTop));
+        if (draw) {
+            Java2DStringUtilities.drawString(graphics, graphBuffer, alignment, targetX, yTop, text);
+        }
         
         if (updateMin) {
             drawRange[MIN] = targetX + metrics.getHeight();
@@ -701,45 +851,63 @@ public abstract class TemporalGraph2DRenderer<T extends TemporalGraph2DRendererU
             // Draw first and last label
             int[] drawRange = new int[] {yAreaStart, yAreaEnd};
             int xRightLabel = (int) (xAreaStart - yLabelMargin - 1);
-            drawHorizontalReferencesLabel(g, metrics, valueReferenceLabels.get(0), (int) Math.floor(yTicks.getDouble(0)),
+            drawHorizontalReferencesLabel(g, graphBuffer, metrics, valueReferenceLabels.get(0), (int) Math.floor(yTicks.getDouble(0)),
                 drawRange, xRightLabel, true, false);
-            drawHorizontalReferencesLabel(g, metrics, valueReferenceLabels.get(valueReferenceLabels.size() - 1), (int) Math.floor(yTicks.getDouble(valueReferenceLabels.size() - 1)),
+            drawHorizontalReferencesLabel(g, graphBuffer, metrics, valueReferenceLabels.get(valueReferenceLabels.size() - 1), (int) Math.floor(yTicks.getDouble(valueReferenceLabels.size() - 1)),
                 drawRange, xRightLabel, false, false);
             
             for (int i = 1; i < valueReferenceLabels.size() - 1; i++) {
-                drawHorizontalReferencesLabel(g, metrics, valueReferenceLabels.get(i), (int) Math.floor(yTicks.getDouble(i)),
+                drawHorizontalReferencesLabel(g, graphBuffer, metrics, valueReferenceLabels.get(i), (int) Math.floor(yTicks.getDouble(i)),
                     drawRange, xRightLabel, true, false);
             }
         }
     }
 
     protected void drawXLabels() {
+        xLabels(true);
+    }
+    
+    /**
+     * Where the time labels are drawn, without drawing them: for each label
+     * that fits, the text, the alignment and the coordinates.
+     * 
+     * @return the placement of each label
+     */
+    List<List<Object>> xLabelsLayout() {
+        return xLabels(false);
+    }
+    
+    private List<List<Object>> xLabels(boolean draw) {
         // Draw X labels
+        List<List<Object>> placements = new ArrayList<>();
         ListNumber xTicks = xReferenceCoords;
         if (timeReferenceLabels != null && !timeReferenceLabels.isEmpty()) {
             //g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            g.setColor(labelColor);
-            g.setFont(labelFont);
-            FontMetrics metrics = g.getFontMetrics();
+            if (draw) {
+                g.setColor(labelColor);
+                g.setFont(labelFont);
+            }
+            FontMetrics metrics = g.getFontMetrics(labelFont);
 
             // Draw first and last label
             int[] drawRange = new int[] {xAreaStart, xAreaEnd};
             int yTop = (int) (yAreaEnd + xLabelMargin + 1);
             String firstHalf = timeReferenceLabels.get(0).substring(0, timeReferenceLabels.get(0).indexOf(" "));
             String secondHalf = timeReferenceLabels.get(0).substring(timeReferenceLabels.get(0).indexOf(" ") + 1);
-            drawVerticalReferenceLabel(g, metrics, secondHalf, (int) Math.floor(xTicks.getDouble(0)),
-                drawRange, yTop, true, false);
+            drawVerticalReferenceLabel(g, graphBuffer, metrics, secondHalf, (int) Math.floor(xTicks.getDouble(0)),
+                drawRange, yTop, true, false, placements, draw);
             drawRange[MIN] = xAreaStart;
-            drawVerticalReferenceLabel(g, metrics, firstHalf, (int) Math.floor(xTicks.getDouble(0)),
-                drawRange, yTop + xLabelMaxHeight + xRow2LabelMargin, true, false);
-            drawVerticalReferenceLabel(g, metrics, timeReferenceLabels.get(timeReferenceLabels.size() - 1), (int) Math.floor(xTicks.getDouble(timeReferenceLabels.size() - 1)),
-                drawRange, yTop, false, false);
+            drawVerticalReferenceLabel(g, graphBuffer, metrics, firstHalf, (int) Math.floor(xTicks.getDouble(0)),
+                drawRange, yTop + xLabelMaxHeight + xRow2LabelMargin, true, false, placements, draw);
+            drawVerticalReferenceLabel(g, graphBuffer, metrics, timeReferenceLabels.get(timeReferenceLabels.size() - 1), (int) Math.floor(xTicks.getDouble(timeReferenceLabels.size() - 1)),
+                drawRange, yTop, false, false, placements, draw);
             
             for (int i = 1; i < timeReferenceLabels.size() - 1; i++) {
-                drawVerticalReferenceLabel(g, metrics, timeReferenceLabels.get(i), (int) Math.floor(xTicks.getDouble(i)),
-                    drawRange, yTop, true, false);
+                drawVerticalReferenceLabel(g, graphBuffer, metrics, timeReferenceLabels.get(i), (int) Math.floor(xTicks.getDouble(i)),
+                    drawRange, yTop, true, false, placements, draw);
             }
         }
+        return placements;
     }
 
 }
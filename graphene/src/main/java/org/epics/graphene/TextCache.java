@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache for the text of the labels. For each string, it keeps the measures
+ * and the coverage mask of the rendered glyphs, so that labels can be measured
+ * and written on a {@link GraphBuffer} without going through the font
+ * rendering at every frame.
+ * <p>
+ * The mask does not depend on the color, so the key is the font,
+ * the font render context and the string.
+ *
+ * @author carcassi
+ */
+final class TextCache {
+
+    private TextCache() {
+    }
+
+    private static final int MAX_SIZE = 512;
+
+    private static final Map<List<Object>, Text> texts = new LinkedHashMap<List<Object>, Text>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Text> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * The cached text for the given string, as measured by the given metrics.
+     *
+     * @param metrics the metrics of the font used to draw the text
+     * @param text the string
+     * @return the cached text
+     */
+    static Text text(FontMetrics metrics, String text) {
+        List<Object> key = Arrays.<Object>asList(metrics.getFont(), metrics.getFontRenderContext(), text);
+        synchronized (texts) {
+            Text cached = texts.get(key);
+            if (cached == null) {
+                cached = new Text(metrics, text);
+                texts.put(key, cached);
+            }
+            return cached;
+        }
+    }
+
+    /**
+     * The width of the string, as returned by {@link FontMetrics#stringWidth(java.lang.String) }.
+     *
+     * @param metrics the metrics of the font used to draw the text
+     * @param text the string
+     * @return the advance width of the string
+     */
+    static int stringWidth(FontMetrics metrics, String text) {
+        return text(metrics, text).getWidth();
+    }
+
+    /**
+     * A string measured for a font and a font render context.
+     */
+    static final class Text {
+
+        private final Font font;
+        private final FontRenderContext frc;
+        private final String text;
+        private final Rectangle2D bounds;
+        private final int width;
+        // Created the first time the text is written on a buffer
+        private volatile Mask mask;
+
+        private Text(FontMetrics metrics, String text) {
+            this.font = metrics.getFont();
+            this.frc = metrics.getFontRenderContext();
+            this.text = text;
+            this.bounds = font.getStringBounds(text, frc);
+            this.width = metrics.stringWidth(text);
+        }
+
+        /**
+         * The logical bounds of the string, relative to the baseline.
+         * The returned rectangle is shared and should not be modified.
+         *
+         * @return the string bounds
+         */
+        Rectangle2D getBounds() {
+            return bounds;
+        }
+
+        /**
+         * The advance width of the string.
+         *
+         * @return the width in pixels
+         */
+        int getWidth() {
+            return width;
+        }
+
+        /**
+         * Whether the glyphs can be pre-rendered as a coverage mask. Subpixel
+         * antialiasing depends on the color of each channel, so it can't.
+         *
+         * @return true if the text can be written as a mask
+         */
+        boolean isMaskable() {
+            Object hint = frc.getAntiAliasingHint();
+            return !frc.isTransformed()
+                    && (hint == RenderingHints.VALUE_TEXT_ANTIALIAS_ON || hint == RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        }
+
+        /**
+         * Writes the text on the buffer, as {@link Graphics2D#drawString(java.lang.String, int, int) }
+         * would do on an opaque image.
+         *
+         * @param graphBuffer the buffer to write on
+         * @param x the left side of the baseline
+         * @param y the baseline
+         * @param rgb the text color
+         * @param clip the area where pixels can be written; null for the whole buffer
+         */
+        void draw(GraphBuffer graphBuffer, int x, int y, int rgb, Rectangle clip) {
+            Mask current = mask;
+            if (current == null) {
+                current = new Mask(font, frc, text);
+                mask = current;
+            }
+            if (current.width != 0 && current.height != 0) {
+                graphBuffer.drawMask(current.coverage, x + current.x, y + current.y, current.width, current.height, rgb, clip);
+            }
+        }
+    }
+
+    private static final class Mask {
+
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final byte[] coverage;
+
+        private Mask(Font font, FontRenderContext frc, String text) {
+            Rectangle pixelBounds = font.createGlyphVector(frc, text).getPixelBounds(frc, 0, 0);
+            x = pixelBounds.x;
+            y = pixelBounds.y;
+            width = pixelBounds.width;
+            height = pixelBounds.height;
+            if (width == 0 || height == 0) {
+                coverage = new byte[0];
+                return;
+            }
+
+            // Rendering white on black gives the coverage of each pixel
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, frc.getAntiAliasingHint());
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, frc.getFractionalMetricsHint());
+            g.setColor(Color.WHITE);
+            g.setFont(font);
+            g.drawString(text, -x, -y);
+            g.dispose();
+            coverage = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+}
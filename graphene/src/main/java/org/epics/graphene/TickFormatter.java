@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats the labels of the axis references with a fixed number of
+ * fraction digits, optionally followed by an exponent. The result is the same
+ * as a {@link java.text.DecimalFormat} with pattern "0.00...", but the digits
+ * are written in a buffer that is reused for each label. The only difference
+ * is on exact ties (e.g. 0.05 with one digit), which are always rounded
+ * on the binary value. References are multiples of the increment,
+ * so they are never ties.
+ * <p>
+ * A formatter is not thread-safe: each thread should create its own
+ * (e.g. one for each axis calculation), which is cheap.
+ *
+ * @author carcassi
+ */
+final class TickFormatter {
+
+    private static final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+    private static final char decimalSeparator = symbols.getDecimalSeparator();
+    private static final char minusSign = symbols.getMinusSign();
+
+    private static final double[] powersOfTen = new double[19];
+    static {
+        powersOfTen[0] = 1.0;
+        for (int i = 1; i < powersOfTen.length; i++) {
+            powersOfTen[i] = powersOfTen[i - 1] * 10.0;
+        }
+    }
+
+    // Above this, the error of the multiplication may change the rounding
+    private static final double maxFastUnits = 1.0e9;
+    private static final double tieTolerance = 1.0e-6;
+
+    private final int fractionDigits;
+    private final StringBuilder builder = new StringBuilder(24);
+    private final char[] digits = new char[20];
+
+    /**
+     * Creates a formatter that shows the given number of digits after
+     * the decimal separator.
+     *
+     * @param fractionDigits the number of fraction digits; can't be negative
+     */
+    TickFormatter(int fractionDigits) {
+        if (fractionDigits < 0) {
+            throw new IllegalArgumentException("Number of fraction digits must be non-negative (was " + fractionDigits + ")");
+        }
+        this.fractionDigits = fractionDigits;
+    }
+
+    /**
+     * Formats the value.
+     *
+     * @param value the value of the reference
+     * @return the label
+     */
+    String format(double value) {
+        builder.setLength(0);
+        appendValue(value);
+        return builder.toString();
+    }
+
+    /**
+     * Formats the value divided by the given power of ten, followed by
+     * "e" and the exponent.
+     *
+     * @param value the value of the reference
+     * @param exponent the power of ten
+     * @return the label
+     */
+    String format(double value, int exponent) {
+        builder.setLength(0);
+        appendValue(value / Math.pow(10.0, exponent));
+        builder.append('e').append(exponent);
+        return builder.toString();
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            builder.append("NaN");
+            return;
+        }
+
+        // Like DecimalFormat, the sign is kept even if the number is
+        // rounded to zero
+        boolean negative = value < 0.0 || (value == 0.0 && 1.0 / value < 0.0);
+        if (negative) {
+            builder.append(minusSign);
+        }
+        double abs = Math.abs(value);
+        if (Double.isInfinite(abs)) {
+            builder.append("Infinity");
+            return;
+        }
+
+        if (fractionDigits < powersOfTen.length) {
+            double scaled = abs * powersOfTen[fractionDigits];
+            double fraction = scaled - Math.floor(scaled);
+            if (scaled < maxFastUnits && Math.abs(fraction - 0.5) > tieTolerance) {
+                long units = Math.round(scaled);
+                int nDigits = 0;
+                do {
+                    digits[digits.length - 1 - nDigits] = (char) ('0' + (units % 10));
+                    units /= 10;
+                    nDigits++;
+                } while (units != 0);
+                appendUnscaled(digits, digits.length - nDigits, nDigits);
+                return;
+            }
+        }
+
+        // As DecimalFormat, start from the shortest decimal representation,
+        // but decide ties on the exact value of the double
+        BigDecimal decimal = new BigDecimal(Double.toString(abs));
+        BigDecimal rounded = decimal.setScale(fractionDigits, RoundingMode.HALF_UP);
+        if (!rounded.equals(decimal.setScale(fractionDigits, RoundingMode.HALF_DOWN))) {
+            rounded = new BigDecimal(abs).setScale(fractionDigits, RoundingMode.HALF_EVEN);
+        }
+        char[] unscaled = rounded.unscaledValue().toString().toCharArray();
+        appendUnscaled(unscaled, 0, unscaled.length);
+    }
+
+    private void appendUnscaled(char[] unscaled, int offset, int length) {
+        int integerDigits = length - fractionDigits;
+        if (integerDigits > 0) {
+            builder.append(unscaled, offset, integerDigits);
+        } else {
+            builder.append('0');
+        }
+        if (fractionDigits > 0) {
+            builder.append(decimalSeparator);
+            for (int i = integerDigits; i < 0; i++) {
+                builder.append('0');
+            }
+            int start = Math.max(integerDigits, 0);
+            builder.append(unscaled, offset + start, length - start);
+        }
+    }
+
+}
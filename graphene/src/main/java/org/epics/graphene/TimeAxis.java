@@ -5,24 +5,23 @@
 package org.epics.graphene;
 
 import java.math.BigDecimal;
-import java.text.*;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.epics.util.array.ListDouble;
 import org.epics.util.time.TimeInterval;
 import org.epics.util.time.Timestamp;
 
 /**
+ * The references of an axis. The axes returned by the scales are
+ * cached and shared, so their lists are unmodifiable.
  *
  * @author carcassi
  */
 public class TimeAxis {
     
-    private TimeInterval timeInterval;
-    private List<Timestamp> timeStamps;
-    private ListDouble normalizedValues;
-    private List<String> tickLabels;
+    private final TimeInterval timeInterval;
+    private final List<Timestamp> timeStamps;
+    private final ListDouble normalizedValues;
+    private final List<String> tickLabels;
 
     public TimeAxis(TimeInterval timeInterval, List<Timestamp> timeStamps, ListDouble normalizedValues, List<String> tickLabels) {
         this.timeInterval = timeInterval;
@@ -51,30 +50,6 @@ public class TimeAxis {
         return createAutoAxis(minValue, maxValue, maxTicks, Double.MIN_VALUE);
     }
     
-    private static final DecimalFormat defaultFormat = new DecimalFormat("0.###");
-    
-    private static final DecimalFormat decimal0 = new DecimalFormat("0");
-    private static final DecimalFormat decimal1 = new DecimalFormat("0.0");
-    private static final DecimalFormat decimal2 = new DecimalFormat("0.00");
-    
-    private static final Map<Integer, DecimalFormat> formats = new ConcurrentHashMap<Integer, DecimalFormat>();
-    
-    static DecimalFormat formatWithFixedSignificantDigits(int significantDigits) {
-        DecimalFormat result = formats.get(significantDigits);
-        if (result == null) {
-            StringBuilder pattern = new StringBuilder("0");
-            for (int i = 0; i < significantDigits; i++) {
-                if (i == 0) {
-                    pattern.append(".");
-                }
-                pattern.append("0");
-            }
-            result = new DecimalFormat(pattern.toString());
-            formats.put(significantDigits, result);
-        }
-        return result;
-    }
-    
     public static TimeAxis createAutoAxis(double minValue, double maxValue, int maxTicks, double minIncrement) {
         double increment = incrementForRange(minValue, maxValue, maxTicks, minIncrement);
         double[] ticks = createTicks(minValue, maxValue, increment);
@@ -85,45 +60,36 @@ public class TimeAxis {
         int incrementOrder = (int) orderOfMagnitude(increment);
         int nDigits = rangeOrder - incrementOrder;
         
-        // The format will decide how many significant digit to show
-        DecimalFormat format = defaultFormat;
-        // The normalization and the exponent will need to agree and
-        // decide what order of magnitude to format the number as
-        double normalization = 1.0;
-        String exponent = null;
+        // The formatter will decide how many significant digit to show
+        TickFormatter formatter;
+        // The exponent will decide what order of magnitude
+        // to format the number as
+        boolean useExponentialNotation;
         if (rangeOrder >= -3 && rangeOrder <= 3) {
+            useExponentialNotation = false;
             if (incrementOrder < 0) {
-                format = formatWithFixedSignificantDigits(-incrementOrder);
+                formatter = new TickFormatter(-incrementOrder);
             } else {
-                format = formatWithFixedSignificantDigits(0);
+                formatter = new TickFormatter(0);
             }
-        } else if (rangeOrder > 3) {
-            format = formatWithFixedSignificantDigits(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
-        } else if (rangeOrder < -3) {
-            format = formatWithFixedSignificantDigits(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
+        } else {
+            useExponentialNotation = true;
+            formatter = new TickFormatter(Math.max(nDigits, 0));
         }
         
         String[] labels = new String[ticks.length];
         for (int i = 0; i < ticks.length; i++) {
             double value = ticks[i];
-            labels[i] = format(value, format, exponent, normalization);
+            if (useExponentialNotation) {
+                labels[i] = formatter.format(value, rangeOrder);
+            } else {
+                labels[i] = formatter.format(value);
+            }
         }
         //return new TimeAxis(minValue, maxValue, ticks, labels);
         return null;// new TimeAxis(minValue, maxValue, ticks, labels);
     }
     
-    static String format(double number, DecimalFormat format, String exponent, double normalization) {
-        if (exponent != null) {
-            return format.format(number/normalization) + "e" + exponent;
-        } else {
-            return format.format(number/normalization);
-        }
-    }
-    
     static double orderOfMagnitude(double value) {
         return Math.floor(Math.log10(value));
     }
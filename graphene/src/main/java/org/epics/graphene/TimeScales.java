@@ -231,7 +231,14 @@ public class TimeScales {
         return value / range;
     }
     
-    private static TimestampFormat format = new TimestampFormat("yyyy/MM/dd HH:mm:ss.NNNNNNNNN");
+    // TimestampFormat is not thread-safe
+    private static final ThreadLocal<TimestampFormat> format = new ThreadLocal<TimestampFormat>() {
+
+        @Override
+        protected TimestampFormat initialValue() {
+            return new TimestampFormat("yyyy/MM/dd HH:mm:ss.NNNNNNNNN");
+        }
+    };
     private static ArrayInt possibleStopFromEnd = new ArrayInt(0,1,2,3,4,5,6,7,8,10,13,19,22,25,28);
     private static ArrayInt possibleStopFromStart = new ArrayInt(0,11,19,28);
     private static String zeroFormat = "0000/01/01 00:00:00.000000000";
@@ -241,9 +248,10 @@ public class TimeScales {
             return Collections.emptyList();
         }
         
+        TimestampFormat timestampFormat = format.get();
         List<String> result = new ArrayList<>(timestamps.size());
         for (Timestamp timestamp : timestamps) {
-            result.add(format.format(timestamp));
+            result.add(timestampFormat.format(timestamp));
         }
         
         return result;
@@ -5,26 +5,25 @@
 package org.epics.graphene;
 
 import java.math.BigDecimal;
-import java.text.*;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * The references of an axis. The axes returned by the scales are
+ * cached and shared, so the ticks are copied on each access.
  *
  * @author carcassi
  */
 public class ValueAxis {
     
-    private double minValue;
-    private double maxValue;
-    private double[] tickValues;
-    private String[] tickStrings;
+    private final double minValue;
+    private final double maxValue;
+    private final double[] tickValues;
+    private final String[] tickStrings;
 
     public ValueAxis(double minValue, double maxValue, double[] tickValues, String[] tickStrings) {
         this.minValue = minValue;
         this.maxValue = maxValue;
-        this.tickValues = tickValues;
-        this.tickStrings = tickStrings;
+        this.tickValues = tickValues.clone();
+        this.tickStrings = tickStrings.clone();
     }
 
     public double getMinValue() {
@@ -36,41 +35,17 @@ public class ValueAxis {
     }
 
     public double[] getTickValues() {
-        return tickValues;
+        return tickValues.clone();
     }
 
     public String[] getTickLabels() {
-        return tickStrings;
+        return tickStrings.clone();
     }
 
     public static ValueAxis createAutoAxis(double minValue, double maxValue, int maxTicks) {
         return createAutoAxis(minValue, maxValue, maxTicks, Double.MIN_VALUE);
     }
     
-    private static final DecimalFormat defaultFormat = new DecimalFormat("0.###");
-    
-    private static final DecimalFormat decimal0 = new DecimalFormat("0");
-    private static final DecimalFormat decimal1 = new DecimalFormat("0.0");
-    private static final DecimalFormat decimal2 = new DecimalFormat("0.00");
-    
-    private static final Map<Integer, DecimalFormat> formats = new ConcurrentHashMap<Integer, DecimalFormat>();
-    
-    static DecimalFormat formatWithFixedSignificantDigits(int significantDigits) {
-        DecimalFormat result = formats.get(significantDigits);
-        if (result == null) {
-            StringBuilder pattern = new StringBuilder("0");
-            for (int i = 0; i < significantDigits; i++) {
-                if (i == 0) {
-                    pattern.append(".");
-                }
-                pattern.append("0");
-            }
-            result = new DecimalFormat(pattern.toString());
-            formats.put(significantDigits, result);
-        }
-        return result;
-    }
-    
     public static ValueAxis createAutoAxis(double minValue, double maxValue, int maxTicks, double minIncrement) {
         double increment = incrementForRange(minValue, maxValue, maxTicks, minIncrement);
         double[] ticks = createTicks(minValue, maxValue, increment);
@@ -81,44 +56,35 @@ public class ValueAxis {
         int incrementOrder = (int) orderOfMagnitude(increment);
         int nDigits = rangeOrder - incrementOrder;
         
-        // The format will decide how many significant digit to show
-        DecimalFormat format = defaultFormat;
-        // The normalization and the exponent will need to agree and
-        // decide what order of magnitude to format the number as
-        double normalization = 1.0;
-        String exponent = null;
+        // The formatter will decide how many significant digit to show
+        TickFormatter formatter;
+        // The exponent will decide what order of magnitude
+        // to format the number as
+        boolean useExponentialNotation;
         if (rangeOrder >= -3 && rangeOrder <= 3) {
+            useExponentialNotation = false;
             if (incrementOrder < 0) {
-                format = formatWithFixedSignificantDigits(-incrementOrder);
+                formatter = new TickFormatter(-incrementOrder);
             } else {
-                format = formatWithFixedSignificantDigits(0);
+                formatter = new TickFormatter(0);
             }
-        } else if (rangeOrder > 3) {
-            format = formatWithFixedSignificantDigits(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
-        } else if (rangeOrder < -3) {
-            format = formatWithFixedSignificantDigits(nDigits);
-            normalization = Math.pow(10.0, rangeOrder);
-            exponent = Integer.toString(rangeOrder);
+        } else {
+            useExponentialNotation = true;
+            formatter = new TickFormatter(Math.max(nDigits, 0));
         }
         
         String[] labels = new String[ticks.length];
         for (int i = 0; i < ticks.length; i++) {
             double value = ticks[i];
-            labels[i] = format(value, format, exponent, normalization);
+            if (useExponentialNotation) {
+                labels[i] = formatter.format(value, rangeOrder);
+            } else {
+                labels[i] = formatter.format(value);
+            }
         }
         return new ValueAxis(minValue, maxValue, ticks, labels);
     }
     
-    static String format(double number, DecimalFormat format, String exponent, double normalization) {
-        if (exponent != null) {
-            return format.format(number/normalization) + "e" + exponent;
-        } else {
-            return format.format(number/normalization);
-        }
-    }
-    
     static double orderOfMagnitude(double value) {
         return Math.floor(Math.log10(value));
     }
@@ -4,6 +4,8 @@
  */
 package org.epics.graphene;
 
+import org.epics.util.array.ListNumber;
+
 /**
  * The <code>ValueScales</code> class is useful to create
  * different types of <code>ValueScale</code>s.
@@ -37,4 +39,36 @@ public class ValueScales {
     public static ValueScale logScale() {
         return new LogValueScale();
     }
+    
+    /**
+     * Scales a range of actual values to the scale values. This is equivalent
+     * to calling {@link ValueScale#scaleValue(double, double, double, double, double) }
+     * on each element: the linear and logarithmic scales do it without
+     * the overhead of a call per value.
+     * <p>
+     * The scaled value of element {@code from + i} is stored in
+     * {@code scaledValues[i]}.
+     * 
+     * @param scale the scale to use
+     * @param values actual values to be scaled
+     * @param from index of the first value to scale (inclusive)
+     * @param to index of the last value to scale (exclusive)
+     * @param scaledValues where the scaled values are stored
+     * @param minValue actual range min
+     * @param maxValue actual range max
+     * @param newMinValue scale range min
+     * @param newMaxValue scale range max
+     */
+    public static void scaleValues(ValueScale scale, ListNumber values, int from, int to, double[] scaledValues,
+            double minValue, double maxValue, double newMinValue, double newMaxValue) {
+        if (scale instanceof LinearValueScale) {
+            ((LinearValueScale) scale).scaleValues(values, from, to, scaledValues, minValue, maxValue, newMinValue, newMaxValue);
+        } else if (scale instanceof LogValueScale) {
+            ((LogValueScale) scale).scaleValues(values, from, to, scaledValues, minValue, maxValue, newMinValue, newMaxValue);
+        } else {
+            for (int i = from; i < to; i++) {
+                scaledValues[i - from] = scale.scaleValue(values.getDouble(i), minValue, maxValue, newMinValue, newMaxValue);
+            }
+        }
+    }
 }
@@ -5,6 +5,7 @@
 package org.epics.graphene;
 
 import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayInt;
 import org.epics.util.array.ListNumber;
 import org.epics.util.stats.Ranges;
 import org.junit.Test;
@@ -131,4 +132,126 @@ public class Cell2DDatasetsTest {
         assertThat(dataset.getValue(1, 1), equalTo(4.5));
         assertThat(dataset.getValue(2, 1), equalTo(6.0));
     }
+
+    @Test
+    public void decimated1() {
+        Cell2DDataset dataset = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x + 10 * y;
+            }
+        }, Ranges.range(0, 5), 5, Ranges.range(0, 3), 3);
+        Cell2DDataset decimated = Cell2DDatasets.decimated(dataset, 2, 2);
+
+        assertThat(decimated.getXCount(), equalTo(2));
+        assertThat(decimated.getYCount(), equalTo(2));
+        assertThat(decimated.getXBoundaries().size(), equalTo(3));
+        assertThat(decimated.getXBoundaries().getDouble(0), equalTo(0.0));
+        assertThat(decimated.getXBoundaries().getDouble(1), equalTo(3.0));
+        assertThat(decimated.getXBoundaries().getDouble(2), equalTo(5.0));
+        assertThat(decimated.getYBoundaries().getDouble(0), equalTo(0.0));
+        assertThat(decimated.getYBoundaries().getDouble(1), equalTo(2.0));
+        assertThat(decimated.getYBoundaries().getDouble(2), equalTo(3.0));
+        assertThat(decimated.getValue(0, 0), equalTo(dataset.getValue(0, 0)));
+        assertThat(decimated.getValue(1, 0), equalTo(dataset.getValue(3, 0)));
+        assertThat(decimated.getValue(0, 1), equalTo(dataset.getValue(0, 2)));
+        assertThat(decimated.getValue(1, 1), equalTo(dataset.getValue(3, 2)));
+        // The statistics and the ranges are the ones of the full data
+        assertThat(decimated.getStatistics(), sameInstance(dataset.getStatistics()));
+        assertThat(decimated.getXRange(), sameInstance(dataset.getXRange()));
+        assertThat(decimated.getYRange(), sameInstance(dataset.getYRange()));
+    }
+
+    @Test
+    public void decimated2() {
+        Cell2DDataset dataset = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x + 10 * y;
+            }
+        }, Ranges.range(0, 5), 5, Ranges.range(0, 3), 3);
+        assertThat(Cell2DDatasets.decimated(dataset, 5, 3), sameInstance(dataset));
+    }
+
+    @Test
+    public void getRow1() {
+        // Array backed, copied at once
+        ListNumber values = new ArrayDouble(5, 3, 7, -1, 2, 2);
+        Cell2DDataset dataset = Cell2DDatasets.datasetFrom(values, new ArrayDouble(-1, 0, 1), new ArrayDouble(0, 1, 2, 3));
+        assertThat(dataset, instanceOf(Cell2DRowDataset.class));
+        assertThat(((ConcurrentCell2DDataset) dataset).isRowCopyCheap(), equalTo(true));
+        double[] row = new double[3];
+        Cell2DDatasets.getRow(dataset, 1, 0, 2, row);
+        assertThat(row, equalTo(new double[] {7, -1, 0}));
+        Cell2DDatasets.getRow(dataset, 2, 1, 2, row);
+        assertThat(row, equalTo(new double[] {2, -1, 0}));
+
+        // Not backed by a double array
+        dataset = Cell2DDatasets.linearRange(new ArrayInt(5, 3, 7, -1, 2, 2), Ranges.range(0, 2), 2, Ranges.range(0, 3), 3);
+        row = new double[2];
+        Cell2DDatasets.getRow(dataset, 1, 0, 2, row);
+        assertThat(row, equalTo(new double[] {7, -1}));
+    }
+
+    @Test
+    public void getRow2() {
+        // Read one cell at a time
+        Cell2DDataset dataset = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x + 10 * y;
+            }
+        }, Ranges.range(0, 5), 5, Ranges.range(0, 3), 3);
+        assertThat(dataset, not(instanceOf(Cell2DRowDataset.class)));
+        double[] row = new double[3];
+        Cell2DDatasets.getRow(dataset, 2, 1, 4, row);
+        assertThat(row, equalTo(new double[] {26.5, 27.5, 28.5}));
+    }
+
+    @Test
+    public void datasetFromUnsignedBytes() {
+        byte[] values = new byte[] {5, 3, (byte) 200, -1, 2, 2};
+        Cell2DDataset dataset = Cell2DDatasets.datasetFromUnsignedBytes(values, new ArrayDouble(-1, 0, 1), new ArrayDouble(0, 1, 2, 3));
+        assertThat(dataset.getXCount(), equalTo(2));
+        assertThat(dataset.getYCount(), equalTo(3));
+        assertThat(dataset.getStatistics().getMinimum().doubleValue(), equalTo(2.0));
+        assertThat(dataset.getStatistics().getMaximum().doubleValue(), equalTo(255.0));
+        assertThat(dataset.getStatistics().getCount(), equalTo(6));
+        assertThat(dataset.getValue(0, 1), equalTo(200.0));
+        assertThat(dataset.getValue(1, 1), equalTo(255.0));
+        double[] row = new double[2];
+        Cell2DDatasets.getRow(dataset, 1, 0, 2, row);
+        assertThat(row, equalTo(new double[] {200, 255}));
+        int[] intRow = new int[2];
+        ((Cell2DIntegerDataset) dataset).getIntRow(1, 0, 2, intRow);
+        assertThat(intRow, equalTo(new int[] {200, 255}));
+        assertThat(((Cell2DIntegerDataset) dataset).getLevels(), equalTo(256));
+    }
+
+    @Test
+    public void datasetFromUnsignedShorts() {
+        short[] values = new short[] {5, 3, (byte) 200, -1, 2, 2};
+        Cell2DDataset dataset = Cell2DDatasets.datasetFromUnsignedShorts(values, new ArrayDouble(-1, 0, 1), new ArrayDouble(0, 1, 2, 3));
+        assertThat(dataset.getStatistics().getMaximum().doubleValue(), equalTo(65535.0));
+        assertThat(dataset.getValue(1, 1), equalTo(65535.0));
+        assertThat(dataset.getValue(0, 1), equalTo(65480.0));
+        int[] intRow = new int[1];
+        ((Cell2DIntegerDataset) dataset).getIntRow(1, 1, 2, intRow);
+        assertThat(intRow, equalTo(new int[] {65535}));
+        assertThat(((Cell2DIntegerDataset) dataset).getLevels(), equalTo(65536));
+    }
+
+    @Test
+    public void datasetFromFloats() {
+        float[] values = new float[] {5, 3, 7, -1, 2, 2.5f};
+        Cell2DDataset dataset = Cell2DDatasets.datasetFromFloats(values, new ArrayDouble(-1, 0, 1), new ArrayDouble(0, 1, 2, 3));
+        assertThat(dataset.getStatistics().getMinimum().doubleValue(), equalTo(-1.0));
+        assertThat(dataset.getStatistics().getMaximum().doubleValue(), equalTo(7.0));
+        assertThat(dataset.getValue(1, 2), equalTo(2.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void datasetFromUnsignedShorts2() {
+        Cell2DDatasets.datasetFromUnsignedShorts(new short[5], new ArrayDouble(-1, 0, 1), new ArrayDouble(0, 1, 2, 3));
+    }
 }
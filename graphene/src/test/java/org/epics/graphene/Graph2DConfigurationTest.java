@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.epics.util.array.ArrayDouble;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class Graph2DConfigurationTest {
+
+    private static BufferedImage lineGraph(Point2DDataset data, int imageWidth, int imageHeight) {
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(imageWidth, imageHeight);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer graphBuffer = new GraphBuffer(renderer);
+        renderer.draw(graphBuffer, data);
+        return graphBuffer.getImage();
+    }
+
+    @Test
+    public void update1() {
+        Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> configuration = Graph2DConfiguration.lineGraph();
+        LineGraph2DRendererUpdate update = configuration.newUpdate().interpolation(InterpolationScheme.LINEAR);
+        Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> newConfiguration = configuration.update(update);
+        assertThat(configuration.getUpdate().getInterpolation(), nullValue());
+        assertThat(newConfiguration.getUpdate().getInterpolation(), equalTo(InterpolationScheme.LINEAR));
+
+        // The update is copied
+        update.interpolation(InterpolationScheme.CUBIC);
+        assertThat(newConfiguration.getUpdate().getInterpolation(), equalTo(InterpolationScheme.LINEAR));
+        newConfiguration.getUpdate().interpolation(InterpolationScheme.CUBIC);
+        assertThat(newConfiguration.getUpdate().getInterpolation(), equalTo(InterpolationScheme.LINEAR));
+
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        ImageAssert.assertSameImage(lineGraph(data, 300, 200), newConfiguration.draw(data, 300, 200));
+    }
+
+    @Test
+    public void update2() {
+        // The updates are merged parameter by parameter
+        Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> configuration = Graph2DConfiguration.lineGraph();
+        configuration = configuration.update(configuration.newUpdate().interpolation(InterpolationScheme.CUBIC).leftMargin(5));
+        configuration = configuration.update(configuration.newUpdate().interpolation(InterpolationScheme.LINEAR).allAreaMargins(3));
+        LineGraph2DRendererUpdate update = configuration.getUpdate();
+        assertThat(update.getInterpolation(), equalTo(InterpolationScheme.LINEAR));
+        assertThat(update.getLeftMargin(), equalTo(5));
+        assertThat(update.getRightMargin(), nullValue());
+        assertThat(update.getTopAreaMargin(), equalTo(3));
+        assertThat(update.getDataReduction(), nullValue());
+    }
+
+    @Test
+    public void draw3() {
+        // Two clients drawing different data through the same configuration:
+        // the ranges of each frame don't depend on what the other drew
+        Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> configuration = Graph2DConfiguration.lineGraph();
+        configuration = configuration.update(configuration.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        Point2DDataset data1 = Point2DDatasets.lineData(new ArrayDouble(0, 1, 4, 9));
+        Point2DDataset data2 = Point2DDatasets.lineData(new ArrayDouble(0, 10, 40, 90, 160, 250));
+        for (Point2DDataset data : new Point2DDataset[] {data1, data2, data1, data2}) {
+            BufferedImage image = configuration.draw(data, 300, 200);
+            LineGraph2DRenderer fullRenderer = new LineGraph2DRenderer(300, 200);
+            fullRenderer.update(fullRenderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+            GraphBuffer fullBuffer = new GraphBuffer(fullRenderer);
+            fullRenderer.draw(fullBuffer, data);
+            assertThat(configuration.nextRenderer().getXPlotRange(), equalTo(fullRenderer.getXPlotRange()));
+            assertThat(configuration.nextRenderer().getYPlotRange(), equalTo(fullRenderer.getYPlotRange()));
+            ImageAssert.assertSameImage(fullBuffer.getImage(), image);
+        }
+    }
+
+    @Test
+    public void draw2() {
+        // The renderers are reused from one draw to the next
+        Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> configuration = Graph2DConfiguration.lineGraph();
+        configuration = configuration.update(configuration.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        assertThat(configuration.pooledRenderers(), equalTo(0));
+        for (int imageWidth : new int[] {300, 300, 250, 300}) {
+            ImageAssert.assertSameImage(lineGraph(data, imageWidth, 200), configuration.draw(data, imageWidth, 200));
+            assertThat(configuration.pooledRenderers(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void draw1() throws Exception {
+        // The same configuration drawn concurrently at different sizes
+        final Graph2DConfiguration<LineGraph2DRendererUpdate, Point2DDataset> configuration = Graph2DConfiguration.lineGraph()
+                .update(Graph2DConfiguration.lineGraph().newUpdate().interpolation(InterpolationScheme.LINEAR).imageWidth(50));
+        final Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        List<Callable<BufferedImage>> tasks = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            final int imageWidth = 200 + 50 * (i % 4);
+            tasks.add(new Callable<BufferedImage>() {
+
+                @Override
+                public BufferedImage call() throws Exception {
+                    return configuration.draw(data, imageWidth, 200);
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<BufferedImage>> images = executor.invokeAll(tasks);
+            for (int i = 0; i < images.size(); i++) {
+                ImageAssert.assertSameImage(lineGraph(data, 200 + 50 * (i % 4), 200), images.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
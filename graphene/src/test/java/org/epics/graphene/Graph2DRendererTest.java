@@ -5,9 +5,12 @@
 package org.epics.graphene;
 
 import java.awt.Graphics2D;
+import java.awt.geom.PathIterator;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.epics.util.array.ArrayDouble;
 import org.epics.util.stats.Ranges;
 import static org.hamcrest.Matchers.*;
@@ -350,5 +353,127 @@ public class Graph2DRendererTest {
         renderer.calculateLabels();
         renderer.drawValueExplicitLine(data.getXValues(), data.getYValues(), InterpolationScheme.LINEAR, ReductionScheme.FIRST_MAX_MIN_LAST);
     }
+    
+    @Test
+    public void processValueLargestTriangleThreeBuckets() throws Exception {
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 100.0);
+        }
+        final Point2DDataset data = Point2DDatasets.lineData(values);
+        final int[] processed = new int[] {0};
+        Graph2DRenderer<?> renderer = new Graph2DRenderer<Graph2DRendererUpdate>(300, 200) {
+            @Override
+            public Graph2DRendererUpdate newUpdate() {
+                return new Graph2DRendererUpdate();
+            }
+
+            @Override
+            protected void processScaledValue(int index, double valueX, double valueY, double scaledX, double scaledY) {
+                assertThat(index, equalTo(processed[0]));
+                assertThat(data.getXValues().getDouble(index), equalTo(valueX));
+                assertThat(data.getYValues().getDouble(index), equalTo(valueY));
+                processed[0]++;
+            }
+            
+        };
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = (Graphics2D) image.getGraphics();
+        renderer.g = graphics;
+        renderer.calculateRanges(data.getXStatistics(), data.getXDisplayRange(), data.getYStatistics(), data.getYDisplayRange());
+        renderer.calculateLabels();
+        renderer.calculateGraphArea();
+        renderer.drawValueExplicitLine(data.getXValues(), data.getYValues(), InterpolationScheme.LINEAR, ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS);
+        assertThat(processed[0], equalTo(values.length));
+    }
+
+    @Test
+    public void largestTriangleThreeBuckets1() throws Exception {
+        // A slow sine with a sharp peak of a single point
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 1000.0);
+        }
+        values[5003] = 10;
+        Point2DDataset data = Point2DDatasets.lineData(values);
+        Graph2DRenderer<?> renderer = new Graph2DRenderer<Graph2DRendererUpdate>(300, 200) {
+            @Override
+            public Graph2DRendererUpdate newUpdate() {
+                return new Graph2DRendererUpdate();
+            }
+        };
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = (Graphics2D) image.getGraphics();
+        renderer.g = graphics;
+        renderer.calculateRanges(data.getXStatistics(), data.getXDisplayRange(), data.getYStatistics(), data.getYDisplayRange());
+        renderer.calculateLabels();
+        renderer.calculateGraphArea();
+        renderer.drawValueExplicitLine(data.getXValues(), data.getYValues(), InterpolationScheme.LINEAR, ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS);
+
+        List<double[]> vertices = new ArrayList<>();
+        for (PathIterator iterator = renderer.reusedPath.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            double[] coords = new double[6];
+            int type = iterator.currentSegment(coords);
+            assertThat(type, either(equalTo(PathIterator.SEG_MOVETO)).or(equalTo(PathIterator.SEG_LINETO)));
+            vertices.add(coords);
+        }
+
+        // About one vertex for each pixel column, plus the first and last points
+        int columns = (int) renderer.xPlotCoordWidth + 1;
+        assertThat(vertices.size(), both(greaterThanOrEqualTo(columns - 2)).and(lessThanOrEqualTo(columns + 3)));
+        assertThat(vertices.get(0)[0], equalTo(renderer.scaledX(0)));
+        assertThat(vertices.get(0)[1], equalTo(renderer.scaledY(values[0])));
+        assertThat(vertices.get(vertices.size() - 1)[0], equalTo(renderer.scaledX(values.length - 1)));
+        assertThat(vertices.get(vertices.size() - 1)[1], equalTo(renderer.scaledY(values[values.length - 1])));
+
+        // The peak is kept
+        boolean peakFound = false;
+        for (double[] vertex : vertices) {
+            if (vertex[0] == renderer.scaledX(5003) && vertex[1] == renderer.scaledY(10)) {
+                peakFound = true;
+            }
+        }
+        assertTrue("Peak not kept", peakFound);
+    }
+
+    @Test
+    public void processValue6() throws Exception {
+        // A renderer that overrides processScaledValue prepares
+        // the lines on the drawing thread
+        final List<Point2DDataset> data = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            data.add(Point2DDatasets.lineData(new ArrayDouble(1, 2, 3, 4, 5), new ArrayDouble(1, 3, 5, 7, 9 + i)));
+        }
+        final Thread drawingThread = Thread.currentThread();
+        final int[] processed = new int[] {0};
+        Graph2DRenderer<?> renderer = new Graph2DRenderer<Graph2DRendererUpdate>(300, 200) {
+            @Override
+            public Graph2DRendererUpdate newUpdate() {
+                return new Graph2DRendererUpdate();
+            }
+
+            @Override
+            protected void processScaledValue(int index, double valueX, double valueY, double scaledX, double scaledY) {
+                assertThat(Thread.currentThread(), sameInstance(drawingThread));
+                processed[0]++;
+            }
+            
+        };
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = (Graphics2D) image.getGraphics();
+        renderer.g = graphics;
+        renderer.calculateRanges(data.get(0).getXStatistics(), data.get(0).getXDisplayRange(), data.get(3).getYStatistics(), data.get(3).getYDisplayRange());
+        renderer.calculateLabels();
+        renderer.calculateGraphArea();
+        renderer.drawValueExplicitLines(data, Collections.nCopies(4, java.awt.Color.BLACK), InterpolationScheme.LINEAR, ReductionScheme.NONE);
+        assertThat(processed[0], equalTo(20));
+    }
+
+    @Test
+    public void overridesProcessScaledValue1() {
+        assertFalse(Graph2DRenderer.overridesProcessScaledValue(LineGraph2DRenderer.class));
+        assertFalse(Graph2DRenderer.overridesProcessScaledValue(MultiAxisLineGraph2DRenderer.class));
+        assertTrue(Graph2DRenderer.overridesProcessScaledValue(SparklineGraph2DRenderer.class));
+    }
 
 }
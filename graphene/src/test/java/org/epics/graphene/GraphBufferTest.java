@@ -5,9 +5,18 @@
 package org.epics.graphene;
 
 import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import org.epics.util.array.ArrayDouble;
 import org.epics.util.array.ArrayInt;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListNumbers;
 import org.epics.util.stats.Ranges;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -156,4 +165,278 @@ public class GraphBufferTest {
         graphBuffer.drawVerticalReferenceLines(positions, Color.BLACK, 5, 194);
         ImageAssert.compareImages("graphBuffer.drawVerticalReferenceLines", graphBuffer.getImage());
     }
+
+    @Test
+    public void drawPolyline1() throws Exception {
+        GraphBuffer graphBuffer = new GraphBuffer(10, 10);
+        graphBuffer.drawBackground(Color.WHITE);
+        Path2D.Double line = new Path2D.Double();
+        line.moveTo(1.5, 1.5);
+        line.lineTo(5.5, 1.5);
+        line.lineTo(5.5, 4.5);
+        line.lineTo(2.5, 7.5);
+        graphBuffer.drawPolyline(line, Color.BLACK.getRGB(), null);
+        BufferedImage image = graphBuffer.getImage();
+        for (int x = 1; x <= 5; x++) {
+            assertThat(image.getRGB(x, 1), equalTo(Color.BLACK.getRGB()));
+        }
+        for (int y = 1; y <= 4; y++) {
+            assertThat(image.getRGB(5, y), equalTo(Color.BLACK.getRGB()));
+        }
+        for (int i = 0; i <= 3; i++) {
+            assertThat(image.getRGB(5 - i, 4 + i), equalTo(Color.BLACK.getRGB()));
+        }
+        assertThat(image.getRGB(0, 1), equalTo(Color.WHITE.getRGB()));
+        assertThat(image.getRGB(6, 1), equalTo(Color.WHITE.getRGB()));
+        assertThat(image.getRGB(4, 2), equalTo(Color.WHITE.getRGB()));
+        assertThat(image.getRGB(2, 8), equalTo(Color.WHITE.getRGB()));
+    }
+
+    @Test
+    public void shiftLeft1() throws Exception {
+        GraphBuffer graphBuffer = new GraphBuffer(10, 10);
+        graphBuffer.drawBackground(Color.WHITE);
+        graphBuffer.getImage().setRGB(5, 3, Color.RED.getRGB());
+        graphBuffer.getImage().setRGB(1, 3, Color.BLUE.getRGB());
+        graphBuffer.getImage().setRGB(7, 4, Color.GREEN.getRGB());
+        graphBuffer.shiftLeft(2, 2, 6, 6, 2);
+        BufferedImage image = graphBuffer.getImage();
+        assertThat(image.getRGB(3, 3), equalTo(Color.RED.getRGB()));
+        assertThat(image.getRGB(5, 3), equalTo(Color.WHITE.getRGB()));
+        assertThat(image.getRGB(5, 4), equalTo(Color.GREEN.getRGB()));
+        // Outside of the area nothing moves
+        assertThat(image.getRGB(1, 3), equalTo(Color.BLUE.getRGB()));
+        // The exposed columns are left as they were
+        assertThat(image.getRGB(7, 4), equalTo(Color.GREEN.getRGB()));
+    }
+
+    @Test
+    public void drawPolyline2() throws Exception {
+        // Line crossing the clip, with a gap
+        GraphBuffer graphBuffer = new GraphBuffer(10, 10);
+        graphBuffer.drawBackground(Color.WHITE);
+        Path2D.Double line = new Path2D.Double();
+        line.moveTo(-100.5, 5.5);
+        line.lineTo(100.5, 5.5);
+        line.moveTo(5.5, java.lang.Double.NaN);
+        line.lineTo(5.5, 8.5);
+        graphBuffer.drawPolyline(line, Color.RED.getRGB(), new Rectangle(2, 2, 6, 6));
+        BufferedImage image = graphBuffer.getImage();
+        for (int x = 0; x < 10; x++) {
+            if (x >= 2 && x < 8) {
+                assertThat(image.getRGB(x, 5), equalTo(Color.RED.getRGB()));
+            } else {
+                assertThat(image.getRGB(x, 5), equalTo(Color.WHITE.getRGB()));
+            }
+        }
+        assertThat(image.getRGB(5, 6), equalTo(Color.WHITE.getRGB()));
+    }
+
+    @Test
+    public void setPixel1() throws Exception {
+        int[] imageTypes = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB};
+        for (int imageType : imageTypes) {
+            GraphBuffer graphBuffer = new GraphBuffer(10, 10, imageType);
+            graphBuffer.drawBackground(Color.WHITE);
+            graphBuffer.setPixel(3, 2, 0xFF123456);
+            graphBuffer.setPixel(9, 9, 0xFF654321);
+            BufferedImage image = graphBuffer.getImage();
+            assertThat(image.getRGB(3, 2), equalTo(0xFF123456));
+            assertThat(image.getRGB(9, 9), equalTo(0xFF654321));
+            assertThat(image.getRGB(4, 2), equalTo(Color.WHITE.getRGB()));
+            assertThat(image.getRGB(3, 3), equalTo(Color.WHITE.getRGB()));
+        }
+        
+        // The alpha is kept only when the image has an alpha channel
+        GraphBuffer graphBuffer = new GraphBuffer(10, 10, BufferedImage.TYPE_INT_ARGB);
+        graphBuffer.setPixel(1, 1, 0x80123456);
+        assertThat(graphBuffer.getImage().getRGB(1, 1), equalTo(0x80123456));
+        graphBuffer = new GraphBuffer(10, 10, BufferedImage.TYPE_4BYTE_ABGR);
+        graphBuffer.setPixel(1, 1, 0x80123456);
+        assertThat(graphBuffer.getImage().getRGB(1, 1), equalTo(0x80123456));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void new1() throws Exception {
+        new GraphBuffer(10, 10, BufferedImage.TYPE_BYTE_GRAY);
+    }
+    
+    @Test
+    public void intRgb1() throws Exception {
+        // A line graph on an int image is the same as on a byte image,
+        // also when the graph area is restored from the previous frame
+        LineGraph2DRenderer byteRenderer = new LineGraph2DRenderer(300, 200);
+        LineGraph2DRenderer intRenderer = new LineGraph2DRenderer(300, 200);
+        GraphBuffer byteBuffer = new GraphBuffer(300, 200);
+        GraphBuffer intBuffer = new GraphBuffer(300, 200, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 2; i++) {
+            byteRenderer.draw(byteBuffer, Point2DTestDatasets.sharpPeakData());
+            intRenderer.draw(intBuffer, Point2DTestDatasets.sharpPeakData());
+            ImageAssert.assertSameImage(byteBuffer.getImage(), intBuffer.getImage());
+        }
+    }
+    
+    @Test
+    public void intRgb2() throws Exception {
+        // An intensity graph with legend on an int image is the same as on a byte image
+        Cell2DDataset data = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x * x + y;
+            }
+        }, Ranges.range(0, 10), 37, Ranges.range(0, 10), 23);
+        IntensityGraph2DRenderer renderer = new IntensityGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().drawLegend(true));
+        GraphBuffer byteBuffer = new GraphBuffer(300, 200);
+        renderer.draw(byteBuffer, data);
+        GraphBuffer intBuffer = new GraphBuffer(300, 200, BufferedImage.TYPE_INT_RGB);
+        renderer.draw(intBuffer, data);
+        ImageAssert.assertSameImage(byteBuffer.getImage(), intBuffer.getImage());
+        GraphBuffer intAlphaBuffer = new GraphBuffer(300, 200, BufferedImage.TYPE_INT_ARGB);
+        renderer.draw(intAlphaBuffer, data);
+        ImageAssert.assertSameImage(byteBuffer.getImage(), intAlphaBuffer.getImage());
+    }
+
+    @Test
+    public void drawDataImage1() throws Exception {
+        // Filled in parallel stripes, with repeated rows across the
+        // stripe boundaries
+        int imageWidth = 1000;
+        int imageHeight = 800;
+        double[] values = new double[300 * 7];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 300) * (i / 300) / 2.1;
+        }
+        Cell2DDataset data = Cell2DDatasets.linearRange(new ArrayDouble(values), Ranges.range(0, 10), 300, Ranges.range(0, 10), 7);
+        NumberColorMapInstance colorMap = NumberColorMaps.JET.createInstance(Ranges.range(0, 100));
+        int[] xMap = new int[imageWidth - 20];
+        for (int i = 0; i < xMap.length; i++) {
+            xMap[i] = i * 300 / xMap.length;
+        }
+        int[] yMap = new int[imageHeight - 20];
+        for (int i = 0; i < yMap.length; i++) {
+            yMap[i] = i * 7 / yMap.length;
+        }
+        for (int imageType : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB}) {
+            GraphBuffer graphBuffer = new GraphBuffer(imageWidth, imageHeight, imageType);
+            graphBuffer.drawBackground(Color.WHITE);
+            graphBuffer.drawDataImage(10, 10, xMap, yMap, data, colorMap, null, 6);
+            BufferedImage image = graphBuffer.getImage();
+            for (int y = 0; y < imageHeight; y++) {
+                for (int x = 0; x < imageWidth; x++) {
+                    int expected = Color.WHITE.getRGB();
+                    if (x >= 10 && x < imageWidth - 10 && y >= 10 && y < imageHeight - 10) {
+                        expected = colorMap.colorFor(data.getValue(xMap[x - 10], yMap[y - 10]));
+                    }
+                    if (image.getRGB(x, y) != expected) {
+                        fail("Wrong pixel at (" + x + ", " + y + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void drawDataImage2() throws Exception {
+        // Only part of the rows of an array backed dataset are displayed
+        double[] values = new double[40 * 30];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 97;
+        }
+        Cell2DDataset data = Cell2DDatasets.datasetFrom(new ArrayDouble(values),
+                ListNumbers.linearListFromRange(0, 40, 41), ListNumbers.linearListFromRange(0, 30, 31));
+        NumberColorMapInstance colorMap = NumberColorMaps.JET.createInstance(Ranges.range(0, 100));
+        int[] xMap = new int[100];
+        for (int i = 0; i < xMap.length; i++) {
+            xMap[i] = 10 + i * 20 / xMap.length;
+        }
+        int[] yMap = new int[60];
+        for (int i = 0; i < yMap.length; i++) {
+            yMap[i] = 29 - i / 2;
+        }
+        GraphBuffer graphBuffer = new GraphBuffer(120, 80);
+        graphBuffer.drawBackground(Color.WHITE);
+        graphBuffer.drawDataImage(10, 10, xMap, yMap, data, colorMap);
+        BufferedImage image = graphBuffer.getImage();
+        for (int y = 0; y < yMap.length; y++) {
+            for (int x = 0; x < xMap.length; x++) {
+                if (image.getRGB(10 + x, 10 + y) != colorMap.colorFor(values[yMap[y] * 40 + xMap[x]])) {
+                    fail("Wrong pixel at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void drawDataImage3() throws Exception {
+        // Unsigned values colored through the table look the same as
+        // the values widened to double
+        short[] values = new short[300 * 200];
+        double[] doubleValues = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (short) (i * 7);
+            doubleValues[i] = values[i] & 0xFFFF;
+        }
+        ListNumber xBoundaries = ListNumbers.linearListFromRange(0, 300, 301);
+        ListNumber yBoundaries = ListNumbers.linearListFromRange(0, 200, 201);
+        Cell2DDataset data = Cell2DDatasets.datasetFromUnsignedShorts(values, xBoundaries, yBoundaries);
+        Cell2DDataset doubleData = Cell2DDatasets.datasetFrom(new ArrayDouble(doubleValues), xBoundaries, yBoundaries);
+        NumberColorMapInstance colorMap = NumberColorMaps.JET.createInstance(Ranges.range(0, 65535));
+        int[] xMap = new int[600];
+        for (int i = 0; i < xMap.length; i++) {
+            xMap[i] = i / 2;
+        }
+        int[] yMap = new int[400];
+        for (int i = 0; i < yMap.length; i++) {
+            yMap[i] = 199 - i / 2;
+        }
+        for (int imageType : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB}) {
+            GraphBuffer graphBuffer = new GraphBuffer(600, 400, imageType);
+            graphBuffer.drawDataImage(0, 0, xMap, yMap, data, colorMap);
+            GraphBuffer expected = new GraphBuffer(600, 400, imageType);
+            expected.drawDataImage(0, 0, xMap, yMap, doubleData, colorMap);
+            ImageAssert.assertSameImage(expected.getImage(), graphBuffer.getImage());
+        }
+    }
+
+    @Test
+    public void drawDataImage4() throws Exception {
+        // A dataset that is not known to allow concurrent reads is only
+        // read by the thread that draws
+        final Cell2DDataset functionData = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x * y;
+            }
+        }, Ranges.range(0, 10), 300, Ranges.range(0, 10), 200);
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        Cell2DDataset data = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                threads.add(Thread.currentThread());
+                return x * y;
+            }
+        }, Ranges.range(0, 10), 300, Ranges.range(0, 10), 200);
+        threads.clear();
+        NumberColorMapInstance colorMap = NumberColorMaps.JET.createInstance(Ranges.range(0, 100));
+        int[] xMap = new int[600];
+        for (int i = 0; i < xMap.length; i++) {
+            xMap[i] = i / 2;
+        }
+        int[] yMap = new int[400];
+        for (int i = 0; i < yMap.length; i++) {
+            yMap[i] = i / 2;
+        }
+        GraphBuffer graphBuffer = new GraphBuffer(600, 400);
+        graphBuffer.drawDataImage(0, 0, xMap, yMap, data, colorMap, null, 6);
+        assertThat(threads, equalTo(Collections.singleton(Thread.currentThread())));
+        for (int y = 0; y < yMap.length; y++) {
+            for (int x = 0; x < xMap.length; x++) {
+                if (graphBuffer.getImage().getRGB(x, y) != colorMap.colorFor(functionData.getValue(xMap[x], yMap[y]))) {
+                    fail("Wrong pixel at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
 }
@@ -38,5 +38,24 @@ public class ImageAssert {
                 }
             }
         }
+    }
+    
+    /**
+     * Checks that two images, usually drawn in different ways, have the same
+     * size and the same pixels.
+     * 
+     * @param expected the reference image
+     * @param actual the image to check
+     */
+    public static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals("Images are not the same height", expected.getHeight(), actual.getHeight());
+        assertEquals("Images are not the same width", expected.getWidth(), actual.getWidth());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    fail("Images differ at (" + x + ", " + y + ")");
+                }
+            }
+        }
     }    
 }
@@ -5,11 +5,16 @@
 package org.epics.graphene;
 
 import org.epics.util.stats.Range;
+import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import org.junit.Test;
 import org.epics.util.array.*;
 import org.epics.util.stats.Ranges;
+import org.epics.util.stats.Statistics;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
@@ -433,6 +438,33 @@ public class IntensityGraph2DRendererTest extends BaseGraphTest<IntensityGraph2D
         ImageAssert.compareImages("intensityGraph2D.addRemoveLegend.1", graphBuffer.getImage());
     }
 
+    @Test
+    public void graphBufferCachedGraphArea1() throws Exception {
+        // The graph area is reused while only the selection changes, and
+        // drawn again when the legend, the colors or the size change
+        Cell2DDataset data = ellipticParaboloid(200, Ranges.range(0, 100), 200, Ranges.range(0, 100));
+        IntensityGraph2DRenderer renderer = new IntensityGraph2DRenderer(640, 480);
+        renderer.draw(new GraphBuffer(renderer), data);
+        List<IntensityGraph2DRendererUpdate> updates = Arrays.asList(
+                renderer.newUpdate().pixelSelectionRange(100, 200, 150, 250),
+                renderer.newUpdate().drawLegend(true),
+                renderer.newUpdate().backgroundColor(Color.LIGHT_GRAY),
+                renderer.newUpdate().imageWidth(500).imageHeight(400));
+        IntensityGraph2DRendererUpdate merged = renderer.newUpdate();
+        for (IntensityGraph2DRendererUpdate update : updates) {
+            renderer.update(update);
+            GraphBuffer graphBuffer = new GraphBuffer(renderer);
+            renderer.draw(graphBuffer, data);
+
+            merged.merge(update);
+            IntensityGraph2DRenderer fullRenderer = new IntensityGraph2DRenderer(640, 480);
+            fullRenderer.update(merged);
+            GraphBuffer fullBuffer = new GraphBuffer(fullRenderer);
+            fullRenderer.draw(fullBuffer, data);
+            ImageAssert.assertSameImage(fullBuffer.getImage(), graphBuffer.getImage());
+        }
+    }
+
     @Test
     public void selectedRegion() throws Exception {
         Cell2DDataset data = ellipticParaboloid(200, Ranges.range(0, 100), 200, Ranges.range(0, 100));
@@ -454,4 +486,188 @@ public class IntensityGraph2DRendererTest extends BaseGraphTest<IntensityGraph2D
         assertThat(renderer.getYIndexSelectionRange().getMaximum().intValue(), equalTo(135));
         ImageAssert.compareImages("intensityGraph2D.selectedRegion.1", graphBuffer.getImage());
     }
+
+    @Test
+    public void cancel1() throws Exception {
+        // The draw stops as soon as the token is cancelled
+        final Cell2DDataset data = ellipticParaboloid(200, Ranges.range(0, 100), 200, Ranges.range(0, 100));
+        final CancellationToken token = new CancellationToken();
+        final int[] readValues = new int[1];
+        Cell2DDataset cancellingData = new Cell2DDataset() {
+
+            @Override
+            public double getValue(int x, int y) {
+                readValues[0]++;
+                if (readValues[0] == 1000) {
+                    token.cancel();
+                }
+                return data.getValue(x, y);
+            }
+
+            @Override
+            public Statistics getStatistics() {
+                return data.getStatistics();
+            }
+
+            @Override
+            public Range getDisplayRange() {
+                return data.getDisplayRange();
+            }
+
+            @Override
+            public ListNumber getXBoundaries() {
+                return data.getXBoundaries();
+            }
+
+            @Override
+            public Range getXRange() {
+                return data.getXRange();
+            }
+
+            @Override
+            public int getXCount() {
+                return data.getXCount();
+            }
+
+            @Override
+            public ListNumber getYBoundaries() {
+                return data.getYBoundaries();
+            }
+
+            @Override
+            public Range getYRange() {
+                return data.getYRange();
+            }
+
+            @Override
+            public int getYCount() {
+                return data.getYCount();
+            }
+        };
+        IntensityGraph2DRenderer renderer = new IntensityGraph2DRenderer(640, 480);
+        try {
+            renderer.draw(new GraphBuffer(renderer), cancellingData, token);
+            fail("Draw was not cancelled");
+        } catch (CancellationException ex) {
+            // Only the row being colored is finished
+            assertThat(readValues[0], lessThan(2000));
+        }
+
+        // The token is not kept for the next draw
+        GraphBuffer graphBuffer = new GraphBuffer(renderer);
+        renderer.draw(graphBuffer, data);
+        GraphBuffer expectedBuffer = new GraphBuffer(renderer);
+        new IntensityGraph2DRenderer(640, 480).draw(expectedBuffer, data);
+        ImageAssert.assertSameImage(expectedBuffer.getImage(), graphBuffer.getImage());
+    }
+
+    /**
+     * A dataset that counts the cells and the rows that are read.
+     */
+    private static class CountingDataset implements Cell2DDataset {
+
+        final Cell2DDataset data;
+        int readCells;
+        int readRows;
+
+        CountingDataset(Cell2DDataset data) {
+            this.data = data;
+        }
+
+        @Override
+        public double getValue(int x, int y) {
+            readCells++;
+            return data.getValue(x, y);
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return data.getStatistics();
+        }
+
+        @Override
+        public Range getDisplayRange() {
+            return data.getDisplayRange();
+        }
+
+        @Override
+        public ListNumber getXBoundaries() {
+            return data.getXBoundaries();
+        }
+
+        @Override
+        public Range getXRange() {
+            return data.getXRange();
+        }
+
+        @Override
+        public int getXCount() {
+            return data.getXCount();
+        }
+
+        @Override
+        public ListNumber getYBoundaries() {
+            return data.getYBoundaries();
+        }
+
+        @Override
+        public Range getYRange() {
+            return data.getYRange();
+        }
+
+        @Override
+        public int getYCount() {
+            return data.getYCount();
+        }
+    }
+
+    private static class CountingRowDataset extends CountingDataset implements Cell2DRowDataset {
+
+        CountingRowDataset(Cell2DDataset data) {
+            super(data);
+        }
+
+        @Override
+        public void getRow(int y, int xFrom, int xTo, double[] dest) {
+            readRows++;
+            for (int x = xFrom; x < xTo; x++) {
+                dest[x - xFrom] = getValue(x, y);
+            }
+        }
+    }
+
+    @Test
+    public void readCells1() throws Exception {
+        // Many more cells than pixels: only the cells displayed are read
+        Cell2DDataset data = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return x * y;
+            }
+        }, Ranges.range(0, 100), 8000, Ranges.range(0, 100), 2000);
+        for (CountingDataset countingData : new CountingDataset[] {new CountingDataset(data), new CountingRowDataset(data)}) {
+            IntensityGraph2DRenderer renderer = new IntensityGraph2DRenderer(400, 300);
+            GraphBuffer graphBuffer = new GraphBuffer(renderer);
+            renderer.draw(graphBuffer, countingData);
+            assertThat(countingData.readCells, greaterThan(0));
+            assertThat(countingData.readCells, lessThanOrEqualTo(400 * 300));
+            assertThat(countingData.readRows, equalTo(0));
+        }
+    }
+
+    @Test
+    public void readCells2() throws Exception {
+        // A few cells for each pixel: the rows are copied at once
+        Cell2DDataset data = ellipticParaboloid(1000, Ranges.range(0, 100), 200, Ranges.range(0, 100));
+        CountingDataset countingData = new CountingRowDataset(data);
+        IntensityGraph2DRenderer renderer = new IntensityGraph2DRenderer(400, 300);
+        GraphBuffer graphBuffer = new GraphBuffer(renderer);
+        renderer.draw(graphBuffer, countingData);
+        assertThat(countingData.readRows, greaterThan(0));
+        assertThat(countingData.readCells, lessThanOrEqualTo(1000 * 200));
+
+        GraphBuffer expectedBuffer = new GraphBuffer(renderer);
+        renderer.draw(expectedBuffer, data);
+        ImageAssert.assertSameImage(expectedBuffer.getImage(), graphBuffer.getImage());
+    }
 }
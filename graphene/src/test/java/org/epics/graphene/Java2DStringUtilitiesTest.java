@@ -7,6 +7,7 @@ package org.epics.graphene;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,6 +20,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.BeforeClass;
 import static org.epics.graphene.Java2DStringUtilities.Alignment.*;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -115,4 +117,34 @@ public class Java2DStringUtilitiesTest {
         Java2DStringUtilities.drawString(graphics, TOP_RIGHT, x, y, "ABCD");
         ImageAssert.compareImages("textUtilities.8", image);
     }
+    
+    private static void assertSameText(int imageType, boolean antialiased, Color color) {
+        Font font = FontUtil.getLiberationSansRegular();
+        BufferedImage expected = new BufferedImage(200, 60, imageType);
+        GraphBuffer graphBuffer = new GraphBuffer(200, 60, imageType);
+        Graphics2D expectedGraphics = expected.createGraphics();
+        Graphics2D bufferGraphics = graphBuffer.getGraphicsContext();
+        for (Graphics2D g : Arrays.asList(expectedGraphics, bufferGraphics)) {
+            g.setColor(new Color(240, 230, 100));
+            g.fillRect(0, 0, 200, 60);
+            if (antialiased) {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            }
+            g.setFont(font);
+            g.setColor(color);
+        }
+        Java2DStringUtilities.drawString(expectedGraphics, CENTER, 100, 30, "11:13:08 -0.5e3");
+        Java2DStringUtilities.drawString(bufferGraphics, graphBuffer, CENTER, 100, 30, "11:13:08 -0.5e3");
+        ImageAssert.assertSameImage(expected, graphBuffer.getImage());
+    }
+    
+    @Test
+    public void drawCachedText() throws Exception {
+        for (int imageType : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB}) {
+            assertSameText(imageType, false, Color.BLACK);
+            assertSameText(imageType, true, Color.BLACK);
+            assertSameText(imageType, true, new Color(200, 50, 10));
+        }
+    }
+    
 }
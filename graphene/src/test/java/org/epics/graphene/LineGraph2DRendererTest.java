@@ -4,15 +4,19 @@
  */
 package org.epics.graphene;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import javax.imageio.ImageIO;
 import junit.framework.AssertionFailedError;
 import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Ranges;
+import org.epics.util.time.TimeDuration;
 import org.junit.AfterClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -543,6 +547,28 @@ public class LineGraph2DRendererTest extends BaseGraphTest<LineGraph2DRendererUp
         ImageAssert.compareImages("lineGraph2D.linear.highlightFocusValue", image);
     }
 
+    @Test
+    public void findValueIndex() throws Exception {
+        Point2DDataset data = scatteredPerfectSquaresDataset();
+        Point2DDataset sortedData = Point2DDatasets.lineData(new ArrayDouble(0, 1, 4, 9, 16, 25, 36, 49, 64, 81, 100));
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        Graphics2D graphics = (Graphics2D) image.getGraphics();
+        renderer.draw(graphics, data);
+        assertThat(renderer.getFocusValueIndex(), equalTo(-1));
+        assertThat(renderer.findValueIndex(data, 250), equalTo(3));
+        
+        renderer.draw(graphics, sortedData);
+        for (int pixel = 0; pixel < 300; pixel += 7) {
+            int index = renderer.findValueIndex(sortedData, pixel);
+            double diff = Math.abs(renderer.scaledX(sortedData.getXValues().getDouble(index)) - pixel);
+            for (int i = 0; i < sortedData.getCount(); i++) {
+                assertThat(Math.abs(renderer.scaledX(sortedData.getXValues().getDouble(i)) - pixel) >= diff, equalTo(true));
+            }
+        }
+    }
+
     @Test
     public void xAxisRange() throws Exception {
         Point2DDataset dataset = largeDataset;
@@ -555,6 +581,34 @@ public class LineGraph2DRendererTest extends BaseGraphTest<LineGraph2DRendererUp
         ImageAssert.compareImages("lineGraph2D.linear.xAxisRange", image);
     }
 
+    @Test
+    public void indexedDataset() throws Exception {
+        BufferedImage expected = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.draw(expected.createGraphics(), largeDataset);
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        renderer = new LineGraph2DRenderer(300, 200);
+        renderer.draw(image.createGraphics(), Point2DDatasets.indexed(largeDataset));
+        ImageAssert.assertSameImage(expected, image);
+    }
+
+    @Test
+    public void redrawAfterLargeDataset() throws Exception {
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        BufferedImage expected = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().xAxisRange(AxisRanges.fixed(0, 100))
+                .yAxisRange(AxisRanges.fixed(-5, 5)));
+        renderer.draw(expected.createGraphics(), data);
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().xAxisRange(AxisRanges.fixed(0, 100))
+                .yAxisRange(AxisRanges.fixed(-5, 5)));
+        renderer.draw(image.createGraphics(), largeDataset);
+        renderer.draw(image.createGraphics(), data);
+        ImageAssert.assertSameImage(expected, image);
+    }
+
     //here begin the tests of multiline
     @Test
     public void multipleCosineColorScheme() throws Exception {
@@ -655,4 +709,267 @@ public class LineGraph2DRendererTest extends BaseGraphTest<LineGraph2DRendererUp
         //Compares to correct image
         ImageAssert.compareImages("lineGraph2D.updateInterpolation", image);
     }
+
+    @Test
+    public void graphBufferCubic() throws Exception {
+        // Cubic lines can't be drawn directly and go through Java2D
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        BufferedImage expected = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.CUBIC));
+        renderer.draw(expected.createGraphics(), data);
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.CUBIC));
+        renderer.draw(graphBuffer, data);
+        BufferedImage image = graphBuffer.getImage();
+        ImageAssert.assertSameImage(expected, image);
+    }
+
+    @Test
+    public void graphBufferCachedGraphArea() throws Exception {
+        // The graph area is calculated once and then copied from the first frame
+        final int[] labelCalculations = new int[1];
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200) {
+
+            @Override
+            protected void calculateLabels() {
+                labelCalculations[0]++;
+                super.calculateLabels();
+            }
+        };
+        renderer.update(renderer.newUpdate().xAxisRange(AxisRanges.fixed(0, 10)).yAxisRange(AxisRanges.fixed(0, 100)));
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        renderer.draw(graphBuffer, Point2DDatasets.lineData(new ArrayDouble(0, 1, 4, 9, 16, 25, 36, 49, 64, 81, 100)));
+        Point2DDataset data = Point2DDatasets.lineData(new ArrayDouble(100, 81, 64, 49, 36, 25, 16, 9, 4, 1, 0));
+        renderer.draw(graphBuffer, data);
+        assertThat(labelCalculations[0], equalTo(1));
+        
+        LineGraph2DRenderer fullRenderer = new LineGraph2DRenderer(300, 200);
+        fullRenderer.update(fullRenderer.newUpdate().xAxisRange(AxisRanges.fixed(0, 10)).yAxisRange(AxisRanges.fixed(0, 100)));
+        GraphBuffer fullBuffer = new GraphBuffer(300, 200);
+        fullRenderer.draw(fullBuffer, data);
+        ImageAssert.assertSameImage(fullBuffer.getImage(), graphBuffer.getImage());
+        
+        // A different range recalculates the graph area
+        renderer.update(renderer.newUpdate().yAxisRange(AxisRanges.fixed(0, 200)));
+        renderer.draw(graphBuffer, data);
+        assertThat(labelCalculations[0], equalTo(2));
+    }
+
+    @Test
+    public void renderBudget() throws Exception {
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.CUBIC)
+                .renderBudget(TimeDuration.ofNanos(1)));
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        for (int i = 0; i < 5 * RenderQualityControl.FRAMES; i++) {
+            renderer.draw(graphBuffer, data);
+        }
+        assertThat(renderer.getRenderQuality(), equalTo(RenderQuality.ESSENTIAL));
+
+        // At the lowest quality, the line is the same as a linear one
+        LineGraph2DRenderer linearRenderer = new LineGraph2DRenderer(300, 200);
+        linearRenderer.update(linearRenderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer linearBuffer = new GraphBuffer(300, 200);
+        linearRenderer.draw(linearBuffer, data);
+        int differentPixels = 0;
+        for (int x = 0; x < 300; x++) {
+            for (int y = 0; y < 200; y++) {
+                if (graphBuffer.getImage().getRGB(x, y) != linearBuffer.getImage().getRGB(x, y)
+                        && linearBuffer.getImage().getRGB(x, y) == Color.BLACK.getRGB()) {
+                    differentPixels++;
+                }
+            }
+        }
+        assertThat(differentPixels, equalTo(0));
+
+        renderer.update(renderer.newUpdate().renderBudget(TimeDuration.ofNanos(0)));
+        assertThat(renderer.getRenderQuality(), equalTo(RenderQuality.FULL));
+    }
+
+    @Test
+    public void cancel1() throws Exception {
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        try {
+            renderer.draw(new GraphBuffer(300, 200), data, token);
+            fail("Draw was not cancelled");
+        } catch (CancellationException ex) {
+            // Expected
+        }
+        
+        // The token is not kept for the next draw
+        renderer.draw(new GraphBuffer(300, 200), data);
+        renderer.draw(new GraphBuffer(300, 200), data, new CancellationToken());
+    }
+
+    private static List<Point2DDataset> sineLines(int nLines, int nPoints) {
+        List<Point2DDataset> lines = new ArrayList<>();
+        for (int line = 0; line < nLines; line++) {
+            double[] values = new double[nPoints];
+            for (int i = 0; i < nPoints; i++) {
+                values[i] = Math.sin(i / 100.0 + line);
+            }
+            lines.add(Point2DDatasets.lineData(values));
+        }
+        return lines;
+    }
+
+    @Test
+    public void lineBuffers1() throws Exception {
+        // The buffers of large lines, or of lines no longer drawn,
+        // are not kept between frames
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().dataReduction(ReductionScheme.NONE));
+        renderer.draw(new GraphBuffer(300, 200), sineLines(4, 200000));
+        assertThat(renderer.retainedLinePoints(), equalTo(0));
+
+        renderer.draw(new GraphBuffer(300, 200), sineLines(3, 1000));
+        assertThat(renderer.retainedLinePoints(), equalTo(3000));
+        renderer.draw(new GraphBuffer(300, 200), sineLines(1, 1000));
+        assertThat(renderer.retainedLinePoints(), equalTo(1000));
+    }
+
+    @Test
+    public void updateInvalidatesLayout() throws Exception {
+        final int[] labelCalculations = new int[1];
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200) {
+
+            @Override
+            protected void calculateLabels() {
+                labelCalculations[0]++;
+                super.calculateLabels();
+            }
+        };
+        renderer.update(renderer.newUpdate().xAxisRange(AxisRanges.fixed(0, 10)).yAxisRange(AxisRanges.fixed(0, 100)));
+        Point2DDataset data = Point2DDatasets.lineData(new ArrayDouble(0, 1, 4, 9, 16, 25, 36, 49, 64, 81, 100));
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        renderer.draw(g, data);
+        assertThat(labelCalculations[0], equalTo(1));
+
+        // The focus and the colors do not change the layout
+        renderer.update(renderer.newUpdate().focusPixel(150).highlightFocusValue(true));
+        renderer.draw(g, data);
+        renderer.update(renderer.newUpdate().backgroundColor(Color.LIGHT_GRAY));
+        renderer.draw(g, data);
+        assertThat(labelCalculations[0], equalTo(1));
+        assertThat(renderer.getFocusValueIndex(), equalTo(5));
+        assertThat(image.getRGB(1, 1), equalTo(Color.LIGHT_GRAY.getRGB()));
+
+        // The margins do
+        renderer.update(renderer.newUpdate().leftMargin(20));
+        renderer.draw(g, data);
+        assertThat(labelCalculations[0], equalTo(2));
+    }
+
+    @Test
+    public void graphBufferCachedGraphArea2() throws Exception {
+        // The same renderer drawn on buffers of different sizes
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        Point2DDataset data = Point2DDatasets.lineData(new ArrayDouble(0, 1, 4, 9, 16, 25, 36, 49, 64, 81, 100));
+        renderer.draw(new GraphBuffer(300, 200), data);
+        for (int[] size : new int[][] {{400, 250}, {200, 300}, {300, 200}}) {
+            GraphBuffer graphBuffer = new GraphBuffer(size[0], size[1]);
+            renderer.draw(graphBuffer, data);
+
+            LineGraph2DRenderer fullRenderer = new LineGraph2DRenderer(300, 200);
+            GraphBuffer fullBuffer = new GraphBuffer(size[0], size[1]);
+            fullRenderer.draw(fullBuffer, data);
+            ImageAssert.assertSameImage(fullBuffer.getImage(), graphBuffer.getImage());
+        }
+    }
+
+    @Test
+    public void graphBufferLinear() throws Exception {
+        // The line drawn on the buffer is within a pixel of the one stroked by Java2D,
+        // and the rest of the image is the same
+        Point2DDataset data = Point2DTestDatasets.sharpPeakData();
+        BufferedImage expected = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.draw(expected.createGraphics(), data);
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        renderer = new LineGraph2DRenderer(300, 200);
+        renderer.draw(graphBuffer, data);
+        BufferedImage image = graphBuffer.getImage();
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (expected.getRGB(x, y) != image.getRGB(x, y)) {
+                    String pixel = "(" + x + ", " + y + ")";
+                    if (expected.getRGB(x, y) == Color.BLACK.getRGB()) {
+                        assertTrue("No line near " + pixel, hasNeighbor(image, x, y, Color.BLACK.getRGB()));
+                    } else {
+                        assertThat("Not a line at " + pixel, image.getRGB(x, y), equalTo(Color.BLACK.getRGB()));
+                        assertTrue("No line near " + pixel, hasNeighbor(expected, x, y, Color.BLACK.getRGB()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean hasNeighbor(BufferedImage image, int x, int y, int rgb) {
+        for (int nx = Math.max(0, x - 1); nx <= Math.min(image.getWidth() - 1, x + 1); nx++) {
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(image.getHeight() - 1, y + 1); ny++) {
+                if (image.getRGB(nx, ny) == rgb) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void multipleDatasetsInParallel() throws Exception {
+        // The same line, sorted, unsorted and indexed: the lines are
+        // prepared in parallel, but drawn in order, so only the color
+        // of the last one is visible
+        Random rand = new Random(1);
+        double[] x = new double[20000];
+        double[] y = new double[20000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = rand.nextGaussian();
+        }
+        double[] shuffledX = x.clone();
+        double[] shuffledY = y.clone();
+        for (int i = shuffledX.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            double tmp = shuffledX[i];
+            shuffledX[i] = shuffledX[j];
+            shuffledX[j] = tmp;
+            tmp = shuffledY[i];
+            shuffledY[i] = shuffledY[j];
+            shuffledY[j] = tmp;
+        }
+        List<Point2DDataset> data = new ArrayList<Point2DDataset>();
+        for (int n = 0; n < 3; n++) {
+            data.add(Point2DDatasets.lineData(x, y));
+            data.add(Point2DDatasets.lineData(shuffledX, shuffledY));
+            data.add(Point2DDatasets.indexed(Point2DDatasets.lineData(x, y)));
+        }
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        renderer.draw(image.createGraphics(), data);
+        
+        BufferedImage expected = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+        renderer = new LineGraph2DRenderer(300, 200);
+        renderer.draw(expected.createGraphics(), Point2DDatasets.lineData(x, y));
+        int lastColor = new Color(NumberColorMaps.GRAY.createInstance(Ranges.range(0, data.size())).colorFor(data.size() - 1.0)).getRGB();
+        // The line of the single dataset is black, like the labels
+        int linePixels = 0;
+        for (int i = 0; i < image.getWidth(); i++) {
+            for (int j = 0; j < image.getHeight(); j++) {
+                if (expected.getRGB(i, j) != image.getRGB(i, j)) {
+                    assertEquals(Color.BLACK.getRGB(), expected.getRGB(i, j));
+                    assertEquals(lastColor, image.getRGB(i, j));
+                    linePixels++;
+                }
+            }
+        }
+        assertThat(linePixels, greaterThan(1000));
+    }
 }
@@ -4,15 +4,26 @@
  */
 package org.epics.graphene;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Statistics;
 import org.epics.util.time.TimeDuration;
+import org.epics.util.time.TimeInterval;
 import org.epics.util.time.Timestamp;
 import org.junit.AfterClass;
 import org.junit.Test;
 import org.junit.BeforeClass;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -103,4 +114,304 @@ public class LineTimeGraph2DRendererTest {
         ImageAssert.compareImages("lineTimeGraph.4", image);
     }
     
+    @Test
+    public void dataReduction() throws Exception {
+        LineTimeGraph2DRenderer renderer = new LineTimeGraph2DRenderer(300, 200);
+        assertThat(renderer.getDataReduction(), equalTo(ReductionScheme.NONE));
+        renderer.update(new LineTimeGraph2DRendererUpdate().dataReduction(ReductionScheme.FIRST_MAX_MIN_LAST));
+        assertThat(renderer.getDataReduction(), equalTo(ReductionScheme.FIRST_MAX_MIN_LAST));
+        renderer.update(new LineTimeGraph2DRendererUpdate().dataReduction(ReductionScheme.NONE));
+        assertThat(renderer.getDataReduction(), equalTo(ReductionScheme.NONE));
+    }
+    
+    private static List<double[]> vertices(Path2D path) {
+        List<double[]> vertices = new ArrayList<>();
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            double[] coords = new double[3];
+            coords[2] = iterator.currentSegment(coords);
+            vertices.add(coords);
+        }
+        return vertices;
+    }
+    
+    private static double minY(List<double[]> vertices) {
+        double min = Double.MAX_VALUE;
+        for (double[] vertex : vertices) {
+            min = Math.min(min, vertex[1]);
+        }
+        return min;
+    }
+    
+    private static double maxY(List<double[]> vertices) {
+        double max = -Double.MAX_VALUE;
+        for (double[] vertex : vertices) {
+            max = Math.max(max, vertex[1]);
+        }
+        return max;
+    }
+    
+    @Test
+    public void dataReduction2() throws Exception {
+        // A noisy sine with one spike up and one down, reduced or not
+        Timestamp start = TimeScalesTest.create(2013, 4, 5, 11, 13, 3, 900);
+        double[] values = new double[100000];
+        List<Timestamp> timestamps = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 5000.0) + 0.1 * Math.sin(i * 1.3);
+            timestamps.add(start.plus(TimeDuration.ofMillis(i)));
+        }
+        values[31234] = 5;
+        values[72345] = -4;
+        TimeSeriesDataset data = TimeSeriesDatasets.timeSeriesOf(new ArrayDouble(values), timestamps);
+        
+        LineTimeGraph2DRenderer reduced = new LineTimeGraph2DRenderer(300, 200);
+        reduced.update(new LineTimeGraph2DRendererUpdate().interpolation(InterpolationScheme.LINEAR).dataReduction(ReductionScheme.FIRST_MAX_MIN_LAST));
+        reduced.draw((Graphics2D) new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR).getGraphics(), data);
+        List<double[]> reducedVertices = vertices(reduced.path);
+        
+        LineTimeGraph2DRenderer full = new LineTimeGraph2DRenderer(300, 200);
+        full.update(new LineTimeGraph2DRendererUpdate().interpolation(InterpolationScheme.LINEAR));
+        full.draw((Graphics2D) new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR).getGraphics(), data);
+        List<double[]> fullVertices = vertices(full.path);
+        
+        // At most 4 points for each pixel column
+        assertThat(fullVertices.size(), equalTo(values.length));
+        assertThat(reducedVertices.size(), lessThanOrEqualTo(4 * ((int) reduced.xPlotCoordWidth + 3)));
+        assertThat(reducedVertices.size(), greaterThan((int) reduced.xPlotCoordWidth));
+        
+        // The extremes, and the first and last values, are kept
+        assertThat(minY(reducedVertices), equalTo(minY(fullVertices)));
+        assertThat(maxY(reducedVertices), equalTo(maxY(fullVertices)));
+        assertThat(reducedVertices.get(0)[1], equalTo(fullVertices.get(0)[1]));
+        assertThat(reducedVertices.get(reducedVertices.size() - 1)[1], equalTo(fullVertices.get(fullVertices.size() - 1)[1]));
+    }
+    
+    @Test
+    public void previousValueNaN() throws Exception {
+        // The line holds the value until the missing sample, and restarts
+        // at the next one
+        Timestamp start = TimeScalesTest.create(2013, 4, 5, 11, 13, 3, 900);
+        TimeSeriesDataset data = TimeSeriesDatasets.timeSeriesOf(new ArrayDouble(0, 4, Double.NaN, 7, 6, 10),
+                Arrays.asList(start,
+                start.plus(TimeDuration.ofMillis(3000)),
+                start.plus(TimeDuration.ofMillis(6000)),
+                start.plus(TimeDuration.ofMillis(8500)),
+                start.plus(TimeDuration.ofMillis(12500)),
+                start.plus(TimeDuration.ofMillis(15000))));
+        LineTimeGraph2DRenderer renderer = new LineTimeGraph2DRenderer(300, 200);
+        renderer.update(new LineTimeGraph2DRendererUpdate().interpolation(InterpolationScheme.PREVIOUS_VALUE));
+        renderer.draw((Graphics2D) new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR).getGraphics(), data);
+        
+        List<double[]> vertices = vertices(renderer.path);
+        double[] types = new double[vertices.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = vertices.get(i)[2];
+        }
+        double moveTo = PathIterator.SEG_MOVETO;
+        double lineTo = PathIterator.SEG_LINETO;
+        assertThat(types, equalTo(new double[] {moveTo, lineTo, lineTo, lineTo, moveTo, lineTo, lineTo, lineTo, lineTo}));
+        // Held at the value of 4 until the NaN sample
+        assertThat(vertices.get(3)[1], equalTo(vertices.get(2)[1]));
+        assertThat(vertices.get(3)[0], lessThan(vertices.get(4)[0]));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void dataReductionUnsupported() throws Exception {
+        new LineTimeGraph2DRendererUpdate().dataReduction(ReductionScheme.LARGEST_TRIANGLE_THREE_BUCKETS);
+    }
+    
+    private static TimeSeriesDataset sineWave(Timestamp start, int count) {
+        double[] values = new double[count];
+        List<Timestamp> timestamps = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.sin(i / 20.0);
+            timestamps.add(start.plus(TimeDuration.ofMillis(10 * i)));
+        }
+        return TimeSeriesDatasets.timeSeriesOf(new ArrayDouble(values), timestamps);
+    }
+    
+    @Test
+    public void stripChart() throws Exception {
+        Timestamp start = TimeScalesTest.create(2013, 4, 5, 11, 13, 3, 900);
+        TimeDuration window = TimeDuration.ofMillis(4000);
+        LineTimeGraph2DRenderer renderer = new LineTimeGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().stripChart(true).interpolation(InterpolationScheme.LINEAR)
+                .axisRange(AxisRanges.fixed(-1.5, 1.5)));
+        assertThat(renderer.isStripChart(), equalTo(true));
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        renderer.update(renderer.newUpdate().timeAxisRange(TimeAxisRanges.absolute(window.after(start.plus(TimeDuration.ofMillis(2000))))));
+        renderer.draw(graphBuffer, sineWave(start, 601));
+        
+        // A frame drawn from scratch would remove the marker
+        int markerX = (renderer.xAreaStart + renderer.xAreaEnd) / 2;
+        int markerY = renderer.yAreaStart + 1;
+        graphBuffer.getImage().setRGB(markerX, markerY, Color.RED.getRGB());
+        renderer.update(renderer.newUpdate().timeAxisRange(TimeAxisRanges.absolute(window.after(start.plus(TimeDuration.ofMillis(3000))))));
+        renderer.draw(graphBuffer, sineWave(start, 701));
+        BufferedImage image = graphBuffer.getImage();
+        assertThat(image.getRGB(markerX, markerY), not(equalTo(Color.RED.getRGB())));
+        int markers = 0;
+        for (int x = renderer.xAreaStart; x < markerX; x++) {
+            if (image.getRGB(x, markerY) == Color.RED.getRGB()) {
+                markers++;
+            }
+        }
+        assertThat(markers, equalTo(1));
+        
+        // Same as drawing the frame from scratch, except for the antialiased
+        // pixels of the line, which is aligned within a pixel
+        LineTimeGraph2DRenderer fullRenderer = new LineTimeGraph2DRenderer(300, 200);
+        fullRenderer.update(fullRenderer.newUpdate().stripChart(true).interpolation(InterpolationScheme.LINEAR)
+                .axisRange(AxisRanges.fixed(-1.5, 1.5))
+                .timeAxisRange(TimeAxisRanges.absolute(window.after(start.plus(TimeDuration.ofMillis(3000))))));
+        GraphBuffer fullBuffer = new GraphBuffer(300, 200);
+        fullRenderer.draw(fullBuffer, sineWave(start, 701));
+        assertSameLine(fullBuffer.getImage(), image);
+    }
+    
+    // No samples, with the statistics and the time interval of the given data
+    private static TimeSeriesDataset empty(final TimeSeriesDataset data) {
+        return new TimeSeriesDataset() {
+
+            @Override
+            public ListNumber getValues() {
+                return new ArrayDouble();
+            }
+
+            @Override
+            public List<Timestamp> getTimestamps() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public ListNumber getNormalizedTime() {
+                return new ArrayDouble();
+            }
+
+            @Override
+            public Statistics getStatistics() {
+                return data.getStatistics();
+            }
+
+            @Override
+            public TimeInterval getTimeInterval() {
+                return data.getTimeInterval();
+            }
+
+            @Override
+            public int getCount() {
+                return 0;
+            }
+        };
+    }
+    
+    private static LineTimeGraph2DRenderer stripChartRenderer() {
+        LineTimeGraph2DRenderer renderer = new LineTimeGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().stripChart(true).interpolation(InterpolationScheme.LINEAR)
+                .axisRange(AxisRanges.fixed(-1.5, 1.5)));
+        return renderer;
+    }
+    
+    private static void drawFrame(LineTimeGraph2DRenderer renderer, GraphBuffer graphBuffer, TimeInterval timeInterval, TimeSeriesDataset data) {
+        renderer.update(renderer.newUpdate().timeAxisRange(TimeAxisRanges.absolute(timeInterval)));
+        renderer.draw(graphBuffer, data);
+    }
+    
+    @Test
+    public void stripChartEmpty() throws Exception {
+        Timestamp start = TimeScalesTest.create(2013, 4, 5, 11, 13, 3, 900);
+        TimeDuration window = TimeDuration.ofMillis(4000);
+        TimeInterval firstFrame = window.after(start.plus(TimeDuration.ofMillis(2000)));
+        TimeInterval secondFrame = window.after(start.plus(TimeDuration.ofMillis(3000)));
+        
+        // Empty in the first frame
+        LineTimeGraph2DRenderer renderer = stripChartRenderer();
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        drawFrame(renderer, graphBuffer, firstFrame, empty(sineWave(start, 601)));
+        drawFrame(renderer, graphBuffer, secondFrame, sineWave(start, 701));
+        GraphBuffer fullBuffer = new GraphBuffer(300, 200);
+        drawFrame(stripChartRenderer(), fullBuffer, secondFrame, sineWave(start, 701));
+        assertSameLine(fullBuffer.getImage(), graphBuffer.getImage());
+        
+        // Empty in the scrolled frame
+        renderer = stripChartRenderer();
+        graphBuffer = new GraphBuffer(300, 200);
+        drawFrame(renderer, graphBuffer, firstFrame, sineWave(start, 601));
+        drawFrame(renderer, graphBuffer, secondFrame, empty(sineWave(start, 701)));
+        fullBuffer = new GraphBuffer(300, 200);
+        drawFrame(stripChartRenderer(), fullBuffer, secondFrame, sineWave(start, 601));
+        assertSameLine(fullBuffer.getImage(), graphBuffer.getImage());
+    }
+    
+    @Test
+    public void stripChartLabels() throws Exception {
+        Timestamp start = TimeScalesTest.create(2013, 4, 5, 11, 13, 3, 900);
+        TimeDuration window = TimeDuration.ofMillis(4000);
+        LineTimeGraph2DRenderer renderer = stripChartRenderer();
+        GraphBuffer graphBuffer = new GraphBuffer(300, 200);
+        
+        // Small steps, so that the time labels are scrolled in some frames
+        // and redrawn when a label enters or leaves the plot; the data
+        // arrives as the plot moves
+        for (int step = 0; step <= 40; step++) {
+            drawFrame(renderer, graphBuffer, window.after(start.plus(TimeDuration.ofMillis(50 * step))), sineWave(start, 401 + 5 * step));
+        }
+        
+        // The labels below the plot must match the ones drawn from scratch
+        // for the same time axis, which is aligned to the pixels
+        GraphBuffer fullBuffer = new GraphBuffer(300, 200);
+        drawFrame(stripChartRenderer(), fullBuffer, renderer.getPlotTimeInterval(), sineWave(start, 601));
+        BufferedImage image = graphBuffer.getImage();
+        BufferedImage expected = fullBuffer.getImage();
+        for (int y = renderer.yAreaEnd + 1; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat("Pixel at (" + x + ", " + y + ")", image.getRGB(x, y), equalTo(expected.getRGB(x, y)));
+            }
+        }
+    }
+    
+    // The gray level of the pixel; white for colored pixels
+    private static int gray(int rgb) {
+        int red = rgb >> 16 & 0xFF;
+        int green = rgb >> 8 & 0xFF;
+        int blue = rgb & 0xFF;
+        return red == green && green == blue ? blue : 0xFF;
+    }
+    
+    // Whether a pixel within one from the given one is darker than the threshold
+    private static boolean darkNear(BufferedImage image, int x, int y, int threshold) {
+        for (int nearY = Math.max(0, y - 1); nearY <= Math.min(image.getHeight() - 1, y + 1); nearY++) {
+            for (int nearX = Math.max(0, x - 1); nearX <= Math.min(image.getWidth() - 1, x + 1); nearX++) {
+                if (gray(image.getRGB(nearX, nearY)) < threshold) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    // The images can differ only in the antialiasing of the line, which can
+    // be placed differently within a pixel: each dark pixel of the line must
+    // be next to the line in the other image, and all other pixels must match.
+    // Colored pixels (i.e. markers) are not compared.
+    private static void assertSameLine(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int expectedRGB = expected.getRGB(x, y);
+                int actualRGB = actual.getRGB(x, y);
+                if (gray(expectedRGB) < 0x80 && !darkNear(actual, x, y, 0xC0)) {
+                    fail("Line missing at (" + x + ", " + y + ")");
+                }
+                if (gray(actualRGB) < 0x80 && !darkNear(expected, x, y, 0xC0)) {
+                    fail("Unexpected line at (" + x + ", " + y + ")");
+                }
+                boolean colored = gray(actualRGB) == 0xFF && actualRGB != Color.WHITE.getRGB();
+                if (expectedRGB != actualRGB && !colored
+                        && !darkNear(expected, x, y, 0x80) && !darkNear(actual, x, y, 0x80)) {
+                    fail("Images differ at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+    
 }
@@ -80,6 +80,16 @@ public class LinearAbsoluteTimeScaleTest {
         
     }
 
+    @Test
+    public void referencesCached() {
+        Timestamp start = TimeScalesTest.create(2013, 5, 10, 16, 13, 44, 123);
+        TimeInterval timeInterval = TimeInterval.between(start, start.plus(TimeDuration.ofSeconds(20)));
+        TimeAxis timeAxis = TimeScales.linearAbsoluteScale().references(timeInterval, 2, 11);
+        assertThat(TimeScales.linearAbsoluteScale().references(TimeInterval.between(start, start.plus(TimeDuration.ofSeconds(20))), 2, 11),
+                sameInstance(timeAxis));
+        assertThat(TimeScales.linearAbsoluteScale().references(timeInterval, 2, 10), not(sameInstance(timeAxis)));
+    }
+
     @Test
     public void references2() {
         TimeScale linearScale = TimeScales.linearAbsoluteScale();
@@ -4,6 +4,8 @@
  */
 package org.epics.graphene;
 
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
 import org.epics.util.stats.Ranges;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -27,6 +29,40 @@ public class LinearValueScaleTest {
         assertThat(linearScale.scaleValue(3.5, 3, 4, -100, 100), equalTo(0.0));
     }
 
+    @Test
+    public void scaleValues1() {
+        ValueScale linearScale = ValueScales.linearScale();
+        double[] scaled = new double[3];
+        ValueScales.scaleValues(linearScale, new ArrayDouble(0, 3, 3.5, 4, 5), 1, 4, scaled, 3, 4, 0, 100);
+        assertThat(scaled, equalTo(new double[] {0.0, 50.0, 100.0}));
+    }
+
+    @Test
+    public void scaleValues2() {
+        // Any other scale is called once per value
+        final ValueScale linearScale = ValueScales.linearScale();
+        ValueScale otherScale = new ValueScale() {
+
+            @Override
+            public double scaleValue(double value, double minValue, double maxValue, double newMinValue, double newMaxValue) {
+                return -linearScale.scaleValue(value, minValue, maxValue, newMinValue, newMaxValue);
+            }
+
+            @Override
+            public double invScaleValue(double scaleValue, double minValue, double maxValue, double newMinValue, double newMaxValue) {
+                return linearScale.invScaleValue(-scaleValue, minValue, maxValue, newMinValue, newMaxValue);
+            }
+
+            @Override
+            public ValueAxis references(Range range, int minRefs, int maxRegs) {
+                return linearScale.references(range, minRefs, maxRegs);
+            }
+        };
+        double[] scaled = new double[3];
+        ValueScales.scaleValues(otherScale, new ArrayDouble(0, 3, 3.5, 4, 5), 1, 4, scaled, 3, 4, 0, 100);
+        assertThat(scaled, equalTo(new double[] {-0.0, -50.0, -100.0}));
+    }
+
     @Test
     public void invScaleValue1() {
         ValueScale linearScale = ValueScales.linearScale();
@@ -46,6 +82,25 @@ public class LinearValueScaleTest {
         assertAxisEquals(1.0, 9.0, new double[]{2.0, 4.0, 6.0, 8.0}, new String[]{"2", "4", "6", "8"}, axis);
     }
 
+    @Test
+    public void referencesCached() {
+        ValueScale linearScale = ValueScales.linearScale();
+        ValueAxis axis = linearScale.references(Ranges.range(1.0, 9.0), 2, 4);
+        assertThat(ValueScales.linearScale().references(Ranges.range(1.0, 9.0), 2, 4), sameInstance(axis));
+        assertThat(linearScale.references(Ranges.range(1.0, 9.0), 2, 5), not(sameInstance(axis)));
+        assertThat(linearScale.references(Ranges.range(1.0, 10.0), 2, 4), not(sameInstance(axis)));
+    }
+    
+    @Test
+    public void referencesCachedUnmodified() {
+        ValueScale linearScale = ValueScales.linearScale();
+        ValueAxis axis = linearScale.references(Ranges.range(1.0, 9.0), 2, 4);
+        axis.getTickValues()[0] = 100.0;
+        axis.getTickLabels()[0] = "100";
+        assertAxisEquals(1.0, 9.0, new double[]{2.0, 4.0, 6.0, 8.0}, new String[]{"2", "4", "6", "8"},
+                linearScale.references(Ranges.range(1.0, 9.0), 2, 4));
+    }
+    
     @Test
     public void references2() {
         ValueScale linearScale = ValueScales.linearScale();
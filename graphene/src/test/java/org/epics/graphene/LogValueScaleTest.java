@@ -24,6 +24,17 @@ public class LogValueScaleTest {
         assertThat(logScale.scaleValue(10, 1, 100, 0, 100), equalTo(50.0));
     }
 
+    @Test
+    public void scaleValues1() {
+        ValueScale logScale = ValueScales.logScale();
+        double[] scaled = new double[3];
+        ValueScales.scaleValues(logScale, new ArrayDouble(1, 10, 100, 1000), 1, 4, scaled, 10, 1000, 0, 100);
+        for (int i = 0; i < scaled.length; i++) {
+            assertThat(scaled[i], equalTo(logScale.scaleValue(Math.pow(10, i + 1), 10, 1000, 0, 100)));
+        }
+        assertThat(scaled[1], closeTo(50.0, 0.000001));
+    }
+    
     @Test
     public void scaleValue2() {
         ValueScale logScale = ValueScales.logScale();
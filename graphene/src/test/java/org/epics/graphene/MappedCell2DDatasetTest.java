@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListNumbers;
+import org.epics.util.stats.Ranges;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class MappedCell2DDatasetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannel createFile(ByteBuffer content) throws Exception {
+        File file = folder.newFile();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        content.rewind();
+        randomAccessFile.getChannel().write(content);
+        return randomAccessFile.getChannel();
+    }
+
+    @Test
+    public void unsignedShorts1() throws Exception {
+        // 40 x 30 cells, with a header of 16 bytes and 8 bytes of padding
+        // after each row, mapped in chunks of 7 rows
+        short[] values = new short[40 * 30];
+        ByteBuffer content = ByteBuffer.allocate(16 + 30 * 88).order(ByteOrder.BIG_ENDIAN);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                values[y * 40 + x] = (short) (y * 2000 + x * 13);
+                content.putShort(16 + y * 88 + x * 2, values[y * 40 + x]);
+            }
+        }
+        ListNumber xBoundaries = ListNumbers.linearListFromRange(0, 40, 41);
+        ListNumber yBoundaries = ListNumbers.linearListFromRange(0, 30, 31);
+        try (FileChannel channel = createFile(content)) {
+            Cell2DDataset dataset = Cell2DDatasets.datasetFromFile(channel, 16, 88, Cell2DDatasets.ElementType.UNSIGNED_SHORT,
+                    ByteOrder.BIG_ENDIAN, xBoundaries, yBoundaries, 7 * 88);
+            Cell2DDataset expected = Cell2DDatasets.datasetFromUnsignedShorts(values, xBoundaries, yBoundaries);
+            assertThat(dataset.getXCount(), equalTo(40));
+            assertThat(dataset.getYCount(), equalTo(30));
+            for (int y = 0; y < 30; y++) {
+                for (int x = 0; x < 40; x++) {
+                    assertThat(dataset.getValue(x, y), equalTo(expected.getValue(x, y)));
+                }
+            }
+            assertThat(dataset.getValue(39, 29), equalTo(58507.0));
+
+            double[] row = new double[3];
+            Cell2DDatasets.getRow(dataset, 20, 5, 8, row);
+            assertThat(row, equalTo(new double[] {40065, 40078, 40091}));
+            int[] intRow = new int[3];
+            ((Cell2DIntegerDataset) dataset).getIntRow(29, 37, 40, intRow);
+            assertThat(intRow, equalTo(new int[] {58481, 58494, 58507}));
+
+            assertThat(dataset.getStatistics().getMinimum().doubleValue(), equalTo(0.0));
+            assertThat(dataset.getStatistics().getMaximum().doubleValue(), equalTo(58507.0));
+            assertThat(dataset.getStatistics().getAverage(), closeTo(expected.getStatistics().getAverage(), 0.0001));
+            assertThat(dataset.getStatistics().getStdDev(), closeTo(expected.getStatistics().getStdDev(), 0.0001));
+            assertThat(dataset.getStatistics().getCount(), equalTo(1200));
+            assertThat(dataset.getStatistics(), sameInstance(dataset.getStatistics()));
+
+            // Colored in the same way as the data on the heap
+            NumberColorMapInstance colorMap = NumberColorMaps.JET.createInstance(Ranges.range(0, 65535));
+            int[] xMap = new int[200];
+            for (int i = 0; i < xMap.length; i++) {
+                xMap[i] = i / 5;
+            }
+            int[] yMap = new int[150];
+            for (int i = 0; i < yMap.length; i++) {
+                yMap[i] = 29 - i / 5;
+            }
+            GraphBuffer graphBuffer = new GraphBuffer(200, 150);
+            graphBuffer.drawDataImage(0, 0, xMap, yMap, dataset, colorMap);
+            GraphBuffer expectedBuffer = new GraphBuffer(200, 150);
+            expectedBuffer.drawDataImage(0, 0, xMap, yMap, expected, colorMap);
+            BufferedImage image = graphBuffer.getImage();
+            ImageAssert.assertSameImage(expectedBuffer.getImage(), image);
+        }
+    }
+
+    @Test
+    public void floats1() throws Exception {
+        ByteBuffer content = ByteBuffer.allocate(6 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        content.putFloat(5).putFloat(3).putFloat(7).putFloat(Float.NaN).putFloat(2).putFloat(2.5f);
+        try (FileChannel channel = createFile(content)) {
+            Cell2DDataset dataset = Cell2DDatasets.datasetFromFile(channel, 0, 8, Cell2DDatasets.ElementType.FLOAT,
+                    ByteOrder.LITTLE_ENDIAN, ListNumbers.linearListFromRange(-1, 1, 3), ListNumbers.linearListFromRange(0, 3, 4));
+            assertThat(dataset, not(instanceOf(Cell2DIntegerDataset.class)));
+            assertThat(((ConcurrentCell2DDataset) dataset).isRowCopyCheap(), equalTo(false));
+            assertThat(dataset.getValue(0, 1), equalTo(7.0));
+            assertThat(Double.isNaN(dataset.getValue(1, 1)), equalTo(true));
+            assertThat(dataset.getValue(1, 2), equalTo(2.5));
+            assertThat(dataset.getStatistics().getMinimum().doubleValue(), equalTo(2.0));
+            assertThat(dataset.getStatistics().getMaximum().doubleValue(), equalTo(7.0));
+            assertThat(dataset.getStatistics().getCount(), equalTo(5));
+        }
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void getValue1() throws Exception {
+        try (FileChannel channel = createFile(ByteBuffer.allocate(6))) {
+            Cell2DDataset dataset = Cell2DDatasets.datasetFromFile(channel, 0, 2, Cell2DDatasets.ElementType.BYTE,
+                    ByteOrder.LITTLE_ENDIAN, ListNumbers.linearListFromRange(-1, 1, 3), ListNumbers.linearListFromRange(0, 3, 4));
+            dataset.getValue(2, 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new1() throws Exception {
+        // File too small
+        try (FileChannel channel = createFile(ByteBuffer.allocate(11))) {
+            Cell2DDatasets.datasetFromFile(channel, 0, 4, Cell2DDatasets.ElementType.SHORT,
+                    ByteOrder.LITTLE_ENDIAN, ListNumbers.linearListFromRange(-1, 1, 3), ListNumbers.linearListFromRange(0, 3, 4));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new2() throws Exception {
+        // Rows overlap
+        try (FileChannel channel = createFile(ByteBuffer.allocate(12))) {
+            Cell2DDatasets.datasetFromFile(channel, 0, 3, Cell2DDatasets.ElementType.SHORT,
+                    ByteOrder.LITTLE_ENDIAN, ListNumbers.linearListFromRange(-1, 1, 3), ListNumbers.linearListFromRange(0, 3, 4));
+        }
+    }
+
+}
@@ -9,12 +9,14 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 import org.junit.AfterClass;
 import org.junit.Test;
 import java.util.List;
 import org.junit.BeforeClass;
 import org.epics.util.stats.Ranges;
 import org.junit.Ignore;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -525,4 +527,23 @@ public class MultiYAxisGraph2DRendererTest extends BaseGraphTest<MultiAxisLineGr
         //Compares to correct image
         ImageAssert.compareImages("multiYAxisGraph2D.split.updateInterpolations", image);
     }
+
+    @Test
+    public void cancel1() throws Exception {
+        List<Point2DDataset> data = cosine2Dataset();
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = (Graphics2D) image.getGraphics();
+        MultiAxisLineGraph2DRenderer renderer = new MultiAxisLineGraph2DRenderer(640,480);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        try {
+            renderer.draw(g, data, token);
+            fail("Draw was not cancelled");
+        } catch (CancellationException ex) {
+            // Expected
+        }
+        
+        // The token is not kept for the next draw
+        renderer.draw(g, data);
+    }
 }
@@ -4,11 +4,13 @@
  */
 package org.epics.graphene;
 
+import java.util.Random;
 import org.epics.util.array.ArrayDouble;
 import org.epics.util.array.ListNumber;
 import org.junit.AfterClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
 import org.junit.BeforeClass;
 /**
  *
@@ -42,6 +44,44 @@ public class Point2DDatasetsTest {
     }
 
     
+    @Test
+    public void indexed1() {
+        Random rand = new Random(1);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rand.nextGaussian();
+        }
+        values[100] = Double.NaN;
+        IndexedPoint2DDataset dataset = Point2DDatasets.indexed(Point2DDatasets.lineData(values));
+        assertEquals(10000, dataset.getCount());
+        for (int n = 0; n < 1000; n++) {
+            int from = rand.nextInt(values.length);
+            int to = from + rand.nextInt(values.length - from) + 1;
+            double min = Double.NaN;
+            double max = Double.NaN;
+            for (int i = from; i < to; i++) {
+                min = MathIgnoreNaN.min(min, values[i]);
+                max = MathIgnoreNaN.max(max, values[i]);
+            }
+            assertEquals(min, dataset.getYMinimum(from, to), 0.0);
+            assertEquals(max, dataset.getYMaximum(from, to), 0.0);
+        }
+    }
+    
+    @Test
+    public void indexed2() {
+        IndexedPoint2DDataset dataset = Point2DDatasets.indexed(Point2DDatasets.lineData(new ArrayDouble(Double.NaN, Double.NaN, 3)));
+        assertTrue(Double.isNaN(dataset.getYMinimum(0, 2)));
+        assertTrue(Double.isNaN(dataset.getYMaximum(1, 1)));
+        assertEquals(3.0, dataset.getYMaximum(0, 3), 0.0);
+        assertSame(dataset, Point2DDatasets.indexed(dataset));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void indexedUnsorted() {
+        Point2DDatasets.indexed(Point2DDatasets.lineData(new ArrayDouble(0, 2, 1), new ArrayDouble(1, 2, 3)));
+    }
+    
     @Test
     public void lineDataFromListAndOffset(){
        
@@ -93,4 +133,62 @@ public class Point2DDatasetsTest {
 //        assertEquals(7.0, dataset.getYValues().getDouble(1), 0.001);
 //        assertEquals(5.0, dataset.getYValues().getDouble(2), 0.001);
 //    }
+    
+    @Test
+    public void xSorted() {
+        assertTrue(Point2DDatasets.isXSorted(Point2DDatasets.lineData(new ArrayDouble(3, 1, 2))));
+        assertTrue(Point2DDatasets.isXSorted(Point2DDatasets.lineData(new ArrayDouble(0, 1, 1, 2), new ArrayDouble(1, 2, 3, 4))));
+        assertFalse(Point2DDatasets.isXSorted(Point2DDatasets.lineData(new ArrayDouble(0, 2, 1), new ArrayDouble(1, 2, 3))));
+        assertFalse(Point2DDatasets.isXSorted(Point2DDatasets.lineData(new ArrayDouble(0, Double.NaN, 2), new ArrayDouble(1, 2, 3))));
+        assertTrue(Point2DDatasets.isXSorted(Point2DDatasets.lineData(new ArrayDouble(), new ArrayDouble())));
+        // Datasets created elsewhere are checked on each call
+        assertTrue(Point2DDatasets.isXSorted(new MockOrderedDataset2D(new double[] {0, 1, 1, 2}, new double[] {1, 2, 3, 4})));
+        assertFalse(Point2DDatasets.isXSorted(new MockOrderedDataset2D(new double[] {0, 2, 1}, new double[] {1, 2, 3})));
+    }
+
+    @Test
+    public void decimated1() {
+        Point2DDataset dataset = Point2DDatasets.lineData(new ArrayDouble(0, 1, 2, 3, 4, 5, 6), new ArrayDouble(5, 3, 8, 1, 9, 2, 4));
+        Point2DDataset decimated = Point2DDatasets.decimated(dataset, 3);
+        assertThat(decimated.getCount(), equalTo(3));
+        assertThat(decimated.getXValues().getDouble(0), equalTo(0.0));
+        assertThat(decimated.getXValues().getDouble(1), equalTo(3.0));
+        assertThat(decimated.getXValues().getDouble(2), equalTo(6.0));
+        assertThat(decimated.getYValues().getDouble(0), equalTo(5.0));
+        assertThat(decimated.getYValues().getDouble(1), equalTo(1.0));
+        assertThat(decimated.getYValues().getDouble(2), equalTo(4.0));
+        // The statistics are the ones of the full data
+        assertThat(decimated.getYStatistics(), sameInstance(dataset.getYStatistics()));
+        assertThat(decimated.getXStatistics(), sameInstance(dataset.getXStatistics()));
+        assertTrue(Point2DDatasets.isXSorted(decimated));
+    }
+
+    @Test
+    public void decimated2() {
+        Point2DDataset dataset = Point2DDatasets.lineData(new ArrayDouble(0, 1, 2, 3, 4, 5, 6), new ArrayDouble(5, 3, 8, 1, 9, 2, 4));
+        assertThat(Point2DDatasets.decimated(dataset, 7), sameInstance(dataset));
+        assertThat(Point2DDatasets.decimated(dataset, 6).getCount(), equalTo(4));
+    }
+
+    @Test
+    public void envelope1() {
+        // The spikes at 3 and 9 are kept
+        Point2DDataset dataset = Point2DDatasets.lineData(new ArrayDouble(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11),
+                new ArrayDouble(5, 4, 5, 100, 5, 4, 5, 4, 5, -100, 4, 5));
+        Point2DDataset envelope = Point2DDatasets.envelope(dataset, 8);
+        assertThat(envelope.getCount(), equalTo(7));
+        assertThat(envelope.getXValues(), equalTo((ListNumber) new ArrayDouble(0, 1, 3, 5, 6, 9, 11)));
+        assertThat(envelope.getYValues(), equalTo((ListNumber) new ArrayDouble(5, 4, 100, 4, 5, -100, 5)));
+        assertThat(envelope.getYStatistics(), sameInstance(dataset.getYStatistics()));
+        assertTrue(Point2DDatasets.isXSorted(envelope));
+    }
+
+    @Test
+    public void envelope2() {
+        Point2DDataset dataset = Point2DDatasets.lineData(new ArrayDouble(0, 1, 2, 3, 4, 5, 6), new ArrayDouble(5, 3, 8, 1, 9, 2, 4));
+        assertThat(Point2DDatasets.envelope(dataset, 7), sameInstance(dataset));
+        // Groups with the same value keep only the first and the last point
+        Point2DDataset flat = Point2DDatasets.lineData(new ArrayDouble(1, 1, 1, 1, 1, 1, 1, 1));
+        assertThat(Point2DDatasets.envelope(flat, 4).getXValues(), equalTo((ListNumber) new ArrayDouble(0, 7)));
+    }
 }
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Ranges;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class ProgressiveGraph2DRendererTest {
+
+    private static class FinalFrame implements ProgressiveGraph2DRenderer.FinalFrameListener {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicReference<BufferedImage> image = new AtomicReference<>();
+
+        @Override
+        public void finalFrameRendered(BufferedImage image) {
+            this.image.set(image);
+            latch.countDown();
+        }
+
+        BufferedImage await() throws InterruptedException {
+            assertTrue("Final frame not rendered", latch.await(10, TimeUnit.SECONDS));
+            return image.get();
+        }
+    }
+
+    private static int topLine(BufferedImage image) {
+        // The first row with a pixel of the line, which is black,
+        // right of the axis labels
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = image.getWidth() / 4; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) == 0xFF000000) {
+                    return y;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static Point2DDataset randomData(int count) {
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 100.0) + Math.cos(i / 7.0) / 10;
+        }
+        return Point2DDatasets.lineData(new ArrayDouble(x), new ArrayDouble(y));
+    }
+
+    @Test
+    public void lineGraph1() throws Exception {
+        Point2DDataset data = randomData(10000);
+        ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset> renderer =
+                ProgressiveGraph2DRenderer.lineGraph(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        FinalFrame listener = new FinalFrame();
+        BufferedImage coarse = renderer.draw(data, listener);
+        BufferedImage exact = listener.await();
+        assertThat(coarse.getWidth(), equalTo(300));
+        assertThat(coarse.getHeight(), equalTo(200));
+
+        LineGraph2DRenderer directRenderer = new LineGraph2DRenderer(300, 200);
+        directRenderer.update(directRenderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer buffer = new GraphBuffer(directRenderer);
+        directRenderer.draw(buffer, data);
+        ImageAssert.assertSameImage(buffer.getImage(), exact);
+    }
+
+    @Test
+    public void lineGraph2() throws Exception {
+        // Small data is drawn exactly right away
+        Point2DDataset data = Point2DDatasets.lineData(new ArrayDouble(1, 3, 2, 4));
+        ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset> renderer =
+                ProgressiveGraph2DRenderer.lineGraph(300, 200);
+        FinalFrame listener = new FinalFrame();
+        BufferedImage image = renderer.draw(data, listener);
+        assertThat(listener.latch.getCount(), equalTo(1L));
+
+        LineGraph2DRenderer directRenderer = new LineGraph2DRenderer(300, 200);
+        GraphBuffer buffer = new GraphBuffer(directRenderer);
+        directRenderer.draw(buffer, data);
+        ImageAssert.assertSameImage(buffer.getImage(), image);
+    }
+
+    @Test
+    public void lineGraph3() throws Exception {
+        // The update is copied before it's handed to the background thread
+        Point2DDataset data = randomData(10000);
+        ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset> renderer =
+                ProgressiveGraph2DRenderer.lineGraph(300, 200);
+        LineGraph2DRendererUpdate update = renderer.newUpdate().interpolation(InterpolationScheme.LINEAR);
+        renderer.update(update);
+        update.interpolation(InterpolationScheme.CUBIC);
+        FinalFrame listener = new FinalFrame();
+        renderer.draw(data, listener);
+        BufferedImage exact = listener.await();
+
+        LineGraph2DRenderer directRenderer = new LineGraph2DRenderer(300, 200);
+        directRenderer.update(directRenderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer buffer = new GraphBuffer(directRenderer);
+        directRenderer.draw(buffer, data);
+        ImageAssert.assertSameImage(buffer.getImage(), exact);
+    }
+
+    @Test
+    public void lineGraph4() throws Exception {
+        // The coarse frame keeps the spikes
+        double[] y = new double[10000];
+        y[5001] = 1;
+        Point2DDataset data = Point2DDatasets.lineData(new ArrayDouble(y));
+        ProgressiveGraph2DRenderer<LineGraph2DRendererUpdate, Point2DDataset> renderer =
+                ProgressiveGraph2DRenderer.lineGraph(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        FinalFrame listener = new FinalFrame();
+        BufferedImage coarse = renderer.draw(data, listener);
+        BufferedImage exact = listener.await();
+        assertThat(topLine(coarse), equalTo(topLine(exact)));
+    }
+
+    @Test
+    public void intensityGraph1() throws Exception {
+        Cell2DDataset data = Cell2DDatasets.linearRange(new Cell2DDatasets.Function2D() {
+            @Override
+            public double getValue(double x, double y) {
+                return Math.sin(x / 10) * Math.cos(y / 10);
+            }
+        }, Ranges.range(0, 400), 400, Ranges.range(0, 300), 300);
+        ProgressiveGraph2DRenderer<IntensityGraph2DRendererUpdate, Cell2DDataset> renderer =
+                ProgressiveGraph2DRenderer.intensityGraph(300, 200);
+        FinalFrame listener = new FinalFrame();
+        renderer.draw(data, listener);
+        BufferedImage exact = listener.await();
+
+        IntensityGraph2DRenderer directRenderer = new IntensityGraph2DRenderer(300, 200);
+        GraphBuffer buffer = new GraphBuffer(directRenderer);
+        directRenderer.draw(buffer, data);
+        ImageAssert.assertSameImage(buffer.getImage(), exact);
+    }
+
+}
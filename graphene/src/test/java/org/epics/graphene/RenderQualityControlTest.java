@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class RenderQualityControlTest {
+
+    private static void frames(RenderQualityControl control, long frameNanos, long budgetNanos) {
+        for (int i = 0; i < RenderQualityControl.FRAMES; i++) {
+            control.frameRendered(frameNanos, budgetNanos);
+        }
+    }
+
+    @Test
+    public void frameRendered1() {
+        // Over budget: one level down for each set of frames
+        RenderQualityControl control = new RenderQualityControl();
+        assertThat(control.getQuality(), equalTo(RenderQuality.FULL));
+        control.frameRendered(30, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.FULL));
+        frames(control, 30, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.NO_ANTIALIASING));
+        frames(control, 30, 20);
+        frames(control, 30, 20);
+        frames(control, 30, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.ESSENTIAL));
+        frames(control, 30, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.ESSENTIAL));
+    }
+
+    @Test
+    public void frameRendered2() {
+        // Within budget but without headroom: the quality stays
+        RenderQualityControl control = new RenderQualityControl();
+        frames(control, 30, 20);
+        frames(control, 15, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.NO_ANTIALIASING));
+        // With headroom: one level up
+        frames(control, 5, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.FULL));
+    }
+
+    @Test
+    public void frameRendered3() {
+        // A single slow frame does not change the quality
+        RenderQualityControl control = new RenderQualityControl();
+        control.frameRendered(50, 20);
+        control.frameRendered(10, 20);
+        control.frameRendered(10, 20);
+        control.frameRendered(10, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.FULL));
+    }
+
+    @Test
+    public void frameRendered4() {
+        // No budget: full quality
+        RenderQualityControl control = new RenderQualityControl();
+        frames(control, 30, 20);
+        assertThat(control.getQuality(), equalTo(RenderQuality.NO_ANTIALIASING));
+        control.frameRendered(30, 0);
+        assertThat(control.getQuality(), equalTo(RenderQuality.FULL));
+    }
+
+}
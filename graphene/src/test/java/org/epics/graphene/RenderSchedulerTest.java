@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.time.TimeDuration;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class RenderSchedulerTest {
+
+    private static class Frames implements RenderScheduler.FrameListener {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicReference<GraphBuffer> last = new AtomicReference<>();
+
+        @Override
+        public void frameRendered(GraphBuffer graphBuffer) {
+            last.set(graphBuffer);
+            count.incrementAndGet();
+        }
+
+        // Waits until no frame is rendered for a while
+        int awaitIdle() throws InterruptedException {
+            int previousCount = -1;
+            for (int i = 0; i < 100 && (previousCount != count.get() || count.get() == 0); i++) {
+                previousCount = count.get();
+                Thread.sleep(200);
+            }
+            return count.get();
+        }
+    }
+
+    private static Point2DDataset data(int n) {
+        return Point2DDatasets.lineData(new ArrayDouble(0, n, 2 * n % 7, n % 5));
+    }
+
+    @Test
+    public void submit1() throws Exception {
+        // Only the latest data is rendered, at most once every interval
+        Frames frames = new Frames();
+        RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset> scheduler =
+                RenderScheduler.lineGraph(300, 200, TimeDuration.ofMillis(50), frames);
+        scheduler.update(scheduler.newUpdate().xAxisRange(AxisRanges.data()).yAxisRange(AxisRanges.data()));
+        for (int i = 1; i <= 100; i++) {
+            scheduler.submit(data(i));
+        }
+        int count = frames.awaitIdle();
+        assertThat(count, both(greaterThan(0)).and(lessThan(100)));
+
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().xAxisRange(AxisRanges.data()).yAxisRange(AxisRanges.data()));
+        GraphBuffer expected = new GraphBuffer(renderer);
+        renderer.draw(expected, data(100));
+        ImageAssert.assertSameImage(expected.getImage(), frames.last.get().getImage());
+    }
+
+    @Test
+    public void update1() throws Exception {
+        // The updates are applied in order, and redraw the latest data
+        Frames frames = new Frames();
+        RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset> scheduler =
+                RenderScheduler.lineGraph(300, 200, TimeDuration.ofMillis(10), frames);
+        scheduler.update(scheduler.newUpdate().interpolation(InterpolationScheme.CUBIC));
+        scheduler.update(scheduler.newUpdate().imageWidth(400));
+        assertThat(frames.count.get(), equalTo(0));
+        scheduler.submit(data(3));
+        int count = frames.awaitIdle();
+        scheduler.update(scheduler.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        scheduler.update(scheduler.newUpdate().imageHeight(250));
+        assertThat(frames.awaitIdle(), greaterThan(count));
+
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(400, 250);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer expected = new GraphBuffer(renderer);
+        renderer.draw(expected, data(3));
+        assertThat(frames.last.get().getImage().getWidth(), equalTo(400));
+        assertThat(frames.last.get().getImage().getHeight(), equalTo(250));
+        ImageAssert.assertSameImage(expected.getImage(), frames.last.get().getImage());
+    }
+
+    @Test
+    public void update2() throws Exception {
+        // The update is copied when submitted
+        Frames frames = new Frames();
+        RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset> scheduler =
+                RenderScheduler.lineGraph(300, 200, TimeDuration.ofMillis(10), frames);
+        LineGraph2DRendererUpdate update = scheduler.newUpdate().interpolation(InterpolationScheme.LINEAR);
+        scheduler.update(update);
+        update.interpolation(InterpolationScheme.CUBIC).imageWidth(400);
+        scheduler.submit(data(3));
+        frames.awaitIdle();
+
+        LineGraph2DRenderer renderer = new LineGraph2DRenderer(300, 200);
+        renderer.update(renderer.newUpdate().interpolation(InterpolationScheme.LINEAR));
+        GraphBuffer expected = new GraphBuffer(renderer);
+        renderer.draw(expected, data(3));
+        assertThat(frames.last.get().getImage().getWidth(), equalTo(300));
+        ImageAssert.assertSameImage(expected.getImage(), frames.last.get().getImage());
+    }
+
+    @Test
+    public void error1() throws Exception {
+        // An Error thrown while rendering doesn't stop the next frames
+        final Frames frames = new Frames();
+        RenderScheduler<LineGraph2DRendererUpdate, Point2DDataset> scheduler =
+                RenderScheduler.lineGraph(300, 200, TimeDuration.ofMillis(10), new RenderScheduler.FrameListener() {
+
+            private boolean first = true;
+
+            @Override
+            public void frameRendered(GraphBuffer graphBuffer) {
+                if (first) {
+                    first = false;
+                    throw new AssertionError("First frame");
+                }
+                frames.frameRendered(graphBuffer);
+            }
+        });
+        scheduler.submit(data(1));
+        Thread.sleep(200);
+        scheduler.submit(data(2));
+        assertThat(frames.awaitIdle(), equalTo(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new1() {
+        RenderScheduler.lineGraph(300, 200, TimeDuration.ofMillis(-1), new Frames());
+    }
+
+}
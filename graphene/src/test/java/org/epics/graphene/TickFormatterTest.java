@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2012-14 graphene developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.graphene;
+
+import java.text.NumberFormat;
+import java.util.Random;
+import org.epics.util.text.NumberFormats;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ * @author carcassi
+ */
+public class TickFormatterTest {
+
+    @Test
+    public void format1() {
+        TickFormatter formatter = new TickFormatter(0);
+        assertThat(formatter.format(0.0), equalTo("0"));
+        assertThat(formatter.format(2.0), equalTo("2"));
+        assertThat(formatter.format(-40.0), equalTo("-40"));
+        assertThat(formatter.format(1.5), equalTo("2"));
+        assertThat(formatter.format(2.5), equalTo("2"));
+    }
+
+    @Test
+    public void format2() {
+        TickFormatter formatter = new TickFormatter(2);
+        assertThat(formatter.format(0.0), equalTo("0.00"));
+        assertThat(formatter.format(0.3 - 0.1), equalTo("0.20"));
+        assertThat(formatter.format(-0.05), equalTo("-0.05"));
+        assertThat(formatter.format(12.345678), equalTo("12.35"));
+        assertThat(formatter.format(0.125), equalTo("0.12"));
+        assertThat(formatter.format(1e20), equalTo("100000000000000000000.00"));
+    }
+
+    @Test
+    public void format3() {
+        TickFormatter formatter = new TickFormatter(1);
+        assertThat(formatter.format(25000.0, 4), equalTo("2.5e4"));
+        assertThat(formatter.format(-0.00035, -4), equalTo("-3.5e-4"));
+    }
+
+    @Test
+    public void format4() {
+        TickFormatter formatter = new TickFormatter(3);
+        assertThat(formatter.format(Double.NaN), equalTo("NaN"));
+        assertThat(formatter.format(Double.POSITIVE_INFINITY), equalTo("Infinity"));
+        assertThat(formatter.format(Double.NEGATIVE_INFINITY), equalTo("-Infinity"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new1() {
+        new TickFormatter(-1);
+    }
+
+    @Test
+    public void sameAsNumberFormat() {
+        Random rand = new Random(1);
+        for (int digits = 0; digits < 8; digits++) {
+            TickFormatter formatter = new TickFormatter(digits);
+            NumberFormat format = NumberFormats.format(digits);
+            for (int i = 0; i < 10000; i++) {
+                // Multiples of an increment, as the references are
+                double value = (rand.nextInt(20001) - 10000) * (1 + rand.nextInt(5)) * Math.pow(10, -digits);
+                assertThat(formatter.format(value), equalTo(format.format(value)));
+                value = rand.nextGaussian() * Math.pow(10, rand.nextInt(24) - 12);
+                assertThat(formatter.format(value), equalTo(format.format(value)));
+            }
+        }
+    }
+
+}